@@ -0,0 +1,32 @@
+package de._0x2b.exception;
+
+import java.io.IOException;
+
+/**
+ * A response body was aborted because it exceeded the configured maximum
+ * size or arrived slower than the minimum transfer rate.
+ */
+public class BodyLimitException extends IOException {
+    public BodyLimitException(String message) {
+        super(message);
+    }
+
+    /**
+     * The HTTP client wraps errors of a body subscriber, sometimes more
+     * than once; look for a limit violation in the cause chain.
+     *
+     * @return the violation, or {@code null} if {@code error} has another
+     *         cause
+     */
+    public static BodyLimitException find(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof BodyLimitException limit) {
+                return limit;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return null;
+    }
+}
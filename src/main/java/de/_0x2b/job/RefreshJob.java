@@ -12,8 +12,8 @@ public class RefreshJob {
     @Inject
     FeedService feedService;
 
-    @Scheduled(delay = 30, delayUnit = TimeUnit.SECONDS, every = "${refresh.job.interval:1h}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    @Scheduled(delay = 30, delayUnit = TimeUnit.SECONDS, every = "${refresh.job.interval:5m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
     void refreshFeeds() {
-        feedService.refresh();
+        feedService.refreshDue();
     }
 }
@@ -0,0 +1,19 @@
+package de._0x2b.job;
+
+import de._0x2b.service.FeedService;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+
+@ApplicationScoped
+public class SubscriptionJob {
+    @Inject
+    FeedService feedService;
+
+    @Scheduled(delay = 10, delayUnit = TimeUnit.SECONDS, every = "${feed.subscribe.retry-interval:1m}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void retrySubscriptions() {
+        feedService.subscribeDue();
+    }
+}
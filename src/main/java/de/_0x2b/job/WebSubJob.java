@@ -0,0 +1,19 @@
+package de._0x2b.job;
+
+import de._0x2b.service.WebSubService;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+
+@ApplicationScoped
+public class WebSubJob {
+    @Inject
+    WebSubService webSubService;
+
+    @Scheduled(delay = 60, delayUnit = TimeUnit.SECONDS, every = "${websub.renew-interval:1h}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void renewLeases() {
+        webSubService.renewDue();
+    }
+}
@@ -1,13 +1,21 @@
 package de._0x2b.model;
 
 import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import io.quarkus.runtime.annotations.RegisterForReflection;
 
 @RegisterForReflection
 public class Feed {
+    // subscription states, see FeedService#create(Feed)
+    public static final String PENDING = "pending";
+    public static final String ACTIVE = "active";
+    public static final String FAILED = "failed";
+
     int id;
     Integer folderId;
     String name;
@@ -16,6 +24,13 @@ public class Feed {
     Icon icon;
     Instant lastRefreshedAt;
     String lastError;
+    String etag;
+    String lastModified;
+    Instant nextRefreshAt;
+    Duration refreshInterval;
+    String bodyHash;
+    int consecutiveFailures;
+    String status = ACTIVE;
 
     public Feed() {
     }
@@ -46,12 +61,20 @@ public class Feed {
                 && Objects.equals(url, feed.url) && Objects.equals(feedUrl, feed.feedUrl)
                 && Objects.equals(icon, feed.icon)
                 && Objects.equals(lastRefreshedAt, feed.lastRefreshedAt)
-                && Objects.equals(lastError, feed.lastError);
+                && Objects.equals(lastError, feed.lastError)
+                && Objects.equals(etag, feed.etag)
+                && Objects.equals(lastModified, feed.lastModified)
+                && Objects.equals(nextRefreshAt, feed.nextRefreshAt)
+                && Objects.equals(refreshInterval, feed.refreshInterval)
+                && Objects.equals(bodyHash, feed.bodyHash)
+                && consecutiveFailures == feed.consecutiveFailures
+                && Objects.equals(status, feed.status);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, folderId, name, url, feedUrl, icon, lastRefreshedAt, lastError);
+        return Objects.hash(id, folderId, name, url, feedUrl, icon, lastRefreshedAt, lastError, etag, lastModified,
+                nextRefreshAt, refreshInterval, bodyHash, consecutiveFailures, status);
     }
 
     public int getId() {
@@ -117,4 +140,69 @@ public class Feed {
     public void setLastError(String lastError) {
         this.lastError = lastError;
     }
+
+    @JsonIgnore
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    @JsonIgnore
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public Instant getNextRefreshAt() {
+        return nextRefreshAt;
+    }
+
+    public void setNextRefreshAt(Instant nextRefreshAt) {
+        this.nextRefreshAt = nextRefreshAt;
+    }
+
+    @JsonIgnore
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    @JsonIgnore
+    public String getBodyHash() {
+        return bodyHash;
+    }
+
+    public void setBodyHash(String bodyHash) {
+        this.bodyHash = bodyHash;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    /**
+     * @return {@link #PENDING} while the feed is being subscribed,
+     *         {@link #ACTIVE} once it is, {@link #FAILED} if its URL is no
+     *         feed or could not be downloaded in several attempts
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
 }
@@ -0,0 +1,20 @@
+package de._0x2b.model;
+
+import java.time.Instant;
+
+/**
+ * Progress of a refresh of all feeds started through the API.
+ *
+ * @param id          the job id
+ * @param state       {@code running}, {@code cancelling}, {@code done},
+ *                    {@code cancelled} or {@code failed}
+ * @param total       feeds to refresh
+ * @param done        feeds refreshed so far, failed ones included
+ * @param failed      feeds whose refresh was recorded as an error
+ * @param newArticles articles inserted so far
+ * @param startedAt   when the job was started
+ * @param finishedAt  when the job ended, {@code null} while it runs
+ */
+public record RefreshJobStatus(String id, String state, int total, int done, int failed, int newArticles,
+        Instant startedAt, Instant finishedAt) {
+}
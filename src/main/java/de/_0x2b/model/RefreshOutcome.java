@@ -0,0 +1,35 @@
+package de._0x2b.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Result of one feed refresh, waiting to be written to the feed's
+ * refresh-health columns.
+ *
+ * @param feedId       the feed id
+ * @param at           when the refresh succeeded or failed
+ * @param error        the error message, {@code null} for a successful refresh
+ * @param etag         ETag of the fetched body (success only)
+ * @param lastModified Last-Modified of the fetched body (success only)
+ * @param bodyHash     hex SHA-256 of the fetched body (success only)
+ * @param interval     time until the feed is due again
+ */
+public record RefreshOutcome(int feedId, Instant at, String error, String etag, String lastModified,
+        String bodyHash, Duration interval) {
+
+    public static RefreshOutcome success(int feedId, Instant at, String etag, String lastModified, String bodyHash,
+            Duration interval) {
+        return new RefreshOutcome(feedId, at, null, etag, lastModified, bodyHash, interval);
+    }
+
+    public static RefreshOutcome error(int feedId, Instant at, String error, Duration retryAfter) {
+        // exceptions without a message must still count as failures
+        return new RefreshOutcome(feedId, at, error != null ? error : "Refresh failed", null, null, null,
+                retryAfter);
+    }
+
+    public boolean failed() {
+        return error != null;
+    }
+}
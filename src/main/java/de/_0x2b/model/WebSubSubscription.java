@@ -0,0 +1,75 @@
+package de._0x2b.model;
+
+import java.net.URI;
+import java.time.Instant;
+
+/**
+ * WebSub subscription of a feed at the hub it advertises.
+ *
+ * @param feedId         the feed id
+ * @param hub            the hub's URL
+ * @param topic          the topic URL the hub knows the feed by
+ * @param secret         key of the HMAC signatures on pushed content
+ * @param state          {@code pending}, {@code active}, {@code renewing}
+ *                       (active, with a renewal requested) or
+ *                       {@code denied}
+ * @param leaseExpiresAt end of the lease the hub granted, {@code null}
+ *                       until the subscription has been verified
+ * @param attempts       requests sent to the hub since it last verified
+ *                       the subscription
+ * @param retryAt        when a request the hub has not verified, or has
+ *                       denied, is sent again
+ */
+public record WebSubSubscription(int feedId, URI hub, URI topic, String secret, String state,
+        Instant leaseExpiresAt, int attempts, Instant retryAt) {
+
+    public static final String PENDING = "pending";
+    public static final String ACTIVE = "active";
+    public static final String RENEWING = "renewing";
+    public static final String DENIED = "denied";
+
+    public WebSubSubscription withState(String state, Instant leaseExpiresAt) {
+        return new WebSubSubscription(feedId, hub, topic, secret, state, leaseExpiresAt, attempts, retryAt);
+    }
+
+    /**
+     * @return this subscription with one more request outstanding in
+     *         {@code state}, to be sent again at {@code retryAt} unless the
+     *         hub verifies it first
+     */
+    public WebSubSubscription requested(String state, Instant retryAt) {
+        return new WebSubSubscription(feedId, hub, topic, secret, state, leaseExpiresAt, attempts + 1, retryAt);
+    }
+
+    /**
+     * @return this subscription verified by the hub, with a lease until
+     *         {@code leaseExpiresAt}
+     */
+    public WebSubSubscription verified(Instant leaseExpiresAt) {
+        return new WebSubSubscription(feedId, hub, topic, secret, ACTIVE, leaseExpiresAt, 0, null);
+    }
+
+    /**
+     * @return whether the hub pushes the feed's updates at {@code now}
+     */
+    public boolean isActive(Instant now) {
+        return (ACTIVE.equals(state) || RENEWING.equals(state)) && leaseExpiresAt != null
+                && leaseExpiresAt.isAfter(now);
+    }
+
+    /**
+     * @return whether a request to the hub awaits its verification or denial
+     */
+    public boolean isRequested() {
+        return PENDING.equals(state) || RENEWING.equals(state);
+    }
+
+    /**
+     * @return whether the request is to be sent again at {@code now}: the
+     *         hub has neither verified it in time nor, if it denied it,
+     *         been asked again yet
+     */
+    public boolean isRetryDue(Instant now) {
+        return (isRequested() || DENIED.equals(state)) && (retryAt == null || !retryAt.isAfter(now));
+    }
+}
@@ -109,6 +109,9 @@ public abstract class AbstractRepository<T> {
      * java.time.Instant". We translate those to the explicit
      * {@code setTimestamp} call with the right SQL type.
      * <p>
+     * A {@link SqlArray} is bound as a SQL array, e.g. for set-based
+     * statements over {@code unnest(?::int[], ...)}.
+     * <p>
      * Any other type falls through to {@code setObject} unchanged.
      */
     private void setParameters(PreparedStatement stmt, List<Object> params) throws SQLException {
@@ -120,12 +123,24 @@ public abstract class AbstractRepository<T> {
             if (value instanceof Instant instant) {
                 // The column is TIMESTAMP WITH TIME ZONE; bind as such.
                 stmt.setTimestamp(idx, Timestamp.from(instant));
+            } else if (value instanceof SqlArray array) {
+                stmt.setArray(idx, stmt.getConnection().createArrayOf(array.type(), array.elements()));
             } else {
                 stmt.setObject(idx, value);
             }
         }
     }
 
+    /**
+     * A statement parameter to bind as SQL array.
+     *
+     * @param type     the element type name, e.g. {@code "integer"}
+     * @param elements the elements; JDBC types, so {@link Timestamp} rather
+     *                 than {@link Instant}
+     */
+    protected record SqlArray(String type, Object[] elements) {
+    }
+
     @FunctionalInterface
     protected interface RowMapper<T> {
         T map(ResultSet rs) throws SQLException;
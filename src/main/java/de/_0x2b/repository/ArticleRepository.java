@@ -4,19 +4,30 @@ import de._0x2b.exception.DataAccessException;
 import de._0x2b.model.Article;
 import jakarta.enterprise.context.ApplicationScoped;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
+import java.util.regex.Pattern;
 
 @ApplicationScoped
 public class ArticleRepository extends AbstractRepository<Article> {
@@ -32,18 +43,86 @@ public class ArticleRepository extends AbstractRepository<Article> {
             """;
     private static final String JOIN_FOLDER = " JOIN folder fo on fo.id = f.folder_id ";
     // The pagination cursor is now a real TIMESTAMPTZ. Articles with NULL
-    // pubDate are excluded from the read query entirely (see WHERE clause
-    // below) so we don't need NULLS FIRST/LAST gymnastics here.
-    private static final String WHERE_PAGINATION = " AND ((a.published < ?) OR (a.published = ? AND a.id < ?)) ";
-    private static final String ORDER_LIMIT = " ORDER BY a.published DESC, a.id DESC LIMIT 25";
-    private static final String SEARCH_TOKEN_CLAUSE =
-            " AND (a.title ILIKE ? ESCAPE '\\' OR a.description ILIKE ? ESCAPE '\\') ";
+    // pubDate are excluded from the read query entirely (see buildFind).
+    // As a row comparison the cursor is an index condition: the scan starts
+    // at the cursor instead of filtering everything newer than it.
+    private static final String WHERE_PAGINATION = " AND (a.published, a.id) < (?, ?) ";
+    // NULLS LAST only to be identical to the indexes (V2, V13); the planner
+    // doesn't scan an index in order otherwise.
+    private static final String ORDER = " ORDER BY a.published DESC NULLS LAST, a.id DESC";
+    private static final String LIMIT = " LIMIT 25";
+    // the ids of a page, see buildFind
+    private static final String PAGE_OF_ALL = "SELECT a.id FROM article a";
+    private static final String PAGE_OF_FEEDS = "SELECT a.id FROM feed f";
+    private static final String LATERAL_FEED_PAGE = " CROSS JOIN LATERAL (SELECT a.id, a.published FROM article a";
+    // Substring search on the expression of the trigram index (V12); it must
+    // stay identical to the indexed expression, or the index is not used.
+    private static final String SEARCH_TEXT = "(a.title || ' ' || a.description)";
+    private static final String SEARCH_TOKEN_CLAUSE = " AND " + SEARCH_TEXT + " ILIKE ? ESCAPE '\\' ";
+    // Full-text search on the generated article.search_vector column (V11).
+    // The configuration must be the one the column is built with, or the
+    // stems of query and document won't match.
+    private static final String TS_QUERY = "plainto_tsquery('english', ?)";
+    private static final String FULL_TEXT_CLAUSE = " AND a.search_vector @@ " + TS_QUERY + " ";
+    private static final String RANK = "ts_rank(a.search_vector, " + TS_QUERY + ")";
+    // The stop words of the 'english' configuration (tsearch_data/english.stop).
+    // plainto_tsquery drops them and punctuation; a query of nothing else has
+    // no lexeme and would match nothing.
+    private static final Set<String> STOP_WORDS = Set.of("""
+            i me my myself we our ours ourselves you your yours yourself yourselves he him his himself she her
+            hers herself it its itself they them their theirs themselves what which who whom this that these
+            those am is are was were be been being have has had having do does did doing a an the and but if or
+            because as until while of at by for with about against between into through during before after
+            above below to from up down in out on off over under again further then once here there when where
+            why how all any both each few more most other some such no nor not only own same so than too very s
+            t can will just don should now
+            """.strip().split("\\s+"));
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Ranked results are paged by (rank, published, id). The rank of the
+    // cursor article is computed again from its id, so the client keeps
+    // sending the same pagination parameters.
+    private static final String RANKED_PAGINATION = " AND (" + RANK + ", a.published, a.id) < "
+            + "(SELECT ts_rank(c.search_vector, " + TS_QUERY + "), c.published, c.id FROM article c WHERE c.id = ?) ";
+    private static final String RANKED_ORDER_LIMIT =
+            " ORDER BY " + RANK + " DESC, a.published DESC, a.id DESC LIMIT 25";
     private static final String INSERT_SQL = """
             INSERT INTO article (feed_id, title, description, content, link, published, authors, image_url, categories)
             VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
             ON CONFLICT (link) DO NOTHING
             """;
+    // COPY path: rows are streamed into a per-transaction temp table and
+    // merged with one set-based INSERT ... SELECT. The staging table has no
+    // indexes or constraints, so COPY only appends to the heap.
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE article_staging (
+                feed_id     INTEGER,
+                title       TEXT,
+                description TEXT,
+                content     TEXT,
+                link        TEXT,
+                published   TIMESTAMPTZ,
+                authors     TEXT,
+                image_url   TEXT,
+                categories  TEXT
+            ) ON COMMIT DROP
+            """;
+    private static final String COPY_STAGING_SQL = """
+            COPY article_staging (feed_id, title, description, content, link, published, authors, image_url, categories)
+            FROM STDIN (FORMAT csv)
+            """;
+    private static final String MERGE_STAGING_SQL = """
+            WITH inserted AS (
+                INSERT INTO article (feed_id, title, description, content, link, published, authors, image_url,
+                                     categories)
+                SELECT feed_id, title, description, content, link, published, authors, image_url, categories
+                  FROM article_staging
+                ON CONFLICT (link) DO NOTHING
+                RETURNING feed_id
+            )
+            SELECT feed_id, count(*) AS inserted FROM inserted GROUP BY feed_id
+            """;
     private static final String DELETE_BY_FEED_SQL = "DELETE FROM article WHERE feed_id = ?";
+    private static final String FIND_LINKS_BY_FEED_SQL = "SELECT link FROM article WHERE feed_id = ?";
     // The PostgreSQL JDBC driver does NOT support
     // ResultSet.getObject(int, Class) for java.time.Instant on a
     // timestamptz column - it raises
@@ -63,6 +142,22 @@ public class ArticleRepository extends AbstractRepository<Article> {
         return ts == null ? null : ts.toInstant();
     }
 
+    @ConfigProperty(name = "refresh.ingest.copy-threshold", defaultValue = "1000")
+    int copyThreshold = 1000;
+
+    /**
+     * {@code substring}: every token must be a case-insensitive substring of
+     * title or description. {@code fulltext}: every word of the query must
+     * appear, stemmed, in title, description or content; a query without
+     * any searchable word is matched as in {@code substring} mode.
+     */
+    @ConfigProperty(name = "article.search.mode", defaultValue = "substring")
+    String searchMode = "substring";
+
+    // order full-text results by ts_rank instead of by date
+    @ConfigProperty(name = "article.search.rank", defaultValue = "false")
+    boolean searchRank = false;
+
     public ArticleRepository() {
     }
 
@@ -100,10 +195,50 @@ public class ArticleRepository extends AbstractRepository<Article> {
         super.update(DELETE_BY_FEED_SQL, List.of(feedId));
     }
 
-    public void create(List<Article> articles) {
+    /**
+     * The links of all stored articles of a feed.
+     */
+    public List<String> findLinksByFeed(int feedId) {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(FIND_LINKS_BY_FEED_SQL)) {
+            stmt.setInt(1, feedId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<String> links = new ArrayList<>();
+                while (rs.next()) {
+                    links.add(rs.getString(1));
+                }
+                return links;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Query failed: " + FIND_LINKS_BY_FEED_SQL, e);
+        }
+    }
+
+    /**
+     * Store articles, ignoring those whose link already exists.
+     * <p>
+     * Small lists go through a JDBC batch of single-row inserts; lists of at
+     * least {@code refresh.ingest.copy-threshold} articles are streamed
+     * through {@code COPY} instead (see {@link #copyInsert(List)}).
+     * <p>
+     * The articles may belong to several feeds; they are written in one
+     * transaction either way.
+     *
+     * @param articles the articles to store
+     * @return the number of rows actually inserted, per feed id. Feeds
+     *         without new rows are absent.
+     */
+    public Map<Integer, Integer> create(List<Article> articles) {
         if (articles == null || articles.isEmpty())
-            return;
+            return Map.of();
 
+        if (articles.size() >= copyThreshold) {
+            return copyInsert(articles);
+        }
+        return batchInsert(articles);
+    }
+
+    Map<Integer, Integer> batchInsert(List<Article> articles) {
         logger.debug("Starting batch create for {} articles", articles.size());
 
         try (Connection conn = dataSource.getConnection()) {
@@ -111,6 +246,7 @@ public class ArticleRepository extends AbstractRepository<Article> {
 
             try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
                 int count = 0;
+                Map<Integer, Integer> inserted = new HashMap<>();
                 for (Article a : articles) {
                     stmt.setInt(1, a.getFeedId());
                     stmt.setString(2, a.getTitle());
@@ -128,10 +264,12 @@ public class ArticleRepository extends AbstractRepository<Article> {
                     stmt.addBatch();
 
                     if (++count % 500 == 0)
-                        stmt.executeBatch();
+                        countInserted(stmt.executeBatch(), articles, count - 500, inserted);
                 }
-                stmt.executeBatch(); // Execute remaining
+                // Execute remaining
+                countInserted(stmt.executeBatch(), articles, count - count % 500, inserted);
                 conn.commit(); // Commit Transaction
+                return inserted;
             } catch (SQLException e) {
                 // Roll back the open transaction before propagating the failure.
                 // The previous implementation swallowed this, which meant the
@@ -149,11 +287,221 @@ public class ArticleRepository extends AbstractRepository<Article> {
         }
     }
 
+    /**
+     * Bulk path: stream the articles as CSV through {@code COPY} into a temp
+     * staging table and merge them with a single
+     * {@code INSERT ... SELECT ... ON CONFLICT (link) DO NOTHING}. One
+     * round trip carries all rows and the unique index on {@code link} is
+     * probed once per row inside a single statement, which is considerably
+     * faster than JDBC batches for backfills and large refresh cycles.
+     */
+    Map<Integer, Integer> copyInsert(List<Article> articles) {
+        logger.debug("Starting COPY create for {} articles", articles.size());
+
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false); // Start Transaction; the staging table is dropped on commit
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_STAGING_SQL);
+
+                CopyIn copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_SQL);
+                try {
+                    StringBuilder row = new StringBuilder(1024);
+                    for (Article a : articles) {
+                        row.setLength(0);
+                        appendCsvRow(row, a);
+                        byte[] bytes = row.toString().getBytes(StandardCharsets.UTF_8);
+                        copy.writeToCopy(bytes, 0, bytes.length);
+                    }
+                    copy.endCopy();
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+
+                Map<Integer, Integer> inserted = new HashMap<>();
+                try (ResultSet rs = stmt.executeQuery(MERGE_STAGING_SQL)) {
+                    while (rs.next()) {
+                        inserted.put(rs.getInt("feed_id"), rs.getInt("inserted"));
+                    }
+                }
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    e.addSuppressed(rollbackEx);
+                }
+                throw new DataAccessException("COPY insert failed for feed_id=" + articles.getFirst().getFeedId(), e);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Database connection error during COPY insert", e);
+        }
+    }
+
+    /**
+     * Append one article as a CSV line in the column order of
+     * {@link #COPY_STAGING_SQL}. Text values are always quoted, so an empty
+     * string stays an empty string; {@code null} is written as an unquoted
+     * empty field, which is how CSV COPY spells NULL.
+     */
+    static void appendCsvRow(StringBuilder row, Article a) {
+        row.append(a.getFeedId()).append(',');
+        appendCsvText(row, a.getTitle()).append(',');
+        appendCsvText(row, a.getDescription()).append(',');
+        appendCsvText(row, a.getContent()).append(',');
+        appendCsvText(row, a.getLink()).append(',');
+        if (a.getPublished() != null) {
+            row.append(a.getPublished());
+        }
+        row.append(',');
+        appendCsvText(row, a.getAuthors()).append(',');
+        appendCsvText(row, a.getImageUrl()).append(',');
+        appendCsvText(row, a.getCategories()).append('\n');
+    }
+
+    private static StringBuilder appendCsvText(StringBuilder row, String value) {
+        if (value == null) {
+            return row;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        return row.append('"');
+    }
+
+    /**
+     * Add the update counts of one executed batch to the per-feed totals.
+     * {@code updateCounts[i]} belongs to {@code articles.get(offset + i)};
+     * rows dropped by {@code ON CONFLICT DO NOTHING} report 0.
+     */
+    private static void countInserted(int[] updateCounts, List<Article> articles, int offset,
+            Map<Integer, Integer> inserted) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] > 0) {
+                inserted.merge(articles.get(offset + i).getFeedId(), updateCounts[i], Integer::sum);
+            }
+        }
+    }
+
     private List<Article> findInternal(String whereClause, List<Object> initialParams, Long pagId, String pagDate,
             boolean joinFolder, String q) {
+        List<Object> params = new ArrayList<>();
+        String sql = buildFind(whereClause, initialParams, pagId, pagDate, joinFolder, q, isFullText(q), params);
+        return super.query(sql, articleMapper, params);
+    }
+
+    /**
+     * Whether {@code q} is searched in full text: only in {@code fulltext}
+     * mode, and only if the query has a word that is no stop word. Otherwise
+     * {@code plainto_tsquery} yields an empty query, which matches nothing,
+     * and the query is matched as substrings instead.
+     * <p>
+     * Decided here rather than by asking the database, to save a round trip
+     * per search. Words are split at anything but letters and digits, at
+     * least wherever the text search parser splits them; a query in which
+     * this finds no word but the parser would is matched as substrings,
+     * which still finds something. This assumes a UTF-8 database: in any
+     * other, the parser knows no letters but ASCII ones.
+     */
+    boolean isFullText(String q) { // package-private for direct testing
+        if (q == null || q.isBlank() || "substring".equalsIgnoreCase(searchMode)) {
+            return false;
+        }
+        for (String word : NON_WORD.split(q.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty() && !STOP_WORDS.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The query of {@link #findInternal}; fills {@code params} with its
+     * parameters. {@code fullText} picks the kind of search for {@code q},
+     * see {@link #isFullText(String)}.
+     * <p>
+     * A page is read in two steps. First the ids of the 25 articles after
+     * the cursor are picked, in timeline order, from an index alone:
+     * <ul>
+     * <li>the global timeline walks {@code article_published_id_idx};</li>
+     * <li>a feed or folder walks {@code article_feed_published_id_idx} once
+     * per feed, at most 25 entries each, and merges the results.</li>
+     * </ul>
+     * Only these 25 articles are then read in full and joined with their
+     * feed. The cursor is an index condition, so a page costs the same at
+     * any depth. Ranked full-text results are ordered by rank, which no
+     * index provides; they are read in one step instead.
+     */
+    String buildFind(String whereClause, List<Object> initialParams, Long pagId, String pagDate,
+            boolean joinFolder, String q, boolean fullText, List<Object> params) { // package-private for direct testing
+
+        String query = q == null || q.isBlank() ? null : q.trim();
+        fullText = fullText && query != null;
+        if (fullText && searchRank) {
+            return buildRankedFind(whereClause, initialParams, pagId, pagDate, joinFolder, query, params);
+        }
+
+        // We exclude articles with NULL pubDate from the read query
+        // entirely: the pagination cursor relies on chronological
+        // ordering, and "no date" doesn't have a meaningful position
+        // relative to a real timestamp.
+        StringBuilder articleWhere = new StringBuilder(" WHERE a.published IS NOT NULL ");
+        List<Object> articleParams = new ArrayList<>();
+        if (fullText) {
+            articleWhere.append(FULL_TEXT_CLAUSE);
+            articleParams.add(query);
+        } else {
+            appendSearch(articleWhere, articleParams, query);
+        }
+
+        // Add Pagination. The cursor is (published, id) and id is a
+        // bigint on the database - JDBC's setObject picks up the Long
+        // argument and binds it as BIGINT.
+        if (pagId != null && pagDate != null) {
+            articleWhere.append(WHERE_PAGINATION);
+            articleParams.add(java.time.Instant.parse(pagDate));
+            articleParams.add(pagId);
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_COLS).append(FROM_JOIN).append(" WHERE a.id IN (");
+        if (whereClause == null) {
+            sql.append(PAGE_OF_ALL).append(articleWhere).append(ORDER).append(LIMIT);
+            params.addAll(articleParams);
+        } else {
+            // The page of each feed is aliased "a" as well, so ORDER applies
+            // to the merged pages unchanged.
+            sql.append(PAGE_OF_FEEDS);
+            if (joinFolder) {
+                sql.append(JOIN_FOLDER);
+            }
+            sql.append(LATERAL_FEED_PAGE).append(articleWhere).append(" AND a.feed_id = f.id ")
+                    .append(ORDER).append(LIMIT).append(") a")
+                    .append(" WHERE ").append(whereClause).append(ORDER).append(LIMIT);
+            // the feed page comes first in the statement, the feed predicate after it
+            params.addAll(articleParams);
+            if (initialParams != null) {
+                params.addAll(initialParams);
+            }
+        }
+        return sql.append(')').append(ORDER).toString();
+    }
+
+    /**
+     * The query of {@link #buildFind} for full-text results ordered by
+     * rank.
+     */
+    private static String buildRankedFind(String whereClause, List<Object> initialParams, Long pagId,
+            String pagDate, boolean joinFolder, String query, List<Object> params) {
 
         StringBuilder sql = new StringBuilder(SELECT_COLS).append(FROM_JOIN);
-        List<Object> params = new ArrayList<>();
 
         if (initialParams != null) {
             params.addAll(initialParams);
@@ -163,36 +511,35 @@ public class ArticleRepository extends AbstractRepository<Article> {
             sql.append(JOIN_FOLDER);
         }
 
-        // We exclude articles with NULL pubDate from the read query
-        // entirely: the pagination cursor relies on chronological
-        // ordering, and "no date" doesn't have a meaningful position
-        // relative to a real timestamp.
-        sql.append(" WHERE 1=1 AND a.published IS NOT NULL ");
+        sql.append(" WHERE a.published IS NOT NULL ");
         if (whereClause != null) {
             sql.append(" AND ").append(whereClause);
         }
 
-        appendSearch(sql, params, q);
+        sql.append(FULL_TEXT_CLAUSE);
+        params.add(query);
 
-        // Add Pagination. The cursor is (published, id) and id is a
-        // bigint on the database - JDBC's setObject picks up the Long
-        // argument and binds it as BIGINT.
         if (pagId != null && pagDate != null) {
-            sql.append(WHERE_PAGINATION);
-            params.add(java.time.Instant.parse(pagDate));
-            params.add(java.time.Instant.parse(pagDate));
+            sql.append(RANKED_PAGINATION);
+            params.add(query);
+            params.add(query);
             params.add(pagId);
         }
 
-        sql.append(ORDER_LIMIT);
-
-        return super.query(sql.toString(), articleMapper, params);
+        sql.append(RANKED_ORDER_LIMIT);
+        params.add(query);
+        return sql.toString();
     }
 
     /**
-     * Append token-AND search predicates. Each whitespace-separated token must
-     * match title or description (case-insensitive substring). Wildcards in the
-     * user input are escaped so they cannot widen the pattern.
+     * Append token-AND search predicates for the {@code substring} search
+     * mode. Each whitespace-separated token must match title or description
+     * (case-insensitive substring). Wildcards in the user input are escaped
+     * so they cannot widen the pattern.
+     * <p>
+     * Title and description are matched as one text joined by a space: a
+     * token has no whitespace, so it cannot match across the join, and the
+     * single predicate per token is served by the trigram index.
      */
     private static void appendSearch(StringBuilder sql, List<Object> params, String q) {
         if (q == null || q.isBlank()) {
@@ -205,7 +552,6 @@ public class ArticleRepository extends AbstractRepository<Article> {
             String pattern = "%" + escapeIlike(token) + "%";
             sql.append(SEARCH_TOKEN_CLAUSE);
             params.add(pattern);
-            params.add(pattern);
         }
     }
 
@@ -2,6 +2,7 @@ package de._0x2b.repository;
 
 import de._0x2b.exception.DuplicateEntityException;
 import de._0x2b.model.Feed;
+import de._0x2b.model.RefreshOutcome;
 import jakarta.enterprise.context.ApplicationScoped;
 
 import org.slf4j.Logger;
@@ -10,10 +11,12 @@ import org.slf4j.LoggerFactory;
 import java.net.URI;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.List;
 import java.util.TimeZone;
 
@@ -21,11 +24,12 @@ import java.util.TimeZone;
 public class FeedRepository extends AbstractRepository<Feed> {
     private static final Logger logger = LoggerFactory.getLogger(FeedRepository.class);
     private static final String SELECT_COLS = """
-            SELECT id, folder_id, name, url, feed_url, last_refreshed_at, last_error
+            SELECT id, folder_id, name, url, feed_url, last_refreshed_at, last_error, etag, last_modified,
+                   next_refresh_at, refresh_interval, body_hash, consecutive_failures, status
             """;
     private static final String FROM = " FROM feed";
     private static final String INSERT_SQL = """
-            INSERT INTO feed (folder_id, name, url, feed_url) VALUES (?, ?, ?, ?) RETURNING id
+            INSERT INTO feed (folder_id, name, url, feed_url, status) VALUES (?, ?, ?, ?, ?) RETURNING id
             """;
     private static final String UPDATE = """
             UPDATE feed set folder_id = ?, name = ?, url = ?, feed_url = ? WHERE id = ?
@@ -33,11 +37,71 @@ public class FeedRepository extends AbstractRepository<Feed> {
     private static final String DELETE = """
             DELETE FROM feed WHERE id = ?
             """;
+    private static final String ACTIVATE = """
+            UPDATE feed SET name = ?, url = ?, status = 'active', last_error = NULL, consecutive_failures = 0
+             WHERE id = ?
+            """;
+    private static final String MARK_SUBSCRIPTION_FAILED = """
+            UPDATE feed SET status = 'failed', last_error = ? WHERE id = ?
+            """;
+    // While a feed is pending, next_refresh_at is when its subscription is
+    // (re)tried. Starting an attempt moves it out by the attempt's timeout,
+    // so only one attempt runs at a time and one cut short is retried.
+    private static final String START_SUBSCRIPTION = """
+            UPDATE feed SET next_refresh_at = ?
+             WHERE id = ? AND status = 'pending' AND (next_refresh_at IS NULL OR next_refresh_at <= ?)
+            """;
+    private static final String RETRY_SUBSCRIPTION = """
+            UPDATE feed SET last_error = ?, consecutive_failures = consecutive_failures + 1, next_refresh_at = ?
+             WHERE id = ? AND status = 'pending'
+            """;
+    // Claim feeds that are not leased by another node; the condition on the
+    // feeds to claim is filled in. SKIP LOCKED makes concurrent claims of
+    // several nodes pick disjoint rows instead of waiting for each other.
+    // Feeds still being subscribed, or whose subscription failed, are left
+    // alone.
+    private static final String CLAIM = """
+            UPDATE feed f
+               SET lease_owner = ?, lease_expires_at = ?
+              FROM (SELECT id
+                      FROM feed
+                     WHERE %s
+                       AND (lease_expires_at IS NULL OR lease_expires_at <= ?)
+                       AND status = 'active'
+                     ORDER BY next_refresh_at NULLS FIRST
+                     LIMIT ?
+                       FOR UPDATE SKIP LOCKED) claimed
+             WHERE f.id = claimed.id
+            RETURNING f.id, f.folder_id, f.name, f.url, f.feed_url, f.last_refreshed_at, f.last_error, f.etag,
+                      f.last_modified, f.next_refresh_at, f.refresh_interval, f.body_hash, f.consecutive_failures,
+                      f.status
+            """;
+    private static final String DUE = "(next_refresh_at IS NULL OR next_refresh_at <= ?)";
+    private static final String RELEASE = """
+            UPDATE feed SET lease_owner = NULL, lease_expires_at = NULL WHERE id = ANY(?::int[]) AND lease_owner = ?
+            """;
+    // Refresh outcomes are written set-based: one statement per kind for a
+    // whole batch of feeds, the per-feed values passed as parallel arrays.
+    // A node whose lease expired before it got here must not overwrite the
+    // outcome of the node that claimed the feed next.
     private static final String MARK_REFRESH_SUCCESS = """
-            UPDATE feed SET last_refreshed_at = ?, last_error = NULL WHERE id = ?
+            UPDATE feed f
+               SET last_refreshed_at = o.refreshed_at, last_error = NULL, etag = o.etag,
+                   last_modified = o.last_modified, body_hash = o.body_hash,
+                   refresh_interval = o.refresh_interval, next_refresh_at = o.next_refresh_at,
+                   consecutive_failures = 0, lease_owner = NULL, lease_expires_at = NULL
+              FROM unnest(?::int[], ?::timestamptz[], ?::text[], ?::text[], ?::text[], ?::int[], ?::timestamptz[])
+                   AS o(id, refreshed_at, etag, last_modified, body_hash, refresh_interval, next_refresh_at)
+             WHERE f.id = o.id AND (f.lease_owner IS NULL OR f.lease_owner = ?)
             """;
     private static final String MARK_REFRESH_ERROR = """
-            UPDATE feed SET last_error = ?, last_refreshed_at = COALESCE(last_refreshed_at, ?) WHERE id = ?
+            UPDATE feed f
+               SET last_error = o.error, last_refreshed_at = COALESCE(f.last_refreshed_at, o.failed_at),
+                   next_refresh_at = o.next_refresh_at, consecutive_failures = f.consecutive_failures + 1,
+                   lease_owner = NULL, lease_expires_at = NULL
+              FROM unnest(?::int[], ?::text[], ?::timestamptz[], ?::timestamptz[])
+                   AS o(id, error, failed_at, next_refresh_at)
+             WHERE f.id = o.id AND (f.lease_owner IS NULL OR f.lease_owner = ?)
             """;
     // Same as ArticleRepository: the PG driver doesn't bind
     // TIMESTAMPTZ -> Instant via getObject(idx, Class). Use
@@ -49,6 +113,15 @@ public class FeedRepository extends AbstractRepository<Feed> {
         Timestamp ts = rs.getTimestamp("last_refreshed_at", UTC);
         f.setLastRefreshedAt(ts == null ? null : ts.toInstant());
         f.setLastError(rs.getString("last_error"));
+        f.setEtag(rs.getString("etag"));
+        f.setLastModified(rs.getString("last_modified"));
+        Timestamp next = rs.getTimestamp("next_refresh_at", UTC);
+        f.setNextRefreshAt(next == null ? null : next.toInstant());
+        Integer interval = rs.getObject("refresh_interval", Integer.class);
+        f.setRefreshInterval(interval == null ? null : Duration.ofSeconds(interval));
+        f.setBodyHash(rs.getString("body_hash"));
+        f.setConsecutiveFailures(rs.getInt("consecutive_failures"));
+        f.setStatus(rs.getString("status"));
         return f;
     };
 
@@ -58,7 +131,7 @@ public class FeedRepository extends AbstractRepository<Feed> {
     public int create(Feed feed) {
         try {
             List<Object> params = Arrays.asList(feed.getFolderId(), feed.getName(), feed.getUrl().toString(),
-                    feed.getFeedUrl().toString());
+                    feed.getFeedUrl().toString(), feed.getStatus());
 
             return super.insert(INSERT_SQL, params);
 
@@ -92,34 +165,162 @@ public class FeedRepository extends AbstractRepository<Feed> {
         return findInternal("id = ?", List.of(id));
     }
 
+    /**
+     * @return the pending feeds whose subscription is due to be (re)tried,
+     *         see {@code FeedService#subscribeDue()}
+     */
+    public List<Feed> findDueSubscriptions(Instant now) {
+        return findInternal("status = ? AND (next_refresh_at IS NULL OR next_refresh_at <= ?)",
+                List.of(Feed.PENDING, Timestamp.from(now)));
+    }
+
+    /**
+     * Claim up to {@code limit} feeds whose next refresh is due and which are
+     * not leased, or whose lease has expired. The claimed feeds are leased to
+     * {@code owner} until {@code now + lease}; storing their refresh outcome
+     * (see {@link #markRefreshed(Collection, String)}) releases the lease.
+     * Feeds that have never been scheduled are always due.
+     *
+     * @return the claimed feeds
+     */
+    public List<Feed> claimDue(Instant now, String owner, Duration lease, int limit) {
+        Timestamp at = Timestamp.from(now);
+        return super.query(CLAIM.formatted(DUE), feedMapper,
+                List.of(owner, Timestamp.from(now.plus(lease)), at, at, limit));
+    }
+
+    /**
+     * Claim the given feeds whether they are due or not, like
+     * {@link #claimDue}. Feeds another node holds a lease on are skipped.
+     *
+     * @return the claimed feeds
+     */
+    public List<Feed> claim(Collection<Integer> ids, Instant now, String owner, Duration lease) {
+        return super.query(CLAIM.formatted("id = ANY(?::int[])"), feedMapper,
+                List.of(owner, Timestamp.from(now.plus(lease)), new SqlArray("integer", ids.toArray()),
+                        Timestamp.from(now), ids.size()));
+    }
+
+    /**
+     * Release the leases {@code owner} still holds on the given feeds, e.g.
+     * for feeds whose refresh ended without an outcome.
+     */
+    public void release(Collection<Integer> ids, String owner) throws SQLException {
+        super.update(RELEASE, List.of(new SqlArray("integer", ids.toArray()), owner));
+    }
+
     public int delete(int id) throws SQLException {
         return super.update(DELETE, List.of(id));
     }
 
     /**
-     * Mark a feed as successfully refreshed. Clears any previous error and
-     * sets the last_refreshed_at column to the supplied timestamp (or
-     * "now" if null). The caller is expected to supply a stable timestamp
-     * so the value can be matched to the article batch that was committed
-     * alongside it.
+     * Store the title and home page the subscription of a feed found and
+     * mark it active, so the refresh job picks it up.
+     */
+    public void activate(Feed feed) throws SQLException {
+        super.update(ACTIVATE, Arrays.asList(feed.getName(), feed.getUrl().toString(), feed.getId()));
+    }
+
+    /**
+     * Start an attempt to subscribe to a pending feed, unless one is running
+     * already. If the attempt neither succeeds nor fails within
+     * {@code timeout}, e.g. because the application stopped, the feed is due
+     * for the next one.
+     *
+     * @return whether the attempt may start
+     */
+    public boolean startSubscription(int id, Instant now, Duration timeout) throws SQLException {
+        return super.update(START_SUBSCRIPTION,
+                List.of(Timestamp.from(now.plus(timeout)), id, Timestamp.from(now))) > 0;
+    }
+
+    /**
+     * Record a failed attempt to subscribe to a feed that is tried again at
+     * {@code retryAt}. The feed stays pending; the message is truncated like
+     * a refresh error.
+     */
+    public void retrySubscription(int id, String error, Instant retryAt) throws SQLException {
+        super.update(RETRY_SUBSCRIPTION, List.of(truncate(error), Timestamp.from(retryAt), id));
+    }
+
+    /**
+     * Mark the subscription of a feed as failed for good. The message is
+     * truncated like a refresh error.
      */
-    public void markRefreshSuccess(int feedId, Instant at) throws SQLException {
-        super.update(MARK_REFRESH_SUCCESS, List.of(java.sql.Timestamp.from(at != null ? at : Instant.now()), feedId));
+    public void markSubscriptionFailed(int id, String error) throws SQLException {
+        super.update(MARK_SUBSCRIPTION_FAILED, List.of(truncate(error), id));
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
     }
 
     /**
-     * Mark a feed as failing the last refresh. Preserves the previous
+     * Write the outcomes of a batch of refreshes to the refresh-health
+     * columns, with one statement for all successes and one for all
+     * failures. Each feed id may occur at most once. Either kind releases
+     * the feed's refresh lease. Feeds leased by another node than
+     * {@code owner} are left alone: their lease expired while this node was
+     * refreshing them, and the other node has claimed them since.
+     * <p>
+     * A success clears any previous error and the failure counter, sets
+     * last_refreshed_at and stores the HTTP validators and the body hash.
+     * The caller must only pass a success once the articles it describes
+     * have been committed; a {@code null} validator clears the stored one.
+     * <p>
+     * A failure increments consecutive_failures and preserves the previous
      * last_refreshed_at so a long-standing broken feed still surfaces a
-     * "last seen working" timestamp.
+     * "last seen working" timestamp. Error messages are truncated to 1000
+     * chars to keep multi-MB stack traces out of the database.
      *
-     * @param feedId the feed id
-     * @param error  the error message; truncated to 1000 chars to keep
-     *               multi-MB stack traces out of the database
+     * @param outcomes the outcomes to store
+     * @param owner    the node that claimed the feeds
      */
-    public void markRefreshError(int feedId, String error) throws SQLException {
-        String trimmed = error == null ? null
-                : (error.length() > 1000 ? error.substring(0, 1000) : error);
-        super.update(MARK_REFRESH_ERROR, List.of(trimmed, java.sql.Timestamp.from(Instant.now()), feedId));
+    public void markRefreshed(Collection<RefreshOutcome> outcomes, String owner) throws SQLException {
+        List<RefreshOutcome> successes = outcomes.stream().filter(o -> !o.failed()).toList();
+        List<RefreshOutcome> errors = outcomes.stream().filter(RefreshOutcome::failed).toList();
+
+        if (!successes.isEmpty()) {
+            int n = successes.size();
+            Integer[] ids = new Integer[n];
+            Timestamp[] refreshedAt = new Timestamp[n];
+            String[] etags = new String[n];
+            String[] lastModified = new String[n];
+            String[] bodyHashes = new String[n];
+            Integer[] intervals = new Integer[n];
+            Timestamp[] nextRefreshAt = new Timestamp[n];
+            for (int i = 0; i < n; i++) {
+                RefreshOutcome o = successes.get(i);
+                ids[i] = o.feedId();
+                refreshedAt[i] = Timestamp.from(o.at());
+                etags[i] = o.etag();
+                lastModified[i] = o.lastModified();
+                bodyHashes[i] = o.bodyHash();
+                intervals[i] = (int) o.interval().toSeconds();
+                nextRefreshAt[i] = Timestamp.from(o.at().plus(o.interval()));
+            }
+            super.update(MARK_REFRESH_SUCCESS, List.of(new SqlArray("integer", ids),
+                    new SqlArray("timestamptz", refreshedAt), new SqlArray("text", etags),
+                    new SqlArray("text", lastModified), new SqlArray("text", bodyHashes),
+                    new SqlArray("integer", intervals), new SqlArray("timestamptz", nextRefreshAt), owner));
+        }
+
+        if (!errors.isEmpty()) {
+            int n = errors.size();
+            Integer[] ids = new Integer[n];
+            String[] messages = new String[n];
+            Timestamp[] failedAt = new Timestamp[n];
+            Timestamp[] nextRefreshAt = new Timestamp[n];
+            for (int i = 0; i < n; i++) {
+                RefreshOutcome o = errors.get(i);
+                ids[i] = o.feedId();
+                messages[i] = o.error().length() > 1000 ? o.error().substring(0, 1000) : o.error();
+                failedAt[i] = Timestamp.from(o.at());
+                nextRefreshAt[i] = Timestamp.from(o.at().plus(o.interval()));
+            }
+            super.update(MARK_REFRESH_ERROR, List.of(new SqlArray("integer", ids), new SqlArray("text", messages),
+                    new SqlArray("timestamptz", failedAt), new SqlArray("timestamptz", nextRefreshAt), owner));
+        }
     }
 
     private List<Feed> findInternal(String whereClause, List<Object> initialParams) {
@@ -0,0 +1,76 @@
+package de._0x2b.repository;
+
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.WebSubSubscription;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.net.URI;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Optional;
+import java.util.TimeZone;
+
+@ApplicationScoped
+public class WebSubRepository extends AbstractRepository<WebSubSubscription> {
+    private static final String SELECT = """
+            SELECT feed_id, hub, topic, secret, state, lease_expires_at, attempts, retry_at
+              FROM websub_subscription
+            """;
+    private static final String UPSERT = """
+            INSERT INTO websub_subscription (feed_id, hub, topic, secret, state, lease_expires_at, attempts, retry_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (feed_id) DO UPDATE
+               SET hub = EXCLUDED.hub, topic = EXCLUDED.topic, secret = EXCLUDED.secret,
+                   state = EXCLUDED.state, lease_expires_at = EXCLUDED.lease_expires_at,
+                   attempts = EXCLUDED.attempts, retry_at = EXCLUDED.retry_at
+            """;
+    private static final String DELETE = """
+            DELETE FROM websub_subscription WHERE feed_id = ?
+            """;
+    private static final Calendar UTC = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    private final RowMapper<WebSubSubscription> mapper = rs -> {
+        Timestamp lease = rs.getTimestamp("lease_expires_at", UTC);
+        Timestamp retry = rs.getTimestamp("retry_at", UTC);
+        return new WebSubSubscription(rs.getInt("feed_id"), URI.create(rs.getString("hub")),
+                URI.create(rs.getString("topic")), rs.getString("secret"), rs.getString("state"),
+                lease == null ? null : lease.toInstant(), rs.getInt("attempts"),
+                retry == null ? null : retry.toInstant());
+    };
+
+    public WebSubRepository() {
+    }
+
+    public List<WebSubSubscription> findAll() {
+        return super.query(SELECT, mapper, List.of());
+    }
+
+    public Optional<WebSubSubscription> findByFeed(int feedId) {
+        return super.query(SELECT + " WHERE feed_id = ?", mapper, List.of(feedId)).stream().findFirst();
+    }
+
+    /**
+     * Insert the subscription of a feed, replacing any previous one.
+     */
+    public void save(WebSubSubscription subscription) {
+        // Arrays.asList: the lease and retry may be null
+        List<Object> params = Arrays.asList(subscription.feedId(), subscription.hub().toString(),
+                subscription.topic().toString(), subscription.secret(), subscription.state(),
+                subscription.leaseExpiresAt(), subscription.attempts(), subscription.retryAt());
+        try {
+            super.update(UPSERT, params);
+        } catch (SQLException e) {
+            throw new DataAccessException("Storing WebSub subscription failed", e);
+        }
+    }
+
+    public void delete(int feedId) {
+        try {
+            super.update(DELETE, List.of(feedId));
+        } catch (SQLException e) {
+            throw new DataAccessException("Deleting WebSub subscription failed", e);
+        }
+    }
+}
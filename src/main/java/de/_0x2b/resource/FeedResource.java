@@ -12,6 +12,7 @@ import java.util.List;
 
 import de._0x2b.model.Feed;
 import de._0x2b.service.FeedService;
+import de._0x2b.service.RefreshJobs;
 import io.quarkus.security.Authenticated;
 
 @Path("/api/feed")
@@ -22,6 +23,8 @@ public class FeedResource {
 
     @Inject
     FeedService feedService;
+    @Inject
+    RefreshJobs refreshJobs;
 
     @GET
     @Authenticated
@@ -30,11 +33,28 @@ public class FeedResource {
         return feedService.findAll();
     }
 
+    @GET
+    @Path("/{id}")
+    @Authenticated
+    public Response getFeed(@PathParam("id") int id) {
+        logger.debug("getFeed: {}", id);
+        var feeds = feedService.findOne(id);
+        if (feeds.isEmpty()) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok(feeds.getFirst()).build();
+    }
+
+    /**
+     * Store a new feed and subscribe to it in the background. Answers 202
+     * with the feed's id; poll {@code /{id}} until its {@code status} is no
+     * longer {@code pending}.
+     */
     @POST
     @Authenticated
     public Response createFeed(Feed feed) {
         logger.debug("createFeed");
-        return Response.ok(feedService.create(feed)).build();
+        return Response.accepted(feedService.create(feed)).build();
     }
 
     @PUT
@@ -55,13 +75,38 @@ public class FeedResource {
         return Response.ok().build();
     }
 
+    /**
+     * Start refreshing all feeds in the background. Answers 202 with the
+     * job's {@link de._0x2b.model.RefreshJobStatus}; poll
+     * {@code /refresh/{jobId}} for its progress. While a refresh runs, its
+     * job is returned instead of starting another.
+     */
     @POST
     @Path("/refresh")
     @Authenticated
     public Response refreshFeeds() {
         logger.debug("refreshFeeds");
-        feedService.refresh();
-        return Response.ok().build();
+        return Response.accepted(refreshJobs.start()).build();
+    }
+
+    @GET
+    @Path("/refresh/{jobId}")
+    @Authenticated
+    public Response getRefreshJob(@PathParam("jobId") String jobId) {
+        logger.debug("getRefreshJob: {}", jobId);
+        return refreshJobs.find(jobId)
+                .map(status -> Response.ok(status).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    @DELETE
+    @Path("/refresh/{jobId}")
+    @Authenticated
+    public Response cancelRefreshJob(@PathParam("jobId") String jobId) {
+        logger.debug("cancelRefreshJob: {}", jobId);
+        return refreshJobs.cancel(jobId)
+                .map(status -> Response.ok(status).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
     }
 
     @GET
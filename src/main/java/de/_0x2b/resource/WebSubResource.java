@@ -0,0 +1,83 @@
+package de._0x2b.resource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de._0x2b.service.FeedService;
+import de._0x2b.service.WebSubService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Callback of WebSub subscriptions, see {@link WebSubService}.
+ * <p>
+ * Called by hubs, not by users, so it is not authenticated: verification
+ * requests must match a subscription this instance asked for, and pushed
+ * content is only accepted with a valid HMAC signature.
+ */
+@Path("/api/websub/{feedId}")
+public class WebSubResource {
+    private static final Logger logger = LoggerFactory.getLogger(WebSubResource.class);
+
+    @Inject
+    WebSubService webSubService;
+    @Inject
+    FeedService feedService;
+
+    /**
+     * Verification of a subscription request: echo the challenge to
+     * confirm it, 404 to refuse it.
+     */
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response verify(@PathParam("feedId") int feedId, @QueryParam("hub.mode") String mode,
+            @QueryParam("hub.topic") String topic, @QueryParam("hub.challenge") String challenge,
+            @QueryParam("hub.lease_seconds") Long leaseSeconds, @QueryParam("hub.reason") String reason) {
+        logger.debug("verify: {} {}", feedId, mode);
+        if ("denied".equals(mode)) {
+            webSubService.denied(feedId, topic, reason);
+            return Response.ok().build();
+        }
+        return webSubService.verify(feedId, mode, topic, challenge, leaseSeconds)
+                .map(echo -> Response.ok(echo).build())
+                .orElseGet(() -> Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    /**
+     * Content pushed by the hub. Content with a missing or wrong signature
+     * is dropped but still acknowledged, as the spec asks, so a forger
+     * learns nothing; a feed that is no longer subscribed answers 410 Gone,
+     * which tells the hub to end the subscription.
+     */
+    @POST
+    @Consumes(MediaType.WILDCARD)
+    public Response receive(@PathParam("feedId") int feedId, @HeaderParam("X-Hub-Signature") String signature,
+            @HeaderParam("Content-Type") String contentType, byte[] body) {
+        logger.debug("receive: {}", feedId);
+        var subscription = webSubService.find(feedId);
+        if (subscription.isEmpty()) {
+            return Response.status(Response.Status.GONE).build();
+        }
+        if (!webSubService.verifySignature(subscription.get(), signature, body)) {
+            logger.warn("Dropped WebSub content for feed {} with invalid signature", feedId);
+            return Response.accepted().build();
+        }
+        try {
+            int inserted = feedService.ingest(feedId, contentType, body);
+            logger.debug("Stored {} pushed article(s) of feed {}", inserted, feedId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+        }
+        return Response.accepted().build();
+    }
+}
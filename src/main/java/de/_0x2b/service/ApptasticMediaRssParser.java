@@ -3,10 +3,17 @@ package de._0x2b.service;
 import com.apptasticsoftware.rssreader.module.mediarss.MediaRssItem;
 import com.apptasticsoftware.rssreader.module.mediarss.MediaRssReader;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
 
 import java.io.InputStream;
 import java.util.List;
 
+/**
+ * Parses the whole document before the first item is handed on. Replaced
+ * by {@link StreamingMediaRssParser}; select it with
+ * {@code quarkus.arc.selected-alternatives} to go back.
+ */
+@Alternative
 @ApplicationScoped
 public class ApptasticMediaRssParser implements MediaRssParser {
 
@@ -15,4 +22,4 @@ public class ApptasticMediaRssParser implements MediaRssParser {
         // MediaRssReader is NOT thread-safe
         return new MediaRssReader().read(inputStream).toList();
     }
-}
\ No newline at end of file
+}
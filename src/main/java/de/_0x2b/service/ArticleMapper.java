@@ -6,8 +6,10 @@ import de._0x2b.model.Feed;
 import jakarta.enterprise.context.ApplicationScoped;
 
 import java.time.Instant;
+import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 
 @ApplicationScoped
 public class ArticleMapper {
@@ -36,4 +38,46 @@ public class ArticleMapper {
                 -1, feed.getId(), feed.getName(), title, description, content, link,
                 published, author, imageUrl, categories);
     }
+
+    /**
+     * Map a JSON Feed item like an RSS or Atom one: {@code summary} is the
+     * description, {@code content_html} (or else {@code content_text}) the
+     * content and {@code url} (or else {@code external_url}) the link.
+     */
+    public Article toArticle(Feed feed, JsonFeedItem item) {
+        var title = orEmpty(item.title());
+        var description = orEmpty(item.summary());
+        var content = item.contentHtml() != null ? item.contentHtml() : orEmpty(item.contentText());
+        var link = item.url() != null ? item.url() : orEmpty(item.externalUrl());
+        Instant published = parseDate(item.datePublished());
+        if (published == null) {
+            published = parseDate(item.dateModified());
+        }
+        if (published == null) {
+            published = ZonedDateTime.now(ZoneOffset.UTC).toInstant();
+        }
+        var author = String.join(", ", item.authors());
+        var imageUrl = item.images().isEmpty() ? "" : item.images().getFirst();
+        var categories = item.tags().toString();
+
+        return new Article(
+                -1, feed.getId(), feed.getName(), title, description, content, link,
+                published, author, imageUrl, categories);
+    }
+
+    // JSON Feed dates are RFC 3339; a broken one counts as missing
+    private static Instant parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(date).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
 }
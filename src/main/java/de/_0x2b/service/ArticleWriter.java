@@ -0,0 +1,173 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Article;
+import de._0x2b.repository.ArticleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Write stage of the refresh pipeline.
+ * <p>
+ * Refresh threads hand their parsed articles to {@link #write(List)} instead
+ * of inserting them themselves. A small, fixed number of writer threads
+ * drain the bounded queue, coalesce the pending lists of many feeds into
+ * one larger insert and report the result back per list. This keeps the
+ * number of connections used by a refresh at {@code refresh.writer.threads}
+ * no matter how many feeds are fetched in parallel, and turns many tiny
+ * transactions into a few large ones.
+ */
+@ApplicationScoped
+public class ArticleWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ArticleWriter.class);
+
+    @Inject
+    ArticleRepository articleRepository;
+    @Inject
+    RefreshMetrics refreshMetrics;
+
+    @ConfigProperty(name = "refresh.writer.threads", defaultValue = "1")
+    int threads = 1;
+
+    @ConfigProperty(name = "refresh.writer.queue-size", defaultValue = "64")
+    int queueSize = 64;
+
+    @ConfigProperty(name = "refresh.writer.batch-size", defaultValue = "5000")
+    int batchSize = 5000;
+
+    private BlockingQueue<WriteRequest> queue;
+    private ExecutorService writers;
+    // Completions run here so callbacks (marking the feed as refreshed, ...)
+    // never hold up the writer threads.
+    private ExecutorService callbacks;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueSize);
+        writers = Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("article-writer-", 0).factory());
+        callbacks = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < threads; i++) {
+            writers.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        writers.shutdownNow();
+        callbacks.close();
+        WriteRequest pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Article writer stopped"));
+        }
+    }
+
+    /**
+     * Queue articles for insertion. Blocks while the queue is full, which
+     * throttles the fetch stage to the speed of the database.
+     *
+     * @param articles the articles of one feed
+     * @return completes with the number of inserted rows, or exceptionally
+     *         with the failure of the insert
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public CompletableFuture<Integer> write(List<Article> articles) throws InterruptedException {
+        if (articles.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        var request = new WriteRequest(articles, new CompletableFuture<>());
+        queue.put(request);
+        return request.result();
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<WriteRequest> batch = new ArrayList<>();
+                WriteRequest next = queue.take();
+                int rows = 0;
+                do {
+                    batch.add(next);
+                    rows += next.articles().size();
+                } while (rows < batchSize && (next = queue.poll()) != null);
+                flush(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Insert a coalesced batch. If the combined insert fails, the requests
+     * are retried one by one so a single broken feed only fails itself.
+     */
+    void flush(List<WriteRequest> batch) {
+        if (batch.size() > 1) {
+            List<Article> articles = new ArrayList<>();
+            for (WriteRequest request : batch) {
+                articles.addAll(request.articles());
+            }
+            try {
+                complete(batch, insert(articles, RefreshMetrics.RETRIED));
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Coalesced insert of {} articles from {} feeds failed; retrying per feed",
+                        articles.size(), batch.size(), e);
+            }
+        }
+        for (WriteRequest request : batch) {
+            try {
+                complete(List.of(request), insert(request.articles(), RefreshMetrics.ERROR));
+            } catch (RuntimeException e) {
+                callbacks.execute(() -> request.result().completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * @param failureOutcome the metrics outcome if the insert fails
+     */
+    private Map<Integer, Integer> insert(List<Article> articles, String failureOutcome) {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, Integer> inserted = articleRepository.create(articles);
+            refreshMetrics.insert(RefreshMetrics.OK, System.nanoTime() - start, articles.size(),
+                    inserted.values().stream().mapToInt(Integer::intValue).sum());
+            return inserted;
+        } catch (RuntimeException e) {
+            refreshMetrics.insert(failureOutcome, System.nanoTime() - start, articles.size(), 0);
+            throw e;
+        }
+    }
+
+    /**
+     * Complete each request with the rows inserted for its feed. Should one
+     * batch carry two lists of the same feed, the first one is credited with
+     * all of that feed's rows.
+     */
+    private void complete(List<WriteRequest> batch, Map<Integer, Integer> insertedPerFeed) {
+        Map<Integer, Integer> remaining = new HashMap<>(insertedPerFeed);
+        for (WriteRequest request : batch) {
+            Integer inserted = remaining.remove(request.articles().getFirst().getFeedId());
+            int count = inserted == null ? 0 : inserted;
+            callbacks.execute(() -> request.result().complete(count));
+        }
+    }
+
+    record WriteRequest(List<Article> articles, CompletableFuture<Integer> result) {
+    }
+}
@@ -0,0 +1,188 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.BodyLimitException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps on response bodies, enforced while they arrive.
+ * <p>
+ * A body is aborted with a {@link BodyLimitException} as soon as more than
+ * {@code maxBytes} have been received (or announced by
+ * {@code Content-Length}), or when, after {@code grace}, less than
+ * {@code minBytesPerSecond} have arrived on average. The same size cap
+ * applies to the decompressed body, see {@link #bound(InputStream)}, so a
+ * fetch never holds more than {@code maxBytes} of a document in memory.
+ *
+ * @param maxBytes          largest accepted body, compressed or not
+ * @param minBytesPerSecond slowest accepted average rate, {@code 0} to
+ *                          disable the check
+ * @param grace             time before the rate is checked first
+ */
+record BodyLimits(long maxBytes, long minBytesPerSecond, Duration grace) {
+
+    static final BodyLimits NONE = new BodyLimits(Long.MAX_VALUE, 0, Duration.ZERO);
+
+    private static final Duration RATE_CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Enforce the limits on the raw body before {@code downstream} sees it.
+     */
+    <T> HttpResponse.BodySubscriber<T> apply(HttpResponse.ResponseInfo info,
+            HttpResponse.BodySubscriber<T> downstream) {
+        long declared = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new LimitedSubscriber<>(downstream, declared);
+    }
+
+    /**
+     * Enforce the size cap on a decoded body.
+     */
+    InputStream bound(InputStream in) {
+        if (maxBytes == Long.MAX_VALUE) {
+            return in;
+        }
+        return new FilterInputStream(in) {
+            private long read;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    count(n);
+                }
+                return n;
+            }
+
+            private void count(int n) throws BodyLimitException {
+                read += n;
+                if (read > maxBytes) {
+                    throw tooLarge();
+                }
+            }
+        };
+    }
+
+    BodyLimitException tooLarge() {
+        return new BodyLimitException("Response body exceeds " + maxBytes + " bytes");
+    }
+
+    private BodyLimitException tooSlow() {
+        return new BodyLimitException("Response body slower than " + minBytesPerSecond + " bytes/s");
+    }
+
+    /**
+     * Passes the body through while counting it. The rate check runs on the
+     * common delayed executor, so a stalled connection is aborted even
+     * though no data arrives to trigger it.
+     */
+    private final class LimitedSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> downstream;
+        private final long declaredLength;
+        private Flow.Subscription subscription;
+        private long received;
+        private long start;
+        private boolean done;
+
+        LimitedSubscriber(HttpResponse.BodySubscriber<T> downstream, long declaredLength) {
+            this.downstream = downstream;
+            this.declaredLength = declaredLength;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return downstream.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            synchronized (this) {
+                this.subscription = subscription;
+                start = System.nanoTime();
+            }
+            downstream.onSubscribe(subscription);
+            if (declaredLength > maxBytes) {
+                abort(tooLarge());
+            } else if (minBytesPerSecond > 0) {
+                schedule(grace);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(List<ByteBuffer> item) {
+            if (done) {
+                return;
+            }
+            for (ByteBuffer buffer : item) {
+                received += buffer.remaining();
+            }
+            if (received > maxBytes) {
+                abort(tooLarge());
+                return;
+            }
+            downstream.onNext(item);
+        }
+
+        @Override
+        public synchronized void onError(Throwable throwable) {
+            if (!done) {
+                done = true;
+                downstream.onError(throwable);
+            }
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            if (!done) {
+                done = true;
+                downstream.onComplete();
+            }
+        }
+
+        private synchronized void abort(BodyLimitException e) {
+            if (!done) {
+                done = true;
+                // fail the body first: cancelling makes the client fail
+                // the exchange with its own, less telling error
+                downstream.onError(e);
+                subscription.cancel();
+            }
+        }
+
+        private void checkRate() {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                if (received < minBytesPerSecond * seconds) {
+                    abort(tooSlow());
+                    return;
+                }
+            }
+            schedule(RATE_CHECK_INTERVAL);
+        }
+
+        private void schedule(Duration delay) {
+            CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS).execute(this::checkRate);
+        }
+    }
+}
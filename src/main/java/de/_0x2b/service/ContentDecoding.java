@@ -0,0 +1,234 @@
+package de._0x2b.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Body handlers that undo the {@code Content-Encoding} of a response.
+ * <p>
+ * {@link java.net.http.HttpClient} neither asks for compressed bodies nor
+ * decompresses them. {@link HTTPSService} sends {@link #ACCEPT_ENCODING}
+ * with every request and receives the bodies through these handlers, so
+ * callers always see the decoded document. Brotli is not offered because
+ * the JDK has no decoder for it.
+ */
+final class ContentDecoding {
+
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+    static final String IDENTITY = "identity";
+
+    /**
+     * Receives the size of a body as transferred and after decoding.
+     */
+    @FunctionalInterface
+    interface TransferListener {
+        void transferred(String encoding, long wireBytes, long decodedBytes);
+    }
+
+    private ContentDecoding() {
+    }
+
+    /**
+     * Receive the whole body and decode it. A body that cannot be decoded
+     * or breaks the {@code limits} fails the exchange with an
+     * {@link IOException}.
+     */
+    static HttpResponse.BodyHandler<byte[]> ofByteArray(BodyLimits limits, TransferListener listener) {
+        return info -> {
+            String encoding = encoding(info.headers());
+            var raw = limits.apply(info, HttpResponse.BodySubscribers.ofByteArray());
+            return HttpResponse.BodySubscribers.mapping(raw, body -> {
+                try {
+                    byte[] decoded = decode(encoding, body, limits);
+                    listener.transferred(encoding, body.length, decoded.length);
+                    return decoded;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+    }
+
+    /**
+     * Stream the body through a decoder. The sizes are reported when the
+     * stream is closed; reads fail once the body breaks the {@code limits}.
+     */
+    static HttpResponse.BodyHandler<InputStream> ofInputStream(BodyLimits limits, TransferListener listener) {
+        return info -> {
+            String encoding = encoding(info.headers());
+            var raw = limits.apply(info, HttpResponse.BodySubscribers.ofInputStream());
+            return HttpResponse.BodySubscribers.mapping(raw,
+                    body -> new DecodingInputStream(body, encoding, limits, listener));
+        };
+    }
+
+    /**
+     * @return the lower-cased content coding, {@link #IDENTITY} if there is
+     *         none
+     */
+    static String encoding(HttpHeaders headers) {
+        return headers.firstValue("Content-Encoding")
+                .map(value -> value.trim().toLowerCase(Locale.ROOT))
+                .filter(value -> !value.isEmpty())
+                .orElse(IDENTITY);
+    }
+
+    static byte[] decode(String encoding, byte[] raw, BodyLimits limits) throws IOException {
+        if (IDENTITY.equals(encoding)) {
+            return raw;
+        }
+        try (InputStream in = limits.bound(decoder(encoding, new ByteArrayInputStream(raw)))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Wrap {@code raw} in a decoder for {@code encoding}. Reads the first
+     * bytes of the stream, so it blocks until they have arrived.
+     *
+     * @throws IOException for content codings other than gzip and deflate
+     */
+    static InputStream decoder(String encoding, InputStream raw) throws IOException {
+        if (IDENTITY.equals(encoding)) {
+            return raw;
+        }
+        if (!encoding.equals("gzip") && !encoding.equals("x-gzip") && !encoding.equals("deflate")) {
+            throw new IOException("Unsupported Content-Encoding: " + encoding);
+        }
+        var in = new BufferedInputStream(raw);
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        if (first < 0) {
+            // 304s and HEAD responses may carry the header without a body
+            in.close();
+            return InputStream.nullInputStream();
+        }
+        if (!encoding.equals("deflate")) {
+            return new GZIPInputStream(in);
+        }
+        // "deflate" means zlib-wrapped data, but some servers send it raw
+        boolean zlib = second >= 0 && (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+        if (zlib) {
+            return new InflaterInputStream(in);
+        }
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(in, inflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Decodes lazily: the mapping function of a body subscriber runs on the
+     * client's threads and must not block, but a decoder reads its header
+     * as soon as it is created.
+     */
+    private static final class DecodingInputStream extends InputStream {
+        private final CountingInputStream wire;
+        private final String encoding;
+        private final BodyLimits limits;
+        private final TransferListener listener;
+        private InputStream decoded;
+        private long decodedBytes;
+        private boolean closed;
+
+        DecodingInputStream(InputStream raw, String encoding, BodyLimits limits, TransferListener listener) {
+            this.wire = new CountingInputStream(raw);
+            this.encoding = encoding;
+            this.limits = limits;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = decoded().read();
+            if (b >= 0) {
+                decodedBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = decoded().read(b, off, len);
+            if (n > 0) {
+                decodedBytes += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                (decoded != null ? decoded : wire).close();
+            } finally {
+                listener.transferred(encoding, wire.count, decodedBytes);
+            }
+        }
+
+        private InputStream decoded() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (decoded == null) {
+                decoded = IDENTITY.equals(encoding) ? wire : limits.bound(decoder(encoding, wire));
+            }
+            return decoded;
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package de._0x2b.service;
+
+import java.time.Instant;
+
+/**
+ * Decides when the rest of a feed document can be left unread.
+ * <p>
+ * Most feeds list their items newest first. Once {@code stopAfter} items in
+ * a row were published no later than the newest article already stored,
+ * the items after them are older still and were stored by earlier
+ * refreshes. Undated items reset the count, and an item newer than the one
+ * before it shows the feed is not sorted newest first, so such feeds are
+ * always read to the end.
+ * <p>
+ * Not thread-safe; one instance per document.
+ */
+final class EarlyStop {
+    private final Instant stopAtOrBefore;
+    private final int stopAfter;
+    private final Instant now;
+    private int run;
+    private boolean newestFirst = true;
+    private Instant previous;
+    private Instant newest;
+    private boolean stopped;
+
+    /**
+     * @param stopAtOrBefore newest publication date already stored,
+     *                       {@code null} to read the whole document
+     * @param stopAfter      old items in a row to stop after, {@code 0} to
+     *                       read the whole document
+     * @param now            when the refresh started; dates at or after it
+     *                       count as undated because the mapper stamps
+     *                       undated items with the current time
+     */
+    EarlyStop(Instant stopAtOrBefore, int stopAfter, Instant now) {
+        this.stopAtOrBefore = stopAtOrBefore;
+        this.stopAfter = stopAfter;
+        this.now = now;
+    }
+
+    /**
+     * @param published publication date of the item just read, {@code null}
+     *                  if it has none or could not be mapped
+     * @return whether the items after this one can be skipped
+     */
+    boolean reached(Instant published) {
+        if (published == null || !published.isBefore(now)) {
+            run = 0;
+            return false;
+        }
+        if (newest == null || published.isAfter(newest)) {
+            newest = published;
+        }
+        if (previous != null && published.isAfter(previous)) {
+            newestFirst = false;
+        }
+        previous = published;
+        if (stopAtOrBefore == null || stopAfter <= 0 || !newestFirst || published.isAfter(stopAtOrBefore)) {
+            run = 0;
+            return false;
+        }
+        stopped = ++run >= stopAfter;
+        return stopped;
+    }
+
+    /**
+     * @return the newest publication date read, {@code null} if none
+     */
+    Instant newest() {
+        return newest;
+    }
+
+    /**
+     * @return whether the document was left before its end
+     */
+    boolean stopped() {
+        return stopped;
+    }
+}
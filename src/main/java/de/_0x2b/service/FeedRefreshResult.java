@@ -0,0 +1,19 @@
+package de._0x2b.service;
+
+/**
+ * What refreshing a single feed achieved, for the progress of a
+ * {@link RefreshCycle}. The refresh outcome itself goes to
+ * {@link RefreshOutcomes}.
+ *
+ * @param failed      whether the refresh was recorded as an error
+ * @param newArticles articles the refresh inserted
+ */
+record FeedRefreshResult(boolean failed, int newArticles) {
+
+    static final FeedRefreshResult FAILED = new FeedRefreshResult(true, 0);
+    static final FeedRefreshResult NOTHING_NEW = new FeedRefreshResult(false, 0);
+
+    static FeedRefreshResult inserted(int newArticles) {
+        return new FeedRefreshResult(false, newArticles);
+    }
+}
@@ -1,11 +1,15 @@
 package de._0x2b.service;
 
 import com.apptasticsoftware.rssreader.RssReader;
-import de._0x2b.exception.NotFoundException;
+import de._0x2b.exception.BodyLimitException;
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.Article;
 import de._0x2b.model.Feed;
 import de._0x2b.model.Icon;
 import de._0x2b.repository.ArticleRepository;
 import de._0x2b.repository.FeedRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
@@ -18,15 +22,35 @@ import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
@@ -45,28 +69,150 @@ public class FeedService {
     @Inject
     MediaRssParser mediaRssParser;
     @Inject
+    JsonFeedParser jsonFeedParser;
+    @Inject
     ArticleMapper articleMapper;
+    @Inject
+    ArticleWriter articleWriter;
+    @Inject
+    KnownLinks knownLinks;
+    @Inject
+    RefreshOutcomes refreshOutcomes;
+    @Inject
+    RefreshMetrics refreshMetrics;
+    @Inject
+    RefreshSchedule refreshSchedule;
+    @Inject
+    HostThrottle hostThrottle;
+    @Inject
+    HostCircuitBreaker hostCircuitBreaker;
+    @Inject
+    WebSubService webSubService;
+    @Inject
+    ParseStage parseStage;
+    @Inject
+    ProbeCache probeCache;
+    @Inject
+    LeaseOwner leaseOwner;
+
+    // feeds fetched at once in the blocking mode; parsing is bounded by the
+    // ParseStage instead
+    @ConfigProperty(name = "refresh.concurrency", defaultValue = "50")
+    int refreshConcurrency = 50;
+
+    @ConfigProperty(name = "refresh.lease.duration", defaultValue = "15m")
+    Duration leaseDuration = Duration.ofMinutes(15);
+
+    @ConfigProperty(name = "refresh.lease.batch-size", defaultValue = "100")
+    int leaseBatchSize = 100;
+
+    /**
+     * {@code blocking}: one virtual thread per feed from request to read
+     * body. {@code async}: requests go through
+     * {@link HTTPSService#fetchAsync}, so network waits hold no thread.
+     * Either way the body is parsed by the {@link ParseStage}.
+     */
+    @ConfigProperty(name = "refresh.mode", defaultValue = "blocking")
+    String refreshMode = "blocking";
 
-    @ConfigProperty(name = "refresh.concurrency", defaultValue = "10")
-    int refreshConcurrency = 10;
+    @ConfigProperty(name = "refresh.async.max-in-flight", defaultValue = "500")
+    int maxInFlight = 500;
+
+    @ConfigProperty(name = "refresh.async.deadline", defaultValue = "60s")
+    Duration fetchDeadline = Duration.ofSeconds(60);
+
+    // stop reading a document after this many items in a row that are not
+    // newer than the stored articles, see EarlyStop; 0 reads every item
+    @ConfigProperty(name = "refresh.parse.stop-after-old-items", defaultValue = "3")
+    int stopAfterOldItems = 3;
+
+    // new feeds downloaded at once; see #create(Feed)
+    @ConfigProperty(name = "feed.subscribe.concurrency", defaultValue = "4")
+    int subscribeConcurrency = 4;
+
+    // a feed that could not be downloaded this many times in a row is
+    // marked failed; see #subscribe(Feed)
+    @ConfigProperty(name = "feed.subscribe.max-attempts", defaultValue = "8")
+    int maxSubscribeAttempts = 8;
+
+    private final ExecutorService subscriptions = Executors.newVirtualThreadPerTaskExecutor();
+    private Semaphore subscribePermits;
+
+    // exchanges of the async mode that have not completed yet
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    // refreshes of single feeds that are running right now
+    private final SingleFlight<Integer, FeedRefreshResult> feedRefreshes = new SingleFlight<>();
+
+    @PostConstruct
+    void start() {
+        subscribePermits = new Semaphore(subscribeConcurrency);
+    }
 
     /**
      * Store a new feed in the database
+     * <p>
+     * The feed is stored as {@link Feed#PENDING} and subscribed in the
+     * background, see {@link #subscribe(Feed)}; poll {@link #findOne(int)}
+     * for its status. Until then its name and home page are its feed URL.
      *
-     * @param feed
-     * @return
-     * @throws NotFoundException
+     * @param feed Feed object with feed_url filled
+     * @return the id of the new feed
+     * @throws DataAccessException if the feed could not be stored
      */
-    @Transactional
-    public int create(Feed feed) throws NotFoundException {
+    public int create(Feed feed) {
         logger.debug("create");
-        feed = this.getFeedMetadata(feed);
-        Icon icon = iconService.findIcon(feed);
-
-        int feedId = create(feed, icon);
+        if (feed.getName() == null || feed.getName().isBlank()) {
+            feed.setName(feed.getFeedUrl().toString());
+        }
+        if (feed.getUrl() == null) {
+            feed.setUrl(feed.getFeedUrl());
+        }
+        feed.setStatus(Feed.PENDING);
+        int feedId = feedRepository.create(feed);
+        if (feedId < 0) {
+            throw new DataAccessException("Storing feed failed: " + feed.getFeedUrl(), null);
+        }
+        feed.setId(feedId);
+        subscriptions.submit(() -> attemptSubscription(feed));
         return feedId;
     }
 
+    /**
+     * Try again to subscribe to the {@link Feed#PENDING} feeds that are due:
+     * those whose last attempt failed and whose retry delay is over, and
+     * those whose attempt was cut short, e.g. by a shutdown, more than
+     * {@code refresh.lease.duration} ago.
+     *
+     * @return the number of subscriptions started
+     */
+    public int subscribeDue() {
+        var due = feedRepository.findDueSubscriptions(Instant.now());
+        for (var feed : due) {
+            logger.info("Retrying subscription of feed [{}]", feed.getFeedUrl());
+            subscriptions.submit(() -> attemptSubscription(feed));
+        }
+        return due.size();
+    }
+
+    /**
+     * Run {@link #subscribe(Feed)} unless an attempt for the feed is already
+     * running, here or on another node.
+     */
+    private void attemptSubscription(Feed feed) {
+        try {
+            if (!feedRepository.startSubscription(feed.getId(), Instant.now(), leaseDuration)) {
+                logger.debug("Subscription of feed [{}] is already being attempted", feed.getFeedUrl());
+                return;
+            }
+        } catch (SQLException e) {
+            // still due; the next run of the subscription job tries again
+            logger.error("Starting subscription of feed [{}] failed", feed.getFeedUrl(), e);
+            return;
+        }
+        subscribe(feed);
+    }
+
     public int create(Feed feed, Icon icon) {
         logger.debug("storeData");
         int feedId = feedRepository.create(feed);
@@ -99,84 +245,558 @@ public class FeedService {
     }
 
     /**
-     * Refresh all feeds in the database
+     * Find a feed by its ID
+     *
+     * @param id
+     * @return the feed, or an empty list if there is none
+     */
+    public List<Feed> findOne(int id) {
+        return feedRepository.findOne(id);
+    }
+
+    /**
+     * Refresh all feeds in the database, reporting progress to
+     * {@code cycle}; see {@link RefreshJobs}.
+     * <p>
+     * The feeds are claimed like due ones (see {@link #refreshDue()}), so
+     * feeds another node, or the scheduled job, is refreshing right now
+     * are left to it.
+     *
+     * @param cycle progress and cancellation of the refresh
      */
-    public void refresh() {
+    public void refresh(RefreshCycle cycle) {
         logger.debug("refresh");
-        var feeds = feedRepository.findAll();
-        refresh(feeds);
+        refresh(claim(feedRepository.findAll().stream()
+                .filter(feed -> Feed.ACTIVE.equals(feed.getStatus()))
+                .map(Feed::getId)
+                .toList()), cycle);
+    }
+
+    /**
+     * Refresh the feeds whose next refresh is due. Used by the scheduled
+     * job; each feed carries its own interval (see {@link RefreshSchedule}).
+     * <p>
+     * Due feeds are claimed from the database in batches of
+     * {@code refresh.lease.batch-size} and leased to this node, so several
+     * replicas share the work instead of all refreshing every feed. Storing
+     * a feed's refresh outcome releases its lease; the lease of a node that
+     * dies first expires after {@code refresh.lease.duration} and the feed
+     * is claimed again. Batches are claimed until no due feed is left.
+     * Feeds whose refresh ends without an outcome (cancelled, host circuit
+     * open, ...) are released at the end of their batch.
+     */
+    public void refreshDue() {
+        logger.debug("refreshDue");
+        while (true) {
+            var feeds = feedRepository.claimDue(Instant.now(), leaseOwner.get(), leaseDuration, leaseBatchSize);
+            if (feeds.isEmpty()) {
+                return;
+            }
+            refresh(feeds, new RefreshCycle());
+        }
     }
 
     /**
      * Refresh a single feed by its ID
+     * <p>
+     * Attaches to the feed's refresh if one is already running on this
+     * node. A feed another node holds a lease on, or that is not
+     * {@link Feed#ACTIVE}, is not refreshed.
      *
      * @param id id of the feed to refresh
      */
     public void refresh(int id) {
         logger.debug("refresh");
-        var feeds = feedRepository.findOne(id);
-        refresh(feeds);
+        refresh(claim(List.of(id)), new RefreshCycle());
+    }
+
+    /**
+     * Lease the given feeds to this node for a refresh outside the schedule.
+     *
+     * @return the feeds that were claimed
+     */
+    private List<Feed> claim(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        var feeds = feedRepository.claim(ids, Instant.now(), leaseOwner.get(), leaseDuration);
+        if (feeds.size() < ids.size()) {
+            logger.debug("Skipping {} feed(s) leased by another node", ids.size() - feeds.size());
+        }
+        return feeds;
     }
 
     /**
      * Internal helper to refresh a list of feeds with bounded concurrency using
      * virtual threads.
+     * <p>
+     * Each feed first waits for its host's permit (see {@link HostThrottle})
+     * and only then for one of the {@code refresh.concurrency} fetch
+     * permits, so feeds queued behind a busy host do not block feeds on
+     * other hosts. The permits cover the request and reading the body; the
+     * body is then handed to the {@link ParseStage}, which parses on as many
+     * threads as there are cores, and the articles are stored by the
+     * {@link ArticleWriter}. Both stages have bounded queues, so a slow
+     * stage holds up the one before it rather than piling up documents.
+     * <p>
+     * In the {@code async} {@link #refreshMode} requests are limited by
+     * {@code refresh.async.max-in-flight} instead and aborted after
+     * {@code refresh.async.deadline}, so thousands of slow servers can be
+     * waited on without tying up a thread each.
+     * <p>
+     * The refresh outcomes are buffered in {@link RefreshOutcomes} and
+     * written in batches; whatever is still pending is flushed once the
+     * whole list is done. Storing an outcome releases the feed's lease; the
+     * leases of feeds without one are released after that.
+     * <p>
+     * A feed that is already being refreshed by an overlapping call is not
+     * fetched again; this call waits for that refresh instead, see
+     * {@link #refreshOnce}.
      *
-     * @param feeds
+     * @param feeds claimed by this node
+     * @param cycle receives the progress; cancelling it shuts the executor
+     *              down
      */
-    private void refresh(List<Feed> feeds) {
+    private void refresh(List<Feed> feeds, RefreshCycle cycle) {
         logger.info("Refreshing Feeds...");
-        Semaphore semaphore = new Semaphore(refreshConcurrency);
+        long cycleStart = System.nanoTime();
+        boolean failed = false;
+        boolean async = "async".equalsIgnoreCase(refreshMode);
+        Semaphore fetchPermits = new Semaphore(refreshConcurrency);
+        Semaphore inFlightPermits = new Semaphore(maxInFlight);
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            List<CompletableFuture<Void>> futures = feeds.stream()
-                    .map(feed -> CompletableFuture.runAsync(() -> {
-                        try {
-                            semaphore.acquire();
-                            try {
-                                parseFeed(feed);
-                            } finally {
-                                semaphore.release();
-                            }
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            logger.warn("Feed refresh interrupted for {}", feed.getFeedUrl(), e);
-                        }
-                    }, executor))
+            cycle.start(feeds.size(), executor);
+            List<CompletableFuture<FeedRefreshResult>> futures = feeds.stream()
+                    .map(feed -> refreshOnce(feed, cycle, () -> async
+                            ? refreshAsync(feed, inFlightPermits, executor, cycle)
+                            : refreshBlocking(feed, fetchPermits, executor, cycle)))
+                    .map(future -> future.whenComplete((result, error) -> cycle.finished(
+                            error == null ? result
+                                    : cycle.isCancelled() ? FeedRefreshResult.NOTHING_NEW
+                                    : FeedRefreshResult.FAILED)))
                     .toList();
 
             for (var future : futures) {
                 try {
                     future.join();
                 } catch (Exception e) {
+                    if (cycle.isCancelled()) {
+                        // rejected by the stopped executor or aborted exchange
+                        continue;
+                    }
+                    failed = true;
                     logger.error("Feed refresh failed", e);
                 }
             }
         }
-        logger.info("Feeds refreshed!");
+        refreshOutcomes.flush();
+        release(feeds);
+        refreshMetrics.cycle(failed ? RefreshMetrics.ERROR : RefreshMetrics.OK, feeds.size(),
+                System.nanoTime() - cycleStart);
+        if (cycle.isCancelled()) {
+            logger.info("Feed refresh cancelled after {} of {} feed(s)", cycle.done(), cycle.total());
+        } else {
+            logger.info("Feeds refreshed!");
+        }
+    }
+
+    /**
+     * Refresh a feed for {@code cycle}, or wait for the refresh of it that
+     * another cycle is running already.
+     * <p>
+     * A cancelled cycle may have skipped the feed or stopped its refresh
+     * half way, so a refresh that ends after its own cycle was cancelled
+     * completes the waiting cycles with a {@link CancellationException};
+     * they then refresh the feed themselves. The cycle that ran it gets
+     * the actual result.
+     */
+    private CompletableFuture<FeedRefreshResult> refreshOnce(Feed feed, RefreshCycle cycle,
+            Supplier<CompletableFuture<FeedRefreshResult>> refresh) {
+        var own = new AtomicReference<CompletableFuture<FeedRefreshResult>>();
+        var flight = feedRefreshes.submit(feed.getId(), () -> {
+            CompletableFuture<FeedRefreshResult> run;
+            try {
+                run = refresh.get();
+            } catch (RuntimeException e) {
+                run = CompletableFuture.failedFuture(e);
+            }
+            own.set(run);
+            return run.handle((result, error) -> {
+                if (cycle.isCancelled()) {
+                    return CompletableFuture.<FeedRefreshResult>failedFuture(
+                            new CancellationException("Refresh cycle cancelled"));
+                }
+                return error != null ? CompletableFuture.<FeedRefreshResult>failedFuture(error)
+                        : CompletableFuture.completedFuture(result);
+            }).thenCompose(Function.identity());
+        });
+        if (own.get() != null) {
+            return own.get();
+        }
+        return flight.exceptionallyCompose(error -> {
+            if (cycle.isCancelled() || !(unwrap(error) instanceof CancellationException)) {
+                return CompletableFuture.failedFuture(error);
+            }
+            logger.debug("Refresh of feed [{}] was cancelled; refreshing it again", feed.getFeedUrl());
+            return refreshOnce(feed, cycle, refresh);
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Release the leases this node still holds on {@code feeds}, so feeds
+     * that got no refresh outcome are due again right away rather than once
+     * the lease expires.
+     */
+    private void release(List<Feed> feeds) {
+        if (feeds.isEmpty()) {
+            return;
+        }
+        try {
+            feedRepository.release(feeds.stream().map(Feed::getId).toList(), leaseOwner.get());
+        } catch (SQLException e) {
+            // the leases expire on their own
+            logger.warn("Releasing leases of {} feed(s) failed", feeds.size(), e);
+        }
+    }
+
+    private CompletableFuture<FeedRefreshResult> refreshBlocking(Feed feed, Semaphore fetchPermits,
+            ExecutorService executor, RefreshCycle cycle) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!hostCircuitBreaker.allow(feed.getFeedUrl())) {
+                // host is down; the feed stays due and is tried again once the breaker lets it
+                logger.debug("Skipping feed [{}]; host circuit open", feed.getFeedUrl());
+                return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+            }
+            return releasingProbe(feed, () -> {
+                try (var permits = acquirePermits(feed, fetchPermits, "fetch")) {
+                    if (cycle.isCancelled()) {
+                        return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+                    }
+                    return parseFeed(feed);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Feed refresh interrupted for {}", feed.getFeedUrl(), e);
+                    return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+                }
+            });
+        }, executor).thenCompose(Function.identity());
+    }
+
+    /**
+     * Run the refresh of a feed {@link HostCircuitBreaker#allow} let
+     * through. Whichever way it ends, a probe it didn't report an outcome
+     * for (cancelled, interrupted, aborted exchange, ...) is released, so
+     * the host isn't skipped for good.
+     */
+    private CompletableFuture<FeedRefreshResult> releasingProbe(Feed feed,
+            Supplier<CompletableFuture<FeedRefreshResult>> refresh) {
+        CompletableFuture<FeedRefreshResult> result;
+        try {
+            result = refresh.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((outcome, error) -> hostCircuitBreaker.onAbandoned(feed.getFeedUrl()));
+    }
+
+    /**
+     * Refresh a feed through {@link HTTPSService#fetchAsync}. A virtual
+     * thread only waits for the host and in-flight permits and starts the
+     * request; the response is handled on a new one once it has arrived.
+     * The permits are released as soon as the exchange is over.
+     */
+    private CompletableFuture<FeedRefreshResult> refreshAsync(Feed feed, Semaphore inFlightPermits,
+            ExecutorService executor, RefreshCycle cycle) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!hostCircuitBreaker.allow(feed.getFeedUrl())) {
+                logger.debug("Skipping feed [{}]; host circuit open", feed.getFeedUrl());
+                return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+            }
+            return releasingProbe(feed, () -> fetchAsync(feed, inFlightPermits, executor, cycle));
+        }, executor).thenCompose(Function.identity());
+    }
+
+    /**
+     * {@link #refreshAsync} once the host circuit let the feed through.
+     */
+    private CompletableFuture<FeedRefreshResult> fetchAsync(Feed feed, Semaphore inFlightPermits,
+            ExecutorService executor, RefreshCycle cycle) {
+        HostThrottle.Permit permits;
+        try {
+            permits = acquirePermits(feed, inFlightPermits, "in_flight");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Feed refresh interrupted for {}", feed.getFeedUrl(), e);
+            return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+        }
+        if (cycle.isCancelled()) {
+            permits.close();
+            return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+        }
+        Instant startedAt = Instant.now();
+        long fetchStart = System.nanoTime();
+        var exchange = httpsService.fetchAsync(feed.getFeedUrl(), feed.getEtag(), feed.getLastModified(),
+                fetchDeadline);
+        inFlight.add(exchange);
+        cycle.track(exchange);
+        exchange.whenComplete((response, error) -> {
+            inFlight.remove(exchange);
+            cycle.untrack(exchange);
+            permits.close();
+        });
+        return exchange.handleAsync((optional, error) -> {
+            var limit = BodyLimitException.find(error);
+            if (limit != null) {
+                return bodyLimitExceeded(feed, fetchStart, limit);
+            }
+            if (error != null) {
+                return CompletableFuture.<FeedRefreshResult>failedFuture(error);
+            }
+            return handleResponse(feed, startedAt, fetchStart, optional,
+                    response -> hashBody(response.body()));
+        }, executor).thenCompose(Function.identity());
+    }
+
+    /**
+     * Abort all requests of the {@code async} refresh mode that are still
+     * waiting for the network. Their feeds get no refresh outcome and stay
+     * due.
+     *
+     * @return the number of aborted requests
+     */
+    public int cancelInFlight() {
+        int cancelled = 0;
+        for (var exchange : inFlight) {
+            if (exchange.cancel(true)) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    @PreDestroy
+    void stop() {
+        cancelInFlight();
+        subscriptions.shutdownNow();
     }
 
     /**
-     * Query a feed URL and return the filled feed object
+     * Wait for the host permit of a feed, then for one of {@code semaphore}.
      *
-     * @param feed Feed object with feed_url filled
-     * @return Feed object with name and url filled
+     * @param permit name of the semaphore in the wait metrics
+     * @return releases both permits when closed
+     */
+    private HostThrottle.Permit acquirePermits(Feed feed, Semaphore semaphore, String permit)
+            throws InterruptedException {
+        long waitStart = System.nanoTime();
+        HostThrottle.Permit hostPermit;
+        try {
+            hostPermit = hostThrottle.acquire(feed.getFeedUrl());
+        } catch (InterruptedException e) {
+            refreshMetrics.permitWait("host", RefreshMetrics.INTERRUPTED, System.nanoTime() - waitStart);
+            throw e;
+        }
+        long hostAcquired = System.nanoTime();
+        refreshMetrics.permitWait("host", RefreshMetrics.OK, hostAcquired - waitStart);
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            hostPermit.close();
+            refreshMetrics.permitWait(permit, RefreshMetrics.INTERRUPTED, System.nanoTime() - hostAcquired);
+            throw e;
+        }
+        refreshMetrics.permitWait(permit, RefreshMetrics.OK, System.nanoTime() - hostAcquired);
+        return () -> {
+            semaphore.release();
+            hostPermit.close();
+        };
+    }
+
+    /**
+     * Subscribe to a feed stored by {@link #create(Feed)}. The feed is
+     * downloaded once; that document yields its name and home page, the
+     * first articles (stored like those of a refresh, with the validators
+     * for the next one) and the icon the feed names for itself. Only if it
+     * names none, or that one is no image, is the home page searched for
+     * one (see {@link IconService#findIcon(Feed)}). The feed is then
+     * {@link Feed#ACTIVE} and refreshed from now on.
+     * <p>
+     * If the document is no RSS, Atom or JSON Feed document, the feed is
+     * marked {@link Feed#FAILED} with the reason as its {@code last_error}.
+     * Anything else that goes wrong, like a server that is down for a
+     * while, may pass: the feed stays {@link Feed#PENDING} with the reason
+     * as its {@code last_error} and {@link #subscribeDue()} tries again
+     * after {@link RefreshSchedule#afterError(Feed)}, until
+     * {@code feed.subscribe.max-attempts} attempts have failed. An attempt
+     * cut short by shutdown is tried again once its timeout is over.
+     * <p>
+     * The download waits for the host's permit and for one of
+     * {@code feed.subscribe.concurrency}, so a large OPML import does not
+     * run every request at once. If the feed URL was just checked, the
+     * document the check downloaded is used instead, see {@link ProbeCache}.
      */
-    public Feed getFeedMetadata(Feed feed) throws NotFoundException {
-        logger.debug("getFeedMetadata");
-        RssReader rssReader = new RssReader();
+    void subscribe(Feed feed) { // package-private for direct testing
+        logger.debug("subscribe: {}", feed.getFeedUrl());
+        try {
+            trySubscribe(feed);
+        } catch (RuntimeException e) {
+            subscriptionFailed(feed, "Subscribing failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void trySubscribe(Feed feed) {
+        Instant startedAt = Instant.now();
+        long fetchStart = System.nanoTime();
+        HttpHeaders headers;
+        byte[] document;
+        var probe = probeCache.get(feed.getFeedUrl().toString()).filter(p -> p.body() != null);
+        if (probe.isPresent()) {
+            logger.debug("Subscribing to feed [{}] from its recent check", feed.getFeedUrl());
+            headers = probe.get().headers();
+            document = probe.get().body();
+        } else {
+            Optional<HttpResponse<byte[]>> optional;
+            try (var permits = acquirePermits(feed, subscribePermits, "subscribe")) {
+                optional = httpsService.fetchAsBytes(feed.getFeedUrl());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Subscription interrupted for {}; tried again later", feed.getFeedUrl());
+                return;
+            }
+            if (optional.isEmpty()) {
+                subscriptionFailed(feed, "Feed not reachable: " + feed.getFeedUrl(), null);
+                return;
+            }
+            headers = optional.get().headers();
+            document = optional.get().body();
+        }
+        URI iconUrl;
         try {
-            var channel = rssReader.read(feed.getFeedUrl().toString()).toList().getFirst().getChannel();
+            iconUrl = readMetadata(feed, headers.firstValue("Content-Type").orElse(null), document);
+        } catch (RuntimeException e) {
+            markSubscriptionFailed(feed, "Not a valid RSS/Atom/JSON feed: " + feed.getFeedUrl(), e);
+            return;
+        }
+
+        try {
+            handleBody(feed, startedAt, fetchStart, headers, hashBody(document)).join();
+        } catch (CompletionException e) {
+            // the outcome is recorded; the next refresh tries again
+            logger.error("Storing first articles of feed [{}] failed", feed.getFeedUrl(), e.getCause());
+        }
+        storeIcon(feed, iconUrl);
+        try {
+            feedRepository.activate(feed);
+        } catch (SQLException e) {
+            subscriptionFailed(feed, "Activating feed failed: " + feed.getFeedUrl(), e);
+            return;
+        }
+        // after activate, which clears last_error, so an error of the first
+        // refresh stays visible
+        refreshOutcomes.flush();
+        logger.info("Subscribed to feed [{}]", feed.getFeedUrl());
+    }
+
+    /**
+     * Fill in the name and home page of a feed from its document. RSS, Atom
+     * and JSON Feed documents are understood.
+     *
+     * @param contentType the {@code Content-Type} of the document, may be
+     *                    null
+     * @return the icon the document names for the feed, resolved against
+     *         the feed URL; {@code null} if it names none
+     */
+    private URI readMetadata(Feed feed, String contentType, byte[] document) {
+        String iconUrl;
+        if (JsonFeedParser.isJsonFeed(contentType, document)) {
+            var channel = jsonFeedParser.channel(new ByteArrayInputStream(document));
+            // all optional in JSON Feed
+            feed.setUrl(channel.homePageUrl() != null ? URI.create(channel.homePageUrl()) : feed.getFeedUrl());
+            feed.setName(channel.title() != null ? channel.title() : feed.getFeedUrl().getHost());
+            iconUrl = channel.iconUrl();
+        } else {
+            var channel = new RssReader().read(new ByteArrayInputStream(document)).toList().getFirst().getChannel();
             feed.setUrl(URI.create(channel.getLink()));
-            feed.setName(channel.getTitle());
-        } catch (Exception e) {
-            logger.error("Error querying feed [{}] \n {}\n", feed.getFeedUrl(), e.getMessage());
-            throw new NotFoundException("Feed not reachable or not a valid RSS/Atom feed: " + feed.getFeedUrl());
+            feed.setName(channel.getTitle() != null ? channel.getTitle() : feed.getFeedUrl().getHost());
+            iconUrl = channel.getImage().map(image -> image.getUrl()).orElse(null);
+        }
+        if (iconUrl == null || iconUrl.isBlank()) {
+            return null;
+        }
+        try {
+            return feed.getFeedUrl().resolve(iconUrl.trim());
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed icon URL [{}] of feed [{}]", iconUrl, feed.getFeedUrl());
+            return null;
+        }
+    }
+
+    /**
+     * Store the icon of a new feed: the one its document names, or else
+     * whatever {@link IconService#findIcon(Feed)} finds. A feed without an
+     * icon gets the default one, so failures here are only logged.
+     */
+    private void storeIcon(Feed feed, URI iconUrl) {
+        try {
+            Icon icon = null;
+            if (iconUrl != null) {
+                icon = iconService.fetchFavicon(new Icon(-1, feed.getId(), null, "", "", iconUrl.toString()));
+            }
+            if (icon == null || icon.getImage() == null) {
+                icon = iconService.findIcon(feed);
+            }
+            if (icon != null) {
+                icon.setFeedId(feed.getId());
+                iconService.create(icon);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Storing icon of feed [{}] failed: {}", feed.getFeedUrl(), e.getMessage());
+        }
+    }
+
+    /**
+     * An attempt to subscribe failed for a reason that may pass. The feed is
+     * tried again after {@link RefreshSchedule#afterError(Feed)}, or marked
+     * failed once it is out of attempts.
+     */
+    private void subscriptionFailed(Feed feed, String message, Exception e) {
+        int attempts = feed.getConsecutiveFailures() + 1;
+        if (attempts >= maxSubscribeAttempts) {
+            markSubscriptionFailed(feed, message + " (gave up after " + attempts + " attempts)", e);
+            return;
+        }
+        Duration retryAfter = refreshSchedule.afterError(feed);
+        logger.warn("Subscribing to feed [{}] failed, trying again in {}: {}", feed.getFeedUrl(), retryAfter,
+                message, e);
+        try {
+            feedRepository.retrySubscription(feed.getId(), message, Instant.now().plus(retryAfter));
+        } catch (SQLException ex) {
+            logger.error("Recording failed subscription of feed [{}] failed", feed.getFeedUrl(), ex);
+        }
+    }
+
+    /**
+     * Mark the subscription of a feed as failed for good.
+     */
+    private void markSubscriptionFailed(Feed feed, String message, Exception e) {
+        logger.error("Subscribing to feed [{}] failed: {}", feed.getFeedUrl(), message, e);
+        try {
+            feedRepository.markSubscriptionFailed(feed.getId(), message);
+        } catch (SQLException ex) {
+            logger.error("Marking subscription of feed [{}] failed", feed.getFeedUrl(), ex);
         }
-        return feed;
     }
 
     /**
      * Check if a URL is a valid feed or contains feed links
+     * <p>
+     * The answer and the downloaded body are kept for a short while, see
+     * {@link ProbeCache}; checking the URL again returns the same feeds
+     * without another request.
      *
      * @param url URL to check
      * @return List of valid feeds found
@@ -187,12 +807,18 @@ public class FeedService {
 
     public List<Feed> checkFeedUrl(String url, JsoupProvider provider) {
         logger.debug("checkFeedUrl: {}", url);
+        var cached = probeCache.get(url);
+        if (cached.isPresent()) {
+            logger.debug("URL checked recently: {}", url);
+            return new ArrayList<>(cached.get().feeds());
+        }
         List<Feed> validFeeds = new ArrayList<>();
 
         try {
             Connection.Response queryResponse = provider.execute(url);
 
             String body = queryResponse.body();
+            byte[] bytes = queryResponse.bodyAsBytes();
             String contentType = queryResponse.contentType();
 
             if (isFeed(contentType, body)) {
@@ -202,7 +828,8 @@ public class FeedService {
                 Document doc = queryResponse.parse();
 
                 Elements links = doc.select(
-                        "link[rel=alternate][type=application/rss+xml], link[rel=alternate][type=application/atom+xml]");
+                        "link[rel=alternate][type=application/rss+xml], link[rel=alternate][type=application/atom+xml], "
+                                + "link[rel=alternate][type=application/feed+json]");
 
                 for (Element link : links) {
                     String feedUrl = extractFeedUrl(link);
@@ -213,6 +840,9 @@ public class FeedService {
                     }
                 }
             }
+            // kept for repeated checks and the subscription, see ProbeCache
+            var headers = HttpHeaders.of(queryResponse.multiHeaders(), (name, value) -> true);
+            probeCache.put(url, new ProbeCache.Probe(headers, bytes, validFeeds));
 
         } catch (HttpStatusException e) {
             logger.warn("Remote server returned HTTP {} for URL: {}", e.getStatusCode(), url);
@@ -257,8 +887,8 @@ public class FeedService {
     }
 
     /**
-     * Helper to determine if content is likely an RSS/Atom feed based on headers or
-     * raw content.
+     * Helper to determine if content is likely an RSS/Atom feed or a JSON Feed
+     * based on headers or raw content.
      *
      * @param contentType
      * @param body
@@ -274,6 +904,9 @@ public class FeedService {
                 return true;
             }
         }
+        if (JsonFeedParser.isJsonFeed(contentType, body)) {
+            return true;
+        }
 
         // 2. Check Content
         String startOfBody = body.length() > 500 ? body.substring(0, 500).toLowerCase() : body.toLowerCase();
@@ -283,9 +916,10 @@ public class FeedService {
     }
 
     /**
-     * Parse a feed and store articles in the database (batch insert).
+     * Parse a feed and hand its articles to the {@link ArticleWriter}.
      * <p>
-     * Refresh-health columns on the feed are updated in lockstep:
+     * Refresh-health columns on the feed are updated through
+     * {@link RefreshOutcomes}:
      * <ul>
      * <li>On success: {@code last_refreshed_at} is set, {@code last_error}
      * cleared.</li>
@@ -293,64 +927,340 @@ public class FeedService {
      * {@code last_refreshed_at} is left untouched (preserves the
      * "last seen working" timestamp).</li>
      * </ul>
-     * A missing HTTP response (404, network error, etc.) is treated as a
-     * "no new data" condition, not a failure - the timestamp is updated
-     * and any previous error is cleared.
+     * A missing HTTP response (404, network error, etc.) is a failure. Each
+     * failure in a row doubles the delay before the feed is retried (see
+     * {@link RefreshSchedule#afterError(Feed)}), and requests that fail
+     * outright (no response or an error status) count towards the host's
+     * {@link HostCircuitBreaker}.
+     * <p>
+     * The request is conditional on the validators stored with the feed. A
+     * {@code 304 Not Modified} answer is a successful refresh that skips
+     * parsing and the article insert entirely.
+     * <p>
+     * A changed body is read item by item and only up to the items that
+     * are already stored, see {@link EarlyStop}. JSON Feed documents, told
+     * apart by content type or their first bytes, are read by the
+     * {@link JsonFeedParser}, RSS and Atom by the {@link MediaRssParser}. It is also checked for a
+     * WebSub hub, see {@link WebSubService#discover}. Feeds a hub pushes are
+     * polled less often.
      *
      * @param feed
+     * @return completes once the feed's refresh outcome has been handed to
+     *         {@link RefreshOutcomes}, with what the refresh achieved
      */
-    void parseFeed(Feed feed) { // package-private for direct testing
-        var optional = httpsService.fetchUriAsStream(feed.getFeedUrl());
+    CompletableFuture<FeedRefreshResult> parseFeed(Feed feed) { // package-private for direct testing
+        Instant startedAt = Instant.now();
+        long fetchStart = System.nanoTime();
+        var optional = httpsService.fetchUriAsStream(feed.getFeedUrl(), feed.getEtag(), feed.getLastModified());
+        return handleResponse(feed, startedAt, fetchStart, optional, response -> readBody(response.body()));
+    }
+
+    /**
+     * Everything of {@link #parseFeed(Feed)} after the request.
+     *
+     * Returns once the body is read and queued for parsing, so the caller's
+     * fetch permit is not held while the document waits for a parser.
+     *
+     * @param bodyReader reads and hashes the body of a 200 response
+     */
+    private <T> CompletableFuture<FeedRefreshResult> handleResponse(Feed feed, Instant startedAt, long fetchStart,
+            Optional<HttpResponse<T>> optional, BodyReader<T> bodyReader) {
+        if (optional.isPresent() && optional.get().statusCode() == 304) {
+            refreshMetrics.fetch("not_modified", System.nanoTime() - fetchStart, 0);
+            hostCircuitBreaker.onSuccess(feed.getFeedUrl());
+            markNotModified(feed, optional.get());
+            return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+        }
+        if (optional.isEmpty() && Thread.currentThread().isInterrupted()) {
+            // the refresh was cancelled while waiting for the response; the
+            // feed is not at fault and stays due
+            logger.debug("Fetching feed [{}] interrupted", feed.getFeedUrl());
+            return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+        }
         if (optional.isEmpty() || optional.get().statusCode() != 200) {
             // The server did not give us a feed body. Could be a transient
-            // outage - record the error but don't penalise a feed that
-            // worked yesterday and is broken today.
-            try {
-                feedRepository.markRefreshError(feed.getId(),
-                        "No successful HTTP response (status="
-                                + (optional.isPresent() ? optional.get().statusCode() : "no-response")
-                                + ")");
-            } catch (SQLException e) {
-                logger.warn("Failed to record refresh error for feed [{}]", feed.getFeedUrl(), e);
+            // outage - record the error; only repeated failures push the
+            // next attempt further out.
+            refreshMetrics.fetch(optional.isPresent() ? "http_error" : "no_response",
+                    System.nanoTime() - fetchStart, 0);
+            if (optional.isPresent()) {
+                hostCircuitBreaker.onSuccess(feed.getFeedUrl());
+            } else {
+                hostCircuitBreaker.onFailure(feed.getFeedUrl());
             }
-            return;
+            markError(feed, "No successful HTTP response (status="
+                    + (optional.isPresent() ? optional.get().statusCode() : "no-response") + ")");
+            return CompletableFuture.completedFuture(FeedRefreshResult.FAILED);
         }
 
         var response = optional.get();
-        var items = mediaRssParser.parse(response.body());
+        FetchedBody body;
+        try {
+            body = bodyReader.read(response);
+        } catch (IOException e) {
+            var limit = BodyLimitException.find(e);
+            if (limit != null) {
+                return bodyLimitExceeded(feed, fetchStart, limit);
+            }
+            refreshMetrics.fetch("read_error", System.nanoTime() - fetchStart, 0);
+            hostCircuitBreaker.onFailure(feed.getFeedUrl());
+            logger.error("Reading body of feed [{}] failed", feed.getFeedUrl(), e);
+            markError(feed, "Reading response body failed: " + e.getMessage());
+            return CompletableFuture.completedFuture(FeedRefreshResult.FAILED);
+        }
+        return handleBody(feed, startedAt, fetchStart, response.headers(), body);
+    }
 
-        var articles = new java.util.ArrayList<de._0x2b.model.Article>(items.size());
-        int skipped = 0;
-        for (var item : items) {
-            try {
-                articles.add(articleMapper.toArticle(feed, item));
-            } catch (Exception e) {
-                skipped++;
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Skipping article in feed [{}]", feed.getFeedUrl(), e);
-                }
+    /**
+     * Everything of {@link #handleResponse} once the body of a 200 response
+     * has been read; also where {@link #subscribe(Feed)} hands over the
+     * document it got.
+     */
+    private CompletableFuture<FeedRefreshResult> handleBody(Feed feed, Instant startedAt, long fetchStart,
+            HttpHeaders headers, FetchedBody body) {
+        var etag = headers.firstValue("ETag").orElse(null);
+        var lastModified = headers.firstValue("Last-Modified").orElse(null);
+        var contentType = headers.firstValue("Content-Type").orElse(null);
+        long fetchNanos = System.nanoTime() - fetchStart;
+        hostCircuitBreaker.onSuccess(feed.getFeedUrl());
+        if (body.sha256().equals(feed.getBodyHash())) {
+            // Byte-identical to the last ingested body: nothing to parse or
+            // insert. Still a successful refresh.
+            refreshMetrics.fetch("unchanged", fetchNanos, body.bytes().length);
+            logger.debug("Feed [{}] body unchanged", feed.getFeedUrl());
+            refreshOutcomes.success(feed.getId(), startedAt, etag, lastModified, body.sha256(),
+                    polled(feed, refreshSchedule.afterUnchanged(feed)));
+            return CompletableFuture.completedFuture(FeedRefreshResult.NOTHING_NEW);
+        }
+
+        refreshMetrics.fetch(RefreshMetrics.OK, fetchNanos, body.bytes().length);
+        webSubService.discover(feed, headers, body.bytes());
+
+        var earlyStop = new EarlyStop(knownLinks.newestPublished(feed.getId()), stopAfterOldItems, startedAt);
+        CompletableFuture<List<Article>> parsed;
+        long waitStart = System.nanoTime();
+        try {
+            parsed = parseStage.submit(body.bytes().length,
+                    () -> parseArticles(feed, contentType, body.bytes(), earlyStop));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            refreshMetrics.permitWait("parse", RefreshMetrics.INTERRUPTED, System.nanoTime() - waitStart);
+            markError(feed, "Refresh interrupted");
+            return CompletableFuture.completedFuture(FeedRefreshResult.FAILED);
+        }
+        refreshMetrics.permitWait("parse", RefreshMetrics.OK, System.nanoTime() - waitStart);
+        return parsed.thenCompose(articles -> store(feed, startedAt, etag, lastModified, body, earlyStop, articles));
+    }
+
+    /**
+     * Everything of {@link #parseFeed(Feed)} after parsing: hand the new
+     * articles to the {@link ArticleWriter} and record the outcome once they
+     * are stored.
+     */
+    private CompletableFuture<FeedRefreshResult> store(Feed feed, Instant startedAt, String etag,
+            String lastModified, FetchedBody body, EarlyStop earlyStop, List<Article> articles) {
+        CompletableFuture<Integer> written;
+        try {
+            // Only items not stored by an earlier refresh go to the database.
+            var fresh = knownLinks.filterNew(feed.getId(), articles);
+            refreshMetrics.known(articles.size() - fresh.size());
+            written = articleWriter.write(fresh);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markError(feed, "Refresh interrupted");
+            return CompletableFuture.completedFuture(FeedRefreshResult.FAILED);
+        }
+        return written.handle((inserted, writeError) -> {
+            if (writeError != null) {
+                Throwable cause = writeError instanceof CompletionException && writeError.getCause() != null
+                        ? writeError.getCause()
+                        : writeError;
+                logger.error("Storing articles of feed [{}] failed", feed.getFeedUrl(), cause);
+                markError(feed, cause.getMessage());
+                return FeedRefreshResult.FAILED;
+            }
+            knownLinks.remember(feed.getId(), articles, earlyStop.newest());
+            // the schedule follows the whole document, also the items after an early stop
+            var published = knownLinks.published(feed.getId(),
+                    articles.stream().map(Article::getPublished).toList(), earlyStop.stopped(), startedAt);
+            // Insert succeeded - mark the feed as healthy. Only now may the
+            // new validators and body hash be recorded.
+            refreshOutcomes.success(feed.getId(), startedAt, etag, lastModified, body.sha256(),
+                    polled(feed, refreshSchedule.afterFetch(published, startedAt)));
+            return FeedRefreshResult.inserted(inserted);
+        });
+    }
+
+    /**
+     * The body was too large or too slow. The server did answer, so the
+     * host's circuit is left alone; the error backs off the feed like any
+     * other failed refresh.
+     */
+    private CompletableFuture<FeedRefreshResult> bodyLimitExceeded(Feed feed, long fetchStart, BodyLimitException e) {
+        refreshMetrics.fetch("body_limit", System.nanoTime() - fetchStart, 0);
+        logger.warn("Aborted body of feed [{}]: {}", feed.getFeedUrl(), e.getMessage());
+        markError(feed, e.getMessage());
+        return CompletableFuture.completedFuture(FeedRefreshResult.FAILED);
+    }
+
+    /**
+     * Parse a feed document and map its items as they are read; items the
+     * mapper rejects are skipped. Reading ends early once
+     * {@code earlyStop} has been reached.
+     *
+     * @param contentType the {@code Content-Type} of the document, may be
+     *                    null
+     */
+    private List<Article> parseArticles(Feed feed, String contentType, byte[] document, EarlyStop earlyStop) {
+        long parseStart = System.nanoTime();
+        var articles = new ArrayList<Article>();
+        var failures = new AtomicInteger();
+        try {
+            var in = new ByteArrayInputStream(document);
+            if (JsonFeedParser.isJsonFeed(contentType, document)) {
+                jsonFeedParser.parse(in, item -> mapItem(feed, () -> articleMapper.toArticle(feed, item), articles,
+                        failures, earlyStop));
+            } else {
+                mediaRssParser.parse(in, item -> mapItem(feed, () -> articleMapper.toArticle(feed, item), articles,
+                        failures, earlyStop));
             }
+        } catch (RuntimeException e) {
+            refreshMetrics.parse(RefreshMetrics.ERROR, System.nanoTime() - parseStart, 0);
+            throw e;
         }
+
+        int skipped = failures.get();
+        refreshMetrics.parse(earlyStop.stopped() ? RefreshMetrics.STOPPED_EARLY : RefreshMetrics.OK,
+                System.nanoTime() - parseStart, skipped);
         if (skipped > 0) {
             logger.warn("Skipped {} malformed article(s) in feed [{}]", skipped, feed.getFeedUrl());
         }
+        return articles;
+    }
 
+    /**
+     * Map one item of {@link #parseArticles} and collect it, or count it as
+     * a failure.
+     *
+     * @return whether to read on
+     */
+    private boolean mapItem(Feed feed, Supplier<Article> mapping, List<Article> articles, AtomicInteger failures,
+            EarlyStop earlyStop) {
+        Instant published = null;
         try {
-            articleRepository.create(articles);
-            // Insert succeeded - mark the feed as healthy.
-            feedRepository.markRefreshSuccess(feed.getId(), null);
+            Article article = mapping.get();
+            articles.add(article);
+            published = article.getPublished();
         } catch (Exception e) {
-            // The DataAccessException is the common case (the new
-            // ArticleRepository.create throws it), but we also want to
-            // catch anything thrown by the parser or the success-mark
-            // path so a single bad feed doesn't kill the whole batch.
-            logger.error("Refresh failed for feed [{}]", feed.getFeedUrl(), e);
-            try {
-                feedRepository.markRefreshError(feed.getId(), e.getMessage());
-            } catch (SQLException markEx) {
-                logger.warn("Failed to record refresh error for feed [{}]", feed.getFeedUrl(), markEx);
+            failures.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Skipping article in feed [{}]", feed.getFeedUrl(), e);
+            }
+        }
+        return !earlyStop.reached(published);
+    }
+
+    /**
+     * The interval until a successfully refreshed feed is polled again;
+     * longer if a WebSub hub pushes its updates.
+     */
+    private Duration polled(Feed feed, Duration interval) {
+        return webSubService.isPushed(feed.getId()) ? refreshSchedule.whenPushed(interval) : interval;
+    }
+
+    /**
+     * Store the articles of a document a WebSub hub pushed for a feed. From
+     * parsing on it takes the same path as a fetched document, but the
+     * feed's refresh state is left alone: a push usually carries only the
+     * new entries, not the whole feed.
+     *
+     * @param feedId      the feed
+     * @param contentType the {@code Content-Type} of the push, may be null
+     * @param document    the pushed feed document
+     * @return the number of articles inserted
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              {@link ParseStage} or {@link ArticleWriter}
+     */
+    public int ingest(int feedId, String contentType, byte[] document) throws InterruptedException {
+        var feeds = feedRepository.findOne(feedId);
+        if (feeds.isEmpty()) {
+            return 0;
+        }
+        var feed = feeds.getFirst();
+        var articles = parseStage.submit(document.length, () -> parseArticles(feed, contentType, document,
+                new EarlyStop(null, 0, Instant.now())))
+                .join();
+        var fresh = knownLinks.filterNew(feedId, articles);
+        refreshMetrics.known(articles.size() - fresh.size());
+        return articleWriter.write(fresh).join();
+    }
+
+    /**
+     * Record a failed refresh; the feed is retried after
+     * {@link RefreshSchedule#afterError(Feed)}.
+     */
+    private void markError(Feed feed, String message) {
+        refreshOutcomes.error(feed.getId(), message, refreshSchedule.afterError(feed));
+    }
+
+    /**
+     * Read a response body completely while computing its SHA-256 on the
+     * fly, so the hash costs no second pass over the bytes.
+     */
+    static FetchedBody readBody(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] bytes;
+        try (InputStream digesting = new DigestInputStream(in, digest)) {
+            bytes = digesting.readAllBytes();
+        }
+        return new FetchedBody(bytes, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Hash a body that has already been received completely.
+     */
+    static FetchedBody hashBody(byte[] bytes) {
+        return new FetchedBody(bytes, HexFormat.of().formatHex(sha256().digest(bytes)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A downloaded feed body and its hex encoded SHA-256.
+     */
+    record FetchedBody(byte[] bytes, String sha256) {
+    }
+
+    @FunctionalInterface
+    private interface BodyReader<T> {
+        FetchedBody read(HttpResponse<T> response) throws IOException;
+    }
+
+    /**
+     * Record a {@code 304 Not Modified} answer as a successful refresh. The
+     * server may send updated validators with the 304; if it does not, the
+     * stored ones stay valid.
+     */
+    private void markNotModified(Feed feed, HttpResponse<?> response) {
+        logger.debug("Feed [{}] not modified", feed.getFeedUrl());
+        if (response.body() instanceof InputStream body) {
+            try (InputStream ignored = body) {
+                // a 304 has no body; closing releases the connection
+            } catch (IOException e) {
+                logger.debug("Failed to close empty body of feed [{}]", feed.getFeedUrl(), e);
             }
         }
+        refreshOutcomes.success(feed.getId(), null,
+                response.headers().firstValue("ETag").orElse(feed.getEtag()),
+                response.headers().firstValue("Last-Modified").orElse(feed.getLastModified()),
+                feed.getBodyHash(), polled(feed, refreshSchedule.afterUnchanged(feed)));
     }
 
     /**
@@ -367,6 +1277,8 @@ public class FeedService {
         } catch (SQLException e) {
             return -1;
         }
+        knownLinks.forget(feedId);
+        webSubService.forget(feedId);
         try {
             return feedRepository.delete(feedId);
         } catch (SQLException e) {
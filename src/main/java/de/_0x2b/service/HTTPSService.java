@@ -1,5 +1,8 @@
 package de._0x2b.service;
 
+import de._0x2b.exception.BodyLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -9,11 +12,19 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class HTTPSService {
@@ -23,6 +34,19 @@ public class HTTPSService {
 
     HttpClient client;
 
+    @Inject
+    MeterRegistry registry;
+
+    // caps on every response body, see BodyLimits
+    @ConfigProperty(name = "app.http.max-body-size", defaultValue = "10485760")
+    long maxBodySize = 10 * 1024 * 1024;
+
+    @ConfigProperty(name = "app.http.min-transfer-rate", defaultValue = "1024")
+    long minTransferRate = 1024;
+
+    @ConfigProperty(name = "app.http.min-transfer-rate-grace", defaultValue = "10s")
+    Duration minTransferRateGrace = Duration.ofSeconds(10);
+
     @Inject
     public HTTPSService(
             @ConfigProperty(name = "app.http.user-agent", defaultValue = "FeedBox/1.0.0") String userAgent,
@@ -44,11 +68,12 @@ public class HTTPSService {
         HttpRequest request = HttpRequest.newBuilder(uri)
                 .GET()
                 .header("User-Agent", userAgent)
+                .header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING)
                 .timeout(Duration.ofSeconds(timeout))
                 .build();
 
         try {
-            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            HttpResponse<byte[]> response = client.send(request, ContentDecoding.ofByteArray(bodyLimits(), this::transferred));
             if (response.statusCode() >= 400) {
                 logger.error("Cannot fetch {}; status code {}", uri, response.statusCode());
                 return Optional.empty();
@@ -71,25 +96,172 @@ public class HTTPSService {
      * @return Response object or null if request is not successful
      */
     public Optional<HttpResponse<InputStream>> fetchUriAsStream(URI uri) {
+        return fetchUriAsStream(uri, null, null);
+    }
+
+    /**
+     * Conditional variant of {@link #fetchUriAsStream(URI)}. The validators
+     * of a previous response are sent as {@code If-None-Match} and
+     * {@code If-Modified-Since}; a server that supports them answers with
+     * {@code 304 Not Modified} and an empty body, which is returned to the
+     * caller like any other non-error response.
+     * <p>
+     * Reading the body fails with a {@link BodyLimitException} (possibly
+     * wrapped) once it exceeds {@code app.http.max-body-size} or arrives
+     * slower than {@code app.http.min-transfer-rate}.
+     *
+     * @param uri          URI to fetch
+     * @param etag         ETag of the previous response, may be null
+     * @param lastModified Last-Modified of the previous response, may be null
+     * @return Response object or empty if request is not successful
+     */
+    public Optional<HttpResponse<InputStream>> fetchUriAsStream(URI uri, String etag, String lastModified) {
+        HttpRequest request = conditionalRequest(uri, etag, lastModified);
+        try {
+            HttpResponse<InputStream> response = client.send(request,
+                    ContentDecoding.ofInputStream(bodyLimits(), this::transferred));
+            if (response.statusCode() >= 400) {
+                logger.error("Cannot fetch {}; status code {}", uri, response.statusCode());
+                return Optional.empty();
+            }
+            return Optional.of(response);
+        } catch (IOException e) {
+            logger.error("Could not fetch URI: {}", uri, e);
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Could not fetch URI: {}", uri, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchUriAsStream(URI, String, String)}.
+     * The whole body is received by the client's own threads, so no caller
+     * thread waits on the network however slow the server is.
+     * <p>
+     * The exchange is aborted once {@code deadline} has passed since the
+     * call, or when the returned future is cancelled. Like the blocking
+     * variant, errors, error statuses and aborted exchanges complete the
+     * future with an empty result rather than exceptionally. The exception
+     * are bodies over the limits of {@link BodyLimits}: they complete it
+     * with a {@link BodyLimitException}, so callers can record the reason.
+     *
+     * @param uri          URI to fetch
+     * @param etag         ETag of the previous response, may be null
+     * @param lastModified Last-Modified of the previous response, may be null
+     * @param deadline     time allowed for the whole exchange, body included
+     * @return the response, or empty if the request was not successful
+     */
+    public CompletableFuture<Optional<HttpResponse<byte[]>>> fetchAsync(URI uri, String etag, String lastModified,
+            Duration deadline) {
+        HttpRequest request = conditionalRequest(uri, etag, lastModified);
+        CompletableFuture<HttpResponse<byte[]>> exchange = client.sendAsync(request,
+                ContentDecoding.ofByteArray(bodyLimits(), this::transferred));
+        // cancelling the future returned by sendAsync aborts the exchange
+        CompletableFuture.delayedExecutor(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    if (exchange.cancel(true)) {
+                        logger.error("Could not fetch URI: {}; no response within {}", uri, deadline);
+                    }
+                });
+        CompletableFuture<Optional<HttpResponse<byte[]>>> result = exchange.handle((response, error) -> {
+            if (error != null) {
+                var limit = BodyLimitException.find(error);
+                if (limit != null) {
+                    logger.warn("Aborted body of {}: {}", uri, limit.getMessage());
+                    throw new CompletionException(limit);
+                }
+                if (!(error instanceof CancellationException)) {
+                    logger.error("Could not fetch URI: {}", uri, error);
+                }
+                return Optional.empty();
+            }
+            if (response.statusCode() >= 400) {
+                logger.error("Cannot fetch {}; status code {}", uri, response.statusCode());
+                return Optional.empty();
+            }
+            return Optional.of(response);
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Send a form as {@code application/x-www-form-urlencoded} POST, e.g. a
+     * subscription request to a WebSub hub. The response body is discarded.
+     *
+     * @param uri  URI to post to
+     * @param form the form fields, sent in iteration order
+     * @return the response, or empty if the request was not successful
+     */
+    public Optional<HttpResponse<Void>> postForm(URI uri, Map<String, String> form) {
+        String body = form.entrySet().stream()
+                .map(field -> URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8) + "="
+                        + URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
         HttpRequest request = HttpRequest.newBuilder(uri)
-                .GET()
+                .POST(HttpRequest.BodyPublishers.ofString(body))
                 .header("User-Agent", userAgent)
+                .header("Content-Type", "application/x-www-form-urlencoded")
                 .timeout(Duration.ofSeconds(timeout))
                 .build();
         try {
-            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
             if (response.statusCode() >= 400) {
-                logger.error("Cannot fetch {}; status code {}", uri, response.statusCode());
+                logger.error("Cannot post to {}; status code {}", uri, response.statusCode());
                 return Optional.empty();
             }
             return Optional.of(response);
         } catch (IOException e) {
-            logger.error("Could not fetch URI: {}", uri, e);
+            logger.error("Could not post to URI: {}", uri, e);
             return Optional.empty();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.error("Could not fetch URI: {}", uri, e);
+            logger.error("Could not post to URI: {}", uri, e);
             return Optional.empty();
         }
     }
+
+    private BodyLimits bodyLimits() {
+        return new BodyLimits(maxBodySize, minTransferRate, minTransferRateGrace);
+    }
+
+    private HttpRequest conditionalRequest(URI uri, String etag, String lastModified) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .GET()
+                .header("User-Agent", userAgent)
+                .header("Accept-Encoding", ContentDecoding.ACCEPT_ENCODING)
+                .timeout(Duration.ofSeconds(timeout));
+        if (etag != null && !etag.isBlank()) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null && !lastModified.isBlank()) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Count the body bytes of a response as transferred ({@code wire}) and
+     * after decompression ({@code decoded}), by content coding. Comparing
+     * both shows what compression saves.
+     */
+    void transferred(String encoding, long wireBytes, long decodedBytes) {
+        bodyBytes(encoding, "wire").increment(wireBytes);
+        bodyBytes(encoding, "decoded").increment(decodedBytes);
+    }
+
+    private Counter bodyBytes(String encoding, String stage) {
+        return Counter.builder("feedbox.http.body.bytes")
+                .description("Response body bytes by content coding, as transferred and decoded")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .tag("stage", stage)
+                .register(registry);
+    }
 }
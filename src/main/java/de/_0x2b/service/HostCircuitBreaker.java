@@ -0,0 +1,179 @@
+package de._0x2b.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-host circuit breaker for feed refreshes.
+ * <p>
+ * When the feeds of one host fail {@code refresh.host.breaker.failures}
+ * times in a row (across all of its feeds), the host is considered down and
+ * its feeds are skipped for {@code refresh.host.breaker.open-for}. After
+ * that, a single feed is let through as a probe: if it succeeds the host is
+ * back, if it fails the host stays blocked for another period. This keeps a
+ * dead server with many subscriptions from tying up permits and request
+ * timeouts on every cycle. Hosts are keyed like in {@link HostThrottle}.
+ * <p>
+ * A probe that reports neither outcome, e.g. because its refresh was
+ * cancelled, is released with {@link #onAbandoned(URI)}; should that be
+ * missed, another probe is let through after
+ * {@code refresh.host.breaker.probe-timeout}. Only hosts with failures are
+ * tracked: a success forgets the host, and a host without requests for
+ * {@code refresh.host.idle-ttl} is forgotten as well.
+ */
+@ApplicationScoped
+public class HostCircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    @ConfigProperty(name = "refresh.host.breaker.failures", defaultValue = "5")
+    int failureThreshold = 5;
+
+    @ConfigProperty(name = "refresh.host.breaker.open-for", defaultValue = "30m")
+    Duration openFor = Duration.ofMinutes(30);
+
+    @ConfigProperty(name = "refresh.host.breaker.probe-timeout", defaultValue = "5m")
+    Duration probeTimeout = Duration.ofMinutes(5);
+
+    @ConfigProperty(name = "refresh.host.idle-ttl", defaultValue = "10m")
+    Duration idleTtl = Duration.ofMinutes(10);
+
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    /**
+     * Whether a request to the host of {@code uri} may be made now. Once the
+     * open period is over, only the first caller gets {@code true} until its
+     * outcome is reported.
+     */
+    public boolean allow(URI uri) {
+        long now = System.nanoTime();
+        evictIdle(now);
+        Host host = hosts.get(HostThrottle.key(uri));
+        return host == null || host.allow(now, probeTimeout.toNanos());
+    }
+
+    /**
+     * Report that the host answered.
+     */
+    public void onSuccess(URI uri) {
+        boolean[] wasOpen = new boolean[1];
+        // a host without failures is the same as no entry
+        hosts.computeIfPresent(HostThrottle.key(uri), (k, host) -> {
+            wasOpen[0] = host.isOpen();
+            return null;
+        });
+        if (wasOpen[0]) {
+            logger.info("Host [{}] is reachable again", HostThrottle.key(uri));
+        }
+    }
+
+    /**
+     * Report that a request to the host failed.
+     */
+    public void onFailure(URI uri) {
+        String key = HostThrottle.key(uri);
+        boolean[] opened = new boolean[1];
+        hosts.compute(key, (k, h) -> {
+            Host host = h == null ? new Host() : h;
+            opened[0] = host.fail(System.nanoTime(), failureThreshold, openFor.toNanos());
+            return host;
+        });
+        if (opened[0]) {
+            logger.warn("Host [{}] keeps failing; skipping its feeds for {}", key, openFor);
+        }
+    }
+
+    /**
+     * Report that a request {@link #allow(URI)} let through ended without an
+     * outcome for the host, e.g. because the refresh was cancelled. Releases
+     * the probe, if it was one, so the next feed of the host can probe.
+     * Harmless after {@link #onSuccess(URI)} or {@link #onFailure(URI)}.
+     */
+    public void onAbandoned(URI uri) {
+        Host host = hosts.get(HostThrottle.key(uri));
+        if (host != null) {
+            host.abandon();
+        }
+    }
+
+    /**
+     * Forget hosts without requests for {@code idleTtl}: their failure
+     * count is stale, and an open circuit nobody probed has no feeds left.
+     * Runs at most once per TTL.
+     */
+    private void evictIdle(long now) {
+        long idleNanos = idleTtl.toNanos();
+        long last = lastEviction.get();
+        if (now - last < idleNanos || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        for (String key : hosts.keySet()) {
+            hosts.computeIfPresent(key, (k, host) -> host.idleFor(now) >= idleNanos ? null : host);
+        }
+    }
+
+    int hostCount() { // package-private for tests
+        return hosts.size();
+    }
+
+    private static final class Host {
+        int failures;
+        boolean open;
+        long openUntil; // System.nanoTime()
+        boolean probing;
+        long probeStart; // System.nanoTime()
+        long lastFailure = System.nanoTime();
+
+        synchronized boolean allow(long now, long probeTimeoutNanos) {
+            if (!open) {
+                return true;
+            }
+            if (now - openUntil < 0 || (probing && now - probeStart < probeTimeoutNanos)) {
+                return false;
+            }
+            probing = true;
+            probeStart = now;
+            return true;
+        }
+
+        synchronized boolean isOpen() {
+            return open;
+        }
+
+        synchronized void abandon() {
+            probing = false;
+        }
+
+        /**
+         * How long the host has been idle: since its probe started, the end
+         * of its open period, or its last failure.
+         */
+        synchronized long idleFor(long now) {
+            return now - (probing ? probeStart : open ? openUntil : lastFailure);
+        }
+
+        /**
+         * @return whether the circuit was opened by this failure
+         */
+        synchronized boolean fail(long now, int threshold, long openForNanos) {
+            failures++;
+            lastFailure = now;
+            if (probing || (!open && failures >= threshold)) {
+                boolean opened = !open;
+                open = true;
+                openUntil = now + openForNanos;
+                probing = false;
+                return opened;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de._0x2b.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-host politeness limits for outgoing feed requests.
+ * <p>
+ * The global {@code refresh.concurrency} limit says nothing about how the
+ * requests are spread: after a large OPML import most of them may target
+ * the same server. Every host therefore gets its own concurrency limit and
+ * a minimum spacing between request starts. Hosts are keyed on the
+ * lower-cased host name of the feed URL.
+ * <p>
+ * A host nobody has requested for {@code refresh.host.idle-ttl} is
+ * forgotten, so hosts that were only checked or subscribed once don't pile
+ * up. The TTL must be longer than {@code refresh.host.min-spacing}, or a
+ * forgotten host could be requested again too early.
+ */
+@ApplicationScoped
+public class HostThrottle {
+
+    @ConfigProperty(name = "refresh.host.concurrency", defaultValue = "2")
+    int concurrency = 2;
+
+    @ConfigProperty(name = "refresh.host.min-spacing", defaultValue = "1s")
+    Duration minSpacing = Duration.ofSeconds(1);
+
+    @ConfigProperty(name = "refresh.host.idle-ttl", defaultValue = "10m")
+    Duration idleTtl = Duration.ofMinutes(10);
+
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    /**
+     * Block until a request to the host of {@code uri} may start.
+     *
+     * @param uri the URI about to be fetched
+     * @return a permit that must be closed once the request is done
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit acquire(URI uri) throws InterruptedException {
+        evictIdle(System.nanoTime());
+        String key = key(uri);
+        Host host = hosts.compute(key, (k, h) -> {
+            Host used = h == null ? new Host(concurrency) : h;
+            used.users++;
+            return used;
+        });
+        try {
+            host.permits.acquire();
+        } catch (InterruptedException e) {
+            leave(key);
+            throw e;
+        }
+        try {
+            long waitNanos = host.reserveStart(minSpacing.toNanos());
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        } catch (InterruptedException e) {
+            host.permits.release();
+            leave(key);
+            throw e;
+        }
+        return () -> {
+            host.permits.release();
+            leave(key);
+        };
+    }
+
+    private void leave(String key) {
+        hosts.computeIfPresent(key, (k, h) -> {
+            h.users--;
+            return h;
+        });
+    }
+
+    /**
+     * Forget hosts that have no caller and whose last request started more
+     * than {@code idleTtl} ago. Runs at most once per TTL.
+     */
+    private void evictIdle(long now) {
+        long idleNanos = idleTtl.toNanos();
+        long last = lastEviction.get();
+        if (now - last < idleNanos || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        for (String key : hosts.keySet()) {
+            hosts.computeIfPresent(key, (k, h) -> h.users == 0 && h.idleFor(now) >= idleNanos ? null : h);
+        }
+    }
+
+    int hostCount() { // package-private for tests
+        return hosts.size();
+    }
+
+    static String key(URI uri) {
+        String host = uri == null ? null : uri.getHost();
+        return host == null ? "" : host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Held while a request to a host is in flight.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Host {
+        final Semaphore permits;
+        long nextStart = System.nanoTime();
+        // callers holding or waiting for a permit; only changed inside a
+        // compute of the hosts map, so eviction can't race with acquire
+        int users;
+
+        Host(int concurrency) {
+            this.permits = new Semaphore(concurrency);
+        }
+
+        /**
+         * Reserve the next start slot and return how long the caller has to
+         * wait for it. Slots are handed out in order, so concurrent callers
+         * are spaced out instead of all waking at the same instant.
+         */
+        synchronized long reserveStart(long spacingNanos) {
+            long now = System.nanoTime();
+            long start = Math.max(now, nextStart);
+            nextStart = start + spacingNanos;
+            return start - now;
+        }
+
+        synchronized long idleFor(long now) {
+            return now - nextStart;
+        }
+    }
+}
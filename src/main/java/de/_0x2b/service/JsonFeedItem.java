@@ -0,0 +1,17 @@
+package de._0x2b.service;
+
+import java.util.List;
+
+/**
+ * An item of a JSON Feed, with the fields {@link ArticleMapper} uses. Text
+ * fields the item does not have are {@code null}; the dates are kept as
+ * written, RFC 3339.
+ *
+ * @param images the item's {@code image}, {@code banner_image} and the URLs
+ *               of its image attachments, in that order
+ * @param authors names from {@code authors} (1.1) or {@code author} (1.0)
+ */
+public record JsonFeedItem(String id, String url, String externalUrl, String title, String summary,
+        String contentHtml, String contentText, String datePublished, String dateModified, List<String> authors,
+        List<String> tags, List<String> images) {
+}
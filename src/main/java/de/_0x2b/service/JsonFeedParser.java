@@ -0,0 +1,188 @@
+package de._0x2b.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+/**
+ * Reads JSON Feed documents (https://jsonfeed.org, versions 1 and 1.1).
+ * <p>
+ * The document is read with Jackson's streaming parser. Only one item at a
+ * time is turned into a tree, and, like {@link StreamingMediaRssParser},
+ * reading ends as soon as the consumer has seen enough.
+ */
+@ApplicationScoped
+public class JsonFeedParser {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // how much of a body is looked at to tell a JSON Feed from other content
+    private static final int SNIFF_LENGTH = 512;
+
+    /**
+     * Title, home page and icon of a JSON Feed.
+     *
+     * @param title       {@code title}, {@code null} if missing
+     * @param homePageUrl {@code home_page_url}, {@code null} if missing
+     * @param iconUrl     {@code favicon}, or else {@code icon}; {@code null}
+     *                    if the feed has neither
+     */
+    public record Channel(String title, String homePageUrl, String iconUrl) {
+    }
+
+    /**
+     * Whether a response is a JSON Feed: by its content type
+     * {@code application/feed+json}, or, for generic JSON types and missing
+     * content types, by the version URL near the start of the body.
+     *
+     * @param contentType   the {@code Content-Type} header, may be null
+     * @param startOfBody   the beginning of the body
+     */
+    public static boolean isJsonFeed(String contentType, String startOfBody) {
+        if (contentType != null) {
+            String type = contentType.toLowerCase(Locale.ROOT);
+            if (type.contains("application/feed+json")) {
+                return true;
+            }
+            if (type.contains("xml") || type.contains("html")) {
+                return false;
+            }
+        }
+        String start = startOfBody.length() > SNIFF_LENGTH ? startOfBody.substring(0, SNIFF_LENGTH) : startOfBody;
+        start = start.replace("\uFEFF", "").stripLeading();
+        return start.startsWith("{") && start.contains("jsonfeed.org/version");
+    }
+
+    /**
+     * {@link #isJsonFeed(String, String)} for a body as bytes.
+     */
+    public static boolean isJsonFeed(String contentType, byte[] body) {
+        return isJsonFeed(contentType, new String(body, 0, Math.min(body.length, SNIFF_LENGTH),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hand the items of a JSON Feed to {@code consumer} in document order,
+     * until it returns {@code false} or the document ends.
+     *
+     * @param consumer receives each item; returns whether to go on
+     * @throws IllegalArgumentException if the document is not a JSON object
+     * @throws UncheckedIOException     if the document is not valid JSON
+     */
+    public void parse(InputStream inputStream, Predicate<JsonFeedItem> consumer) {
+        try (JsonParser parser = mapper.createParser(inputStream)) {
+            expectObject(parser);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"items".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    if (token != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    if (!consumer.test(toItem(mapper.readTree(parser)))) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON Feed", e);
+        }
+    }
+
+    /**
+     * Read the title, home page and icon of a JSON Feed, skipping its items.
+     *
+     * @throws IllegalArgumentException if the document is not a JSON object
+     * @throws UncheckedIOException     if the document is not valid JSON
+     */
+    public Channel channel(InputStream inputStream) {
+        String title = null;
+        String homePageUrl = null;
+        String favicon = null;
+        String icon = null;
+        try (JsonParser parser = mapper.createParser(inputStream)) {
+            expectObject(parser);
+            while ((title == null || homePageUrl == null || favicon == null)
+                    && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value != JsonToken.VALUE_STRING) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "title" -> title = parser.getText();
+                    case "home_page_url" -> homePageUrl = parser.getText();
+                    case "favicon" -> favicon = parser.getText();
+                    case "icon" -> icon = parser.getText();
+                    default -> {
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid JSON Feed", e);
+        }
+        // the favicon is the small one, meant for lists of feeds
+        return new Channel(title, homePageUrl, favicon != null ? favicon : icon);
+    }
+
+    private static void expectObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalArgumentException("Not a JSON Feed: document is not a JSON object");
+        }
+    }
+
+    private static JsonFeedItem toItem(JsonNode item) {
+        List<String> authors = new ArrayList<>();
+        for (JsonNode author : item.path("authors")) {
+            addText(authors, author.path("name"));
+        }
+        if (authors.isEmpty()) {
+            addText(authors, item.path("author").path("name"));
+        }
+        List<String> tags = new ArrayList<>();
+        for (JsonNode tag : item.path("tags")) {
+            addText(tags, tag);
+        }
+        List<String> images = new ArrayList<>();
+        addText(images, item.path("image"));
+        addText(images, item.path("banner_image"));
+        for (JsonNode attachment : item.path("attachments")) {
+            if (text(attachment.path("mime_type")) instanceof String type && type.startsWith("image/")) {
+                addText(images, attachment.path("url"));
+            }
+        }
+        return new JsonFeedItem(text(item.path("id")), text(item.path("url")), text(item.path("external_url")),
+                text(item.path("title")), text(item.path("summary")), text(item.path("content_html")),
+                text(item.path("content_text")), text(item.path("date_published")),
+                text(item.path("date_modified")), authors, tags, images);
+    }
+
+    // ids may be numbers in the wild; anything else counts as missing
+    private static String text(JsonNode node) {
+        return node.isTextual() || node.isNumber() ? node.asText() : null;
+    }
+
+    private static void addText(List<String> values, JsonNode node) {
+        String value = text(node);
+        if (value != null && !value.isBlank()) {
+            values.add(value);
+        }
+    }
+}
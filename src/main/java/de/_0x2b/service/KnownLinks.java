@@ -0,0 +1,201 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.Article;
+import de._0x2b.repository.ArticleRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-feed set of article links known to be stored.
+ * <p>
+ * Most items of a feed document were already there on the previous refresh.
+ * Instead of sending all of them to the database just to have the unique
+ * index on {@code article.link} reject them, refreshes drop the items whose
+ * link is known and only write the rest.
+ * <p>
+ * Links are kept as sorted 64-bit hashes, so a feed costs 8 bytes per item.
+ * A feed's set is loaded from the {@code article} table on its first refresh
+ * and afterwards replaced with the links of each successfully stored
+ * document, which keeps it at the size of the feed document instead of the
+ * feed's whole history. A link that is not in the set is simply written and
+ * left to the database; a link in the set is guaranteed to be stored, so no
+ * new article is ever dropped (short of a 64-bit hash collision within one
+ * feed).
+ * <p>
+ * The newest publication date of each feed's stored articles is kept as
+ * well, so a refresh can stop reading a document at the items that are
+ * older (see {@link EarlyStop}). It is only learnt from refreshes, so the
+ * first refresh of a feed after a restart reads the whole document. For the
+ * same reason the publication dates of each feed's document are kept: a
+ * document left early lacks the dates of its older items, which the refresh
+ * schedule needs (see {@link #published(int, List, boolean, Instant)}).
+ */
+@ApplicationScoped
+public class KnownLinks {
+    private static final Logger logger = LoggerFactory.getLogger(KnownLinks.class);
+
+    @Inject
+    ArticleRepository articleRepository;
+
+    private final ConcurrentHashMap<Integer, long[]> known = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Instant> newest = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Dates> dates = new ConcurrentHashMap<>();
+
+    /**
+     * Publication dates of a feed document.
+     *
+     * @param millis epoch milliseconds of its dated items, in document order
+     * @param items  number of items the document had when last read to the
+     *               end
+     */
+    private record Dates(long[] millis, int items) {
+    }
+
+    /**
+     * Drop the articles whose link is already stored.
+     *
+     * @param feedId   the feed the articles belong to
+     * @param articles the articles of the current feed document
+     * @return the articles that may be new
+     */
+    public List<Article> filterNew(int feedId, List<Article> articles) {
+        long[] hashes = known.get(feedId);
+        if (hashes == null) {
+            // Loaded outside the map: a compute would hold a bin lock of the
+            // map, and with it other feeds, for the whole query.
+            try {
+                hashes = load(feedId);
+            } catch (DataAccessException e) {
+                // Not fatal: the database still rejects duplicates.
+                logger.warn("Loading known links of feed [{}] failed", feedId, e);
+                return articles;
+            }
+            // a concurrent remember() has newer links than the query
+            long[] current = known.putIfAbsent(feedId, hashes);
+            if (current != null) {
+                hashes = current;
+            }
+        }
+        List<Article> fresh = new ArrayList<>(articles.size());
+        for (Article article : articles) {
+            if (article.getLink() == null || Arrays.binarySearch(hashes, hash(article.getLink())) < 0) {
+                fresh.add(article);
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Replace the known links of a feed after its document has been stored.
+     *
+     * @param feedId    the feed
+     * @param articles  all articles of the stored document, including the
+     *                  ones {@link #filterNew(int, List)} dropped
+     * @param published newest publication date in the stored document,
+     *                  {@code null} if it has no dated items
+     */
+    public void remember(int feedId, List<Article> articles, Instant published) {
+        known.put(feedId, toSortedHashes(articles.stream().map(Article::getLink).toList()));
+        if (published != null) {
+            newest.merge(feedId, published, (a, b) -> a.isAfter(b) ? a : b);
+        }
+    }
+
+    /**
+     * The publication dates of a feed's whole document, for
+     * {@link RefreshSchedule#afterFetch}, and remember them for the next
+     * refresh.
+     * <p>
+     * A document read to the end has all its dates. One that
+     * {@link EarlyStop} left early lacks those of the items after the stop,
+     * which are older than the last item read and were read by an earlier
+     * refresh: their remembered dates are added, up to the number of items
+     * the document had when it was last read to the end. The oldest ones
+     * fall out of a feed's document as new ones come in.
+     *
+     * @param feedId       the feed
+     * @param read         publication dates of the items read, in document
+     *                     order; {@code null} for items without one
+     * @param stoppedEarly whether the rest of the document was left unread
+     * @param now          when the refresh started; dates at or after it are
+     *                     the mapper's stamp on undated items and are not
+     *                     remembered
+     * @return publication dates of the whole document
+     */
+    public List<Instant> published(int feedId, List<Instant> read, boolean stoppedEarly, Instant now) {
+        var document = new ArrayList<Instant>(read.size());
+        Instant last = null;
+        for (Instant published : read) {
+            if (published != null && published.isBefore(now)) {
+                document.add(published);
+                last = published;
+            }
+        }
+        Dates previous = dates.get(feedId);
+        int items = read.size();
+        if (stoppedEarly && previous != null) {
+            items = Math.max(items, previous.items());
+            for (long millis : previous.millis()) {
+                if (document.size() >= items) {
+                    break;
+                }
+                Instant published = Instant.ofEpochMilli(millis);
+                if (last == null || published.isBefore(last)) {
+                    document.add(published);
+                }
+            }
+        }
+        dates.put(feedId, new Dates(document.stream().mapToLong(Instant::toEpochMilli).toArray(), items));
+        return document;
+    }
+
+    /**
+     * @return the newest publication date of a feed's stored articles seen
+     *         since the start, {@code null} if there is none yet
+     */
+    public Instant newestPublished(int feedId) {
+        return newest.get(feedId);
+    }
+
+    /**
+     * Forget a feed, e.g. because it and its articles were deleted.
+     */
+    public void forget(int feedId) {
+        known.remove(feedId);
+        newest.remove(feedId);
+        dates.remove(feedId);
+    }
+
+    private long[] load(int feedId) {
+        return toSortedHashes(articleRepository.findLinksByFeed(feedId));
+    }
+
+    private static long[] toSortedHashes(Collection<String> links) {
+        return links.stream().filter(Objects::nonNull).mapToLong(KnownLinks::hash).sorted().distinct().toArray();
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units of the link.
+     */
+    static long hash(String link) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < link.length(); i++) {
+            char c = link.charAt(i);
+            h = (h ^ (c & 0xff)) * 0x100000001b3L;
+            h = (h ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return h;
+    }
+}
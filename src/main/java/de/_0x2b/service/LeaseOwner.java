@@ -0,0 +1,27 @@
+package de._0x2b.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The name under which this node leases feeds, see
+ * {@link de._0x2b.repository.FeedRepository#claimDue}. Every replica needs
+ * its own; without {@code refresh.node-id} each process picks a random one.
+ */
+@ApplicationScoped
+public class LeaseOwner {
+
+    @ConfigProperty(name = "refresh.node-id")
+    Optional<String> nodeId = Optional.empty();
+
+    // lease owner when refresh.node-id is not set; unique per process
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public String get() {
+        return nodeId.orElse(instanceId);
+    }
+}
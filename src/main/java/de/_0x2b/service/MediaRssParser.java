@@ -4,7 +4,24 @@ import com.apptasticsoftware.rssreader.module.mediarss.MediaRssItem;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface MediaRssParser {
     List<MediaRssItem> parse(InputStream inputStream);
-}
\ No newline at end of file
+
+    /**
+     * Hand the items of a feed document to {@code consumer} in document
+     * order, until it returns {@code false} or the document ends.
+     * Implementations that can should read no further than that; this
+     * default parses the whole document first.
+     *
+     * @param consumer receives each item; returns whether to go on
+     */
+    default void parse(InputStream inputStream, Predicate<MediaRssItem> consumer) {
+        for (MediaRssItem item : parse(inputStream)) {
+            if (!consumer.test(item)) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de._0x2b.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Parse stage of the refresh pipeline.
+ * <p>
+ * Fetching a feed mostly waits on the network and runs on cheap virtual
+ * threads, many at once. Parsing and mapping the document is CPU work, so
+ * refresh threads hand it to {@link #submit(Supplier)} instead of doing it
+ * themselves. A fixed pool of platform threads, one per core unless
+ * {@code refresh.parse.threads} says otherwise, drains the bounded queue.
+ * However many feeds are fetched in parallel, no more documents are parsed
+ * at once than there are cores to parse them.
+ * <p>
+ * Each document is in memory as a whole until it has been parsed, so the
+ * queue is bounded twice: by {@code refresh.parse.queue-size} documents and
+ * by {@code refresh.parse.queue-bytes} of documents waiting for or being
+ * parsed. A document larger than that budget is parsed alone.
+ */
+@ApplicationScoped
+public class ParseStage {
+
+    // 0: one thread per available processor
+    @ConfigProperty(name = "refresh.parse.threads", defaultValue = "0")
+    int threads = 0;
+
+    @ConfigProperty(name = "refresh.parse.queue-size", defaultValue = "64")
+    int queueSize = 64;
+
+    @ConfigProperty(name = "refresh.parse.queue-bytes", defaultValue = "67108864")
+    long queueBytes = 64 * 1024 * 1024;
+
+    private BlockingQueue<ParseTask<?>> queue;
+    // one permit per byte of the documents queued or being parsed
+    private Semaphore bytes;
+    private int byteBudget;
+    private ExecutorService parsers;
+    // Completions run here so what follows the parse (filtering, queueing
+    // for the writer, ...) never holds up the parser threads.
+    private ExecutorService callbacks;
+
+    @PostConstruct
+    void start() {
+        int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        queue = new ArrayBlockingQueue<>(queueSize);
+        byteBudget = (int) Math.clamp(queueBytes, 1, Integer.MAX_VALUE);
+        // fair, so a large document is not starved by a stream of small ones
+        bytes = new Semaphore(byteBudget, true);
+        parsers = Executors.newFixedThreadPool(count, Thread.ofPlatform().name("feed-parser-", 0).factory());
+        callbacks = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < count; i++) {
+            parsers.execute(this::drain);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        parsers.shutdownNow();
+        callbacks.close();
+        ParseTask<?> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Parse stage stopped"));
+        }
+    }
+
+    /**
+     * Queue a parse. Blocks while the queue is full, which throttles the
+     * fetch stage to the speed of the parsers.
+     *
+     * @param size the size of the document in bytes, counted against
+     *             {@code refresh.parse.queue-bytes} until it is parsed
+     * @param task parses and maps one document
+     * @return completes with the result of the task, or exceptionally with
+     *         what it threw
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    public <T> CompletableFuture<T> submit(long size, Supplier<T> task) throws InterruptedException {
+        int permits = (int) Math.clamp(size, 0, byteBudget);
+        bytes.acquire(permits);
+        var parseTask = new ParseTask<>(task, new CompletableFuture<T>(), permits);
+        try {
+            queue.put(parseTask);
+        } catch (InterruptedException e) {
+            bytes.release(permits);
+            throw e;
+        }
+        return parseTask.result();
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var task = queue.take();
+                try {
+                    task.run(callbacks);
+                } finally {
+                    bytes.release(task.size());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    record ParseTask<T>(Supplier<T> task, CompletableFuture<T> result, int size) {
+
+        void run(Executor callbacks) {
+            T value;
+            try {
+                value = task.get();
+            } catch (Throwable e) {
+                // whatever the parse threw, its caller must not wait forever
+                complete(callbacks, () -> result.completeExceptionally(e));
+                // A hostile document must not take a parser thread with it: a
+                // stack overflow is over once the stack has unwound. Anything
+                // else the JVM throws leaves it in no state to keep parsing.
+                if (e instanceof VirtualMachineError error && !(e instanceof StackOverflowError)) {
+                    throw error;
+                }
+                return;
+            }
+            complete(callbacks, () -> result.complete(value));
+        }
+
+        private static void complete(Executor callbacks, Runnable completion) {
+            try {
+                callbacks.execute(completion);
+            } catch (RejectedExecutionException e) {
+                // the stage is stopping and no longer runs callbacks
+                completion.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Feed;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Recently probed URLs of the add-feed flow.
+ * <p>
+ * Adding a feed requests its URL twice in quick succession: once when the
+ * URL is checked ({@link FeedService#checkFeedUrl(String)}), and once more
+ * when the chosen feed is subscribed ({@link FeedService#create(Feed)}).
+ * Users also tend to check the same URL again and again while typing or
+ * picking a feed. The check keeps what it downloaded and found here for
+ * {@code feed.probe.cache.ttl}, so repeated checks and the subscription
+ * reuse it instead of fetching the URL again.
+ * <p>
+ * At most {@code feed.probe.cache.max-entries} URLs are kept, the oldest
+ * dropped first. Bodies larger than {@code feed.probe.cache.max-body-size}
+ * are not kept; only the feeds found in them are.
+ */
+@ApplicationScoped
+public class ProbeCache {
+    @ConfigProperty(name = "feed.probe.cache.ttl", defaultValue = "2m")
+    Duration ttl = Duration.ofMinutes(2);
+
+    @ConfigProperty(name = "feed.probe.cache.max-entries", defaultValue = "32")
+    int maxEntries = 32;
+
+    @ConfigProperty(name = "feed.probe.cache.max-body-size", defaultValue = "1048576")
+    int maxBodySize = 1048576;
+
+    // insertion order is expiry order, since every entry lives for ttl
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(); // guarded by this
+
+    /**
+     * What checking a URL returned.
+     *
+     * @param headers the response headers
+     * @param body    the response body, {@code null} if it was not kept
+     * @param feeds   the feeds found at the URL, see
+     *                {@link FeedService#checkFeedUrl(String)}
+     */
+    public record Probe(HttpHeaders headers, byte[] body, List<Feed> feeds) {
+    }
+
+    private record Entry(Probe probe, long expiresAt) { // expiresAt: System.nanoTime()
+    }
+
+    /**
+     * The probe of {@code url}, if it was checked within the TTL.
+     */
+    public synchronized Optional<Probe> get(String url) {
+        prune(System.nanoTime());
+        var entry = entries.get(url);
+        return entry == null ? Optional.empty() : Optional.of(entry.probe());
+    }
+
+    /**
+     * Keep the probe of {@code url}, replacing an older one.
+     */
+    public synchronized void put(String url, Probe probe) {
+        if (probe.body() != null && probe.body().length > maxBodySize) {
+            probe = new Probe(probe.headers(), null, probe.feeds());
+        }
+        long now = System.nanoTime();
+        prune(now);
+        entries.remove(url);
+        entries.put(url, new Entry(new Probe(probe.headers(), probe.body(), List.copyOf(probe.feeds())),
+                now + ttl.toNanos()));
+        Iterator<String> oldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private void prune(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && now - it.next().getValue().expiresAt() >= 0) {
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de._0x2b.service;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress and cancellation of one run of
+ * {@link FeedService#refresh(RefreshCycle)}.
+ * <p>
+ * Cancelling stops the cycle's virtual threads, which interrupts feeds
+ * waiting for permits or for a blocking response, and aborts its pending
+ * asynchronous requests. Feeds that were not refreshed get no outcome and
+ * stay due; articles of feeds that were already parsed are still stored.
+ */
+public class RefreshCycle {
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger newArticles = new AtomicInteger();
+    private final Set<CompletableFuture<?>> exchanges = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+    private ExecutorService executor; // guarded by this
+
+    public int total() {
+        return total.get();
+    }
+
+    public int done() {
+        return done.get();
+    }
+
+    public int failed() {
+        return failed.get();
+    }
+
+    public int newArticles() {
+        return newArticles.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stop the cycle; feeds that have not been refreshed yet are skipped.
+     */
+    public void cancel() {
+        ExecutorService running;
+        synchronized (this) {
+            cancelled = true;
+            running = executor;
+        }
+        if (running != null) {
+            running.shutdownNow();
+        }
+        exchanges.forEach(exchange -> exchange.cancel(true));
+    }
+
+    synchronized void start(int feeds, ExecutorService executor) {
+        total.set(feeds);
+        this.executor = executor;
+        if (cancelled) {
+            executor.shutdownNow();
+        }
+    }
+
+    void finished(FeedRefreshResult result) {
+        if (result.failed()) {
+            failed.incrementAndGet();
+        }
+        newArticles.addAndGet(result.newArticles());
+        done.incrementAndGet();
+    }
+
+    void track(CompletableFuture<?> exchange) {
+        exchanges.add(exchange);
+        if (cancelled) {
+            exchange.cancel(true);
+        }
+    }
+
+    void untrack(CompletableFuture<?> exchange) {
+        exchanges.remove(exchange);
+    }
+}
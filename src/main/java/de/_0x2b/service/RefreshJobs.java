@@ -0,0 +1,125 @@
+package de._0x2b.service;
+
+import de._0x2b.model.RefreshJobStatus;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Manual refreshes of all feeds, run in the background so the HTTP request
+ * that starts one returns right away.
+ * <p>
+ * Only one job runs at a time; starting another while it runs returns the
+ * running one. Finished jobs can be queried for
+ * {@code refresh.jobs.retention}.
+ */
+@ApplicationScoped
+public class RefreshJobs {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshJobs.class);
+
+    @Inject
+    FeedService feedService;
+
+    @ConfigProperty(name = "refresh.jobs.retention", defaultValue = "1h")
+    Duration retention = Duration.ofHours(1);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private Job running; // guarded by this
+
+    /**
+     * Start a refresh of all feeds, or return the one that is running.
+     */
+    public synchronized RefreshJobStatus start() {
+        if (running != null && running.finishedAt == null) {
+            return running.status();
+        }
+        prune();
+        var job = new Job(UUID.randomUUID().toString(), Instant.now());
+        jobs.put(job.id, job);
+        running = job;
+        CompletableFuture.runAsync(() -> feedService.refresh(job.cycle), executor)
+                .whenComplete((result, error) -> job.finish(error));
+        logger.info("Started refresh job {}", job.id);
+        return job.status();
+    }
+
+    public Optional<RefreshJobStatus> find(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::status);
+    }
+
+    /**
+     * Cancel a job; see {@link RefreshCycle#cancel()}. Cancelling a
+     * finished job changes nothing.
+     */
+    public Optional<RefreshJobStatus> cancel(String id) {
+        var job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.finishedAt == null) {
+            logger.info("Cancelling refresh job {}", id);
+            job.cycle.cancel();
+        }
+        return Optional.of(job.status());
+    }
+
+    @PreDestroy
+    void stop() {
+        jobs.values().forEach(job -> job.cycle.cancel());
+        executor.shutdownNow();
+    }
+
+    private void prune() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    private static final class Job {
+        final String id;
+        final Instant startedAt;
+        final RefreshCycle cycle = new RefreshCycle();
+        volatile Instant finishedAt;
+        volatile boolean failed;
+
+        Job(String id, Instant startedAt) {
+            this.id = id;
+            this.startedAt = startedAt;
+        }
+
+        void finish(Throwable error) {
+            if (error != null) {
+                failed = true;
+                logger.error("Refresh job {} failed", id, error);
+            }
+            finishedAt = Instant.now();
+        }
+
+        RefreshJobStatus status() {
+            Instant finished = finishedAt;
+            String state;
+            if (finished == null) {
+                state = cycle.isCancelled() ? "cancelling" : "running";
+            } else if (cycle.isCancelled()) {
+                state = "cancelled";
+            } else {
+                state = failed ? "failed" : "done";
+            }
+            return new RefreshJobStatus(id, state, cycle.total(), cycle.done(), cycle.failed(),
+                    cycle.newArticles(), startedAt, finished);
+        }
+    }
+}
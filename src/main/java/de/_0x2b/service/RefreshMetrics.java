@@ -0,0 +1,145 @@
+package de._0x2b.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters of the refresh pipeline, exposed on {@code /q/metrics}.
+ * <p>
+ * Every stage reports its duration with an {@code outcome} tag, so the time
+ * a cycle spends waiting for permits, on the network, parsing and in the
+ * database can be told apart when sizing {@code refresh.concurrency} and
+ * the JDBC pool. Durations are passed in nanoseconds from
+ * {@link System#nanoTime()}.
+ */
+@ApplicationScoped
+public class RefreshMetrics {
+
+    public static final String OK = "ok";
+    public static final String ERROR = "error";
+    public static final String INTERRUPTED = "interrupted";
+    public static final String STOPPED_EARLY = "stopped_early";
+    public static final String RETRIED = "retried";
+
+    @Inject
+    MeterRegistry registry;
+
+    /**
+     * A whole refresh cycle over a list of feeds.
+     *
+     * @param outcome {@link #OK}, or {@link #ERROR} if any feed's refresh
+     *                threw
+     */
+    public void cycle(String outcome, int feeds, long nanos) {
+        timer("feedbox.refresh.cycle", "Duration of a refresh cycle", outcome).record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("feedbox.refresh.cycle.feeds")
+                .description("Feeds refreshed per cycle")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(feeds);
+    }
+
+    /**
+     * Time a feed waited for a concurrency permit.
+     *
+     * @param permit  {@code host}, {@code fetch}, {@code in_flight},
+     *                {@code parse} or {@code subscribe}
+     * @param outcome {@link #OK}, or {@link #INTERRUPTED}
+     */
+    public void permitWait(String permit, String outcome, long nanos) {
+        Timer.builder("feedbox.refresh.permit.wait")
+                .description("Time spent waiting for a refresh permit")
+                .tag("permit", permit)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Request and download of one feed document.
+     *
+     * @param outcome e.g. {@link #OK}, {@code not_modified}, {@code unchanged},
+     *                {@code http_error}, {@code no_response}, {@code read_error},
+     *                {@code body_limit}
+     * @param bytes   size of the downloaded body
+     */
+    public void fetch(String outcome, long nanos, long bytes) {
+        timer("feedbox.refresh.fetch", "Request and download time of a feed", outcome)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("feedbox.refresh.fetch.bytes")
+                .description("Downloaded feed body size")
+                .baseUnit("bytes")
+                .tag("outcome", outcome)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * Parsing a feed document and mapping its items to articles.
+     *
+     * @param outcome         {@link #OK}, {@link #STOPPED_EARLY} if the
+     *                        older items were left unread, or {@link #ERROR}
+     * @param mappingFailures items skipped because they could not be mapped
+     */
+    public void parse(String outcome, long nanos, int mappingFailures) {
+        timer("feedbox.refresh.parse", "Parse and mapping time of a feed document", outcome)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (mappingFailures > 0) {
+            Counter.builder("feedbox.refresh.mapping.failures")
+                    .description("Feed items skipped because they could not be mapped")
+                    .register(registry)
+                    .increment(mappingFailures);
+        }
+    }
+
+    /**
+     * Articles of a feed document dropped before the insert because their
+     * link is known to be stored.
+     */
+    public void known(int rows) {
+        articles("known").increment(rows);
+    }
+
+    /**
+     * One insert of the article writer.
+     *
+     * @param outcome  {@link #OK}, {@link #ERROR}, or {@link #RETRIED} for a
+     *                 failed coalesced insert whose articles are inserted
+     *                 again per feed; those are counted by the retries only
+     * @param rows     articles sent to the database
+     * @param inserted rows actually inserted; the rest were ignored as
+     *                 duplicates
+     */
+    public void insert(String outcome, long nanos, int rows, int inserted) {
+        timer("feedbox.refresh.insert", "Duration of an article insert", outcome)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (OK.equals(outcome)) {
+            articles("inserted").increment(inserted);
+            articles("ignored").increment(rows - inserted);
+        } else if (ERROR.equals(outcome)) {
+            articles("failed").increment(rows);
+        }
+    }
+
+    private Counter articles(String result) {
+        return Counter.builder("feedbox.refresh.articles")
+                .description("Articles handled by the refresh, by result")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Timer timer(String name, String description, String outcome) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
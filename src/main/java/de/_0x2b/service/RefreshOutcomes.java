@@ -0,0 +1,121 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.RefreshOutcome;
+import de._0x2b.repository.FeedRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the outcomes of feed refreshes and writes them to the feed table
+ * in batches.
+ * <p>
+ * Instead of one single-row UPDATE per feed, outcomes are buffered and
+ * flushed with set-based updates (see
+ * {@link FeedRepository#markRefreshed(java.util.Collection, String)}) once
+ * {@code refresh.outcomes.flush-size} feeds are pending or the last flush
+ * is {@code refresh.outcomes.flush-interval} ago, and at the end of every
+ * refresh cycle.
+ * <p>
+ * Losing the buffer is harmless: a success is only recorded after the
+ * feed's articles are committed, so a feed whose outcome never reached the
+ * database is simply due again and refetched with its old validators; the
+ * articles it already stored are skipped by {@code ON CONFLICT}.
+ */
+@ApplicationScoped
+public class RefreshOutcomes {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshOutcomes.class);
+
+    @Inject
+    FeedRepository feedRepository;
+    @Inject
+    LeaseOwner leaseOwner;
+
+    @ConfigProperty(name = "refresh.outcomes.flush-size", defaultValue = "500")
+    int flushSize = 500;
+
+    @ConfigProperty(name = "refresh.outcomes.flush-interval", defaultValue = "10s")
+    Duration flushInterval = Duration.ofSeconds(10);
+
+    private final Object lock = new Object();
+    // serialises flushes so an older batch never overwrites a newer one
+    private final Object flushLock = new Object();
+    // keyed by feed id: a later outcome of the same feed replaces the pending one
+    private Map<Integer, RefreshOutcome> pending = new LinkedHashMap<>();
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * Record a successful refresh.
+     *
+     * @param at refresh timestamp, {@code null} for "now"
+     * @see RefreshOutcome#success(int, Instant, String, String, String, Duration)
+     */
+    public void success(int feedId, Instant at, String etag, String lastModified, String bodyHash,
+            Duration interval) {
+        record(RefreshOutcome.success(feedId, at != null ? at : Instant.now(), etag, lastModified, bodyHash,
+                interval));
+    }
+
+    /**
+     * Record a failed refresh.
+     *
+     * @see RefreshOutcome#error(int, Instant, String, Duration)
+     */
+    public void error(int feedId, String error, Duration retryAfter) {
+        record(RefreshOutcome.error(feedId, Instant.now(), error, retryAfter));
+    }
+
+    private void record(RefreshOutcome outcome) {
+        boolean due;
+        synchronized (lock) {
+            pending.put(outcome.feedId(), outcome);
+            due = pending.size() >= flushSize || System.nanoTime() - lastFlush >= flushInterval.toNanos();
+        }
+        if (due) {
+            flush();
+        }
+    }
+
+    /**
+     * Write all pending outcomes. If the update fails they are kept for the
+     * next flush, unless a newer outcome of the same feed arrived meanwhile.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<Integer, RefreshOutcome> batch;
+            synchronized (lock) {
+                lastFlush = System.nanoTime();
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+            }
+            try {
+                feedRepository.markRefreshed(batch.values(), leaseOwner.get());
+                logger.debug("Stored refresh outcomes of {} feed(s)", batch.size());
+            } catch (SQLException | DataAccessException e) {
+                logger.warn("Storing refresh outcomes of {} feed(s) failed", batch.size(), e);
+                synchronized (lock) {
+                    batch.forEach(pending::putIfAbsent);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        flush();
+    }
+}
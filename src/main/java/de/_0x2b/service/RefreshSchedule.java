@@ -0,0 +1,136 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Feed;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Computes when a feed is due for its next refresh.
+ * <p>
+ * The interval follows the publishing rate of the feed: the number of items
+ * published within {@link #window} is spread over the time they cover. A
+ * wire service with dozens of items per hour ends up at
+ * {@link #minInterval}, a blog that posted once last month at
+ * {@link #maxInterval}.
+ */
+@ApplicationScoped
+public class RefreshSchedule {
+
+    @ConfigProperty(name = "refresh.schedule.min-interval", defaultValue = "5m")
+    Duration minInterval = Duration.ofMinutes(5);
+
+    @ConfigProperty(name = "refresh.schedule.max-interval", defaultValue = "24h")
+    Duration maxInterval = Duration.ofHours(24);
+
+    @ConfigProperty(name = "refresh.schedule.window", defaultValue = "7d")
+    Duration window = Duration.ofDays(7);
+
+    @ConfigProperty(name = "refresh.schedule.push-interval", defaultValue = "24h")
+    Duration pushInterval = Duration.ofHours(24);
+
+    @ConfigProperty(name = "refresh.backoff.max", defaultValue = "7d")
+    Duration maxBackoff = Duration.ofDays(7);
+
+    @ConfigProperty(name = "refresh.backoff.jitter", defaultValue = "0.2")
+    double jitter = 0.2;
+
+    // uniform in [0, 1); replaced in tests
+    DoubleSupplier random = () -> ThreadLocalRandom.current().nextDouble();
+
+    /**
+     * Interval for a feed whose body was fetched and parsed.
+     *
+     * @param published publication dates of the items in the feed document
+     * @param now       the time the refresh started; dates at or after it are
+     *                  ignored because the mapper stamps undated items with
+     *                  the current time
+     * @return the time until the feed should be refreshed again
+     */
+    public Duration afterFetch(Collection<Instant> published, Instant now) {
+        Instant windowStart = now.minus(window);
+        int recent = 0;
+        Instant oldestRecent = null;
+        boolean olderItems = false;
+        for (Instant p : published) {
+            if (p == null || !p.isBefore(now)) {
+                continue;
+            }
+            if (p.isBefore(windowStart)) {
+                olderItems = true;
+                continue;
+            }
+            recent++;
+            if (oldestRecent == null || p.isBefore(oldestRecent)) {
+                oldestRecent = p;
+            }
+        }
+        if (recent == 0) {
+            return maxInterval;
+        }
+        // If the document reaches back past the window, the recent items are
+        // everything the feed published in it. Otherwise the document is
+        // truncated and only covers the time since its oldest item.
+        Duration span = olderItems ? window : Duration.between(oldestRecent, now);
+        return clamp(span.dividedBy(recent));
+    }
+
+    /**
+     * Interval for a feed that answered without new content. The previous
+     * interval is stretched so feeds that stopped publishing drift towards
+     * {@link #maxInterval} until new items show up.
+     */
+    public Duration afterUnchanged(Feed feed) {
+        Duration previous = feed.getRefreshInterval();
+        if (previous == null) {
+            return minInterval;
+        }
+        return clamp(previous.plus(previous.dividedBy(2)));
+    }
+
+    /**
+     * Interval for a feed whose updates a WebSub hub pushes. Polling is only
+     * a safety net for lost pushes then, so the feed is not polled more
+     * often than {@link #pushInterval}.
+     *
+     * @param interval the interval the feed would be polled at otherwise
+     */
+    public Duration whenPushed(Duration interval) {
+        return interval.compareTo(pushInterval) < 0 ? pushInterval : interval;
+    }
+
+    /**
+     * Delay before retrying a feed whose refresh failed. The delay starts at
+     * {@link #minInterval} and doubles with every further failure in a row,
+     * up to {@link #maxBackoff}. A random share of up to {@link #jitter} is
+     * added so feeds that failed together (e.g. on one dead host) do not all
+     * come back in the same cycle.
+     *
+     * @param feed the feed, with the failures <em>before</em> this one in
+     *             {@link Feed#getConsecutiveFailures()}
+     */
+    public Duration afterError(Feed feed) {
+        int failures = Math.clamp(feed.getConsecutiveFailures(), 0, 30);
+        Duration backoff = minInterval.multipliedBy(1L << failures);
+        if (backoff.compareTo(maxBackoff) > 0) {
+            backoff = maxBackoff;
+        }
+        return backoff.plusMillis((long) (backoff.toMillis() * jitter * random.getAsDouble()));
+    }
+
+    private Duration clamp(Duration interval) {
+        if (interval.compareTo(minInterval) < 0) {
+            return minInterval;
+        }
+        if (interval.compareTo(maxInterval) > 0) {
+            return maxInterval;
+        }
+        return interval;
+    }
+}
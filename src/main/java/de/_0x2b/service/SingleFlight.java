@@ -0,0 +1,50 @@
+package de._0x2b.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent runs of the same work: while a run for a key is in
+ * flight, further requests for that key attach to it and get its result
+ * instead of starting another one. Once the run is over, the next request
+ * starts a new one.
+ *
+ * @param <K> identifies the work, e.g. a feed id
+ * @param <V> result of the work
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Start the work for {@code key} unless it is already in flight.
+     *
+     * @param start starts the work; only called if nothing is in flight
+     * @return completes when the run that was started or attached to is
+     *         over, exceptionally if it failed
+     */
+    CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> start) {
+        var mine = new CompletableFuture<V>();
+        var running = flights.putIfAbsent(key, mine);
+        if (running != null) {
+            return running;
+        }
+        CompletableFuture<V> started;
+        try {
+            started = start.get();
+        } catch (RuntimeException | Error e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((result, error) -> {
+            // remove first: whoever sees the run completed may start the next
+            flights.remove(key, mine);
+            if (error != null) {
+                mine.completeExceptionally(error);
+            } else {
+                mine.complete(result);
+            }
+        });
+        return mine;
+    }
+}
@@ -0,0 +1,50 @@
+package de._0x2b.service;
+
+import com.apptasticsoftware.rssreader.module.mediarss.MediaRssItem;
+import com.apptasticsoftware.rssreader.module.mediarss.MediaRssReader;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Reads the items of a feed document one at a time.
+ * <p>
+ * {@link MediaRssReader} parses with StAX and produces its items lazily.
+ * Instead of collecting all of them into a list before any is mapped, each
+ * item is handed on as soon as it has been read, so the parsed items of the
+ * whole document are never held at once. When the consumer has seen enough,
+ * the reader is closed and the rest of the document is never parsed.
+ * <p>
+ * This saves parse work and item objects, not the document itself: the
+ * refresh reads the body completely first, to hash it and to look for a
+ * WebSub hub, and parses from that copy.
+ */
+@ApplicationScoped
+public class StreamingMediaRssParser implements MediaRssParser {
+
+    @Override
+    public List<MediaRssItem> parse(InputStream inputStream) {
+        List<MediaRssItem> items = new ArrayList<>();
+        parse(inputStream, items::add);
+        return items;
+    }
+
+    @Override
+    public void parse(InputStream inputStream, Predicate<MediaRssItem> consumer) {
+        // MediaRssReader is NOT thread-safe; closing the stream closes its
+        // XML reader
+        try (Stream<MediaRssItem> items = new MediaRssReader().read(inputStream)) {
+            Iterator<MediaRssItem> it = items.iterator();
+            while (it.hasNext()) {
+                if (!consumer.test(it.next())) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de._0x2b.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the WebSub hub and topic a feed advertises.
+ * <p>
+ * Both come from {@code Link} response headers or from {@code <link>}
+ * elements of the document with {@code rel="hub"} and {@code rel="self"}:
+ * {@code atom:link} in the channel of an RSS feed, {@code link} in an Atom
+ * feed. Only the head of the document is read, up to the first item or
+ * entry. Without a self link the topic is the URL the feed was fetched from.
+ */
+final class WebSubLinks {
+    private static final Logger logger = LoggerFactory.getLogger(WebSubLinks.class);
+
+    // <https://hub.example>; rel="hub", one link of a Link header
+    private static final Pattern LINK_HEADER = Pattern.compile("<([^>]*)>\\s*((?:;[^,<]*)*)");
+    private static final Pattern REL = Pattern.compile(";\\s*rel\\s*=\\s*(?:\"([^\"]*)\"|([^;\\s]*))",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final XMLInputFactory XML = xmlInputFactory();
+
+    /**
+     * @param hub   where to subscribe
+     * @param topic what to subscribe to
+     */
+    record Discovery(URI hub, URI topic) {
+    }
+
+    private WebSubLinks() {
+    }
+
+    /**
+     * @param headers  the response headers
+     * @param document the response body
+     * @param feedUrl  the URL the document was fetched from; relative links
+     *                 are resolved against it
+     * @return the hub and topic, empty if the feed advertises no hub
+     */
+    static Optional<Discovery> discover(HttpHeaders headers, byte[] document, URI feedUrl) {
+        URI hub = null;
+        URI self = null;
+        for (String value : headers.allValues("Link")) {
+            Matcher link = LINK_HEADER.matcher(value);
+            while (link.find()) {
+                Matcher rel = REL.matcher(link.group(2));
+                if (!rel.find()) {
+                    continue;
+                }
+                String rels = rel.group(1) != null ? rel.group(1) : rel.group(2);
+                if (hub == null && hasRel(rels, "hub")) {
+                    hub = resolve(feedUrl, link.group(1));
+                }
+                if (self == null && hasRel(rels, "self")) {
+                    self = resolve(feedUrl, link.group(1));
+                }
+            }
+        }
+        if (hub == null || self == null) {
+            var links = scanDocument(document, feedUrl);
+            hub = hub != null ? hub : links.hub();
+            self = self != null ? self : links.topic();
+        }
+        if (hub == null || !isHttp(hub)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Discovery(hub, self != null && isHttp(self) ? self : feedUrl));
+    }
+
+    /**
+     * @return the hub and self links in the head of the document, either may
+     *         be {@code null}
+     */
+    private static Discovery scanDocument(byte[] document, URI feedUrl) {
+        URI hub = null;
+        URI self = null;
+        XMLStreamReader reader = null;
+        try {
+            reader = XML.createXMLStreamReader(new ByteArrayInputStream(document));
+            while (reader.hasNext() && (hub == null || self == null)) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getLocalName();
+                if (name.equals("item") || name.equals("entry")) {
+                    break;
+                }
+                if (!name.equals("link")) {
+                    continue;
+                }
+                String rel = reader.getAttributeValue(null, "rel");
+                String href = reader.getAttributeValue(null, "href");
+                if (rel == null || href == null) {
+                    continue;
+                }
+                if (hub == null && hasRel(rel, "hub")) {
+                    hub = resolve(feedUrl, href);
+                }
+                if (self == null && hasRel(rel, "self")) {
+                    self = resolve(feedUrl, href);
+                }
+            }
+        } catch (XMLStreamException e) {
+            // the parser proper reports broken documents; keep what was found
+            logger.debug("Scanning feed [{}] for a WebSub hub failed", feedUrl, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Closing reader failed", e);
+                }
+            }
+        }
+        return new Discovery(hub, self);
+    }
+
+    private static boolean hasRel(String rels, String rel) {
+        for (String value : rels.trim().split("\\s+")) {
+            if (value.equalsIgnoreCase(rel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static URI resolve(URI base, String href) {
+        try {
+            return base.resolve(href.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isHttp(URI uri) {
+        String scheme = uri.getScheme();
+        return scheme != null && (scheme.toLowerCase(Locale.ROOT).equals("http")
+                || scheme.toLowerCase(Locale.ROOT).equals("https"));
+    }
+
+    private static XMLInputFactory xmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // feeds are untrusted: no DTDs, no external entities
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
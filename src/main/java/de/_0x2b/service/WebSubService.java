@@ -0,0 +1,356 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Feed;
+import de._0x2b.model.WebSubSubscription;
+import de._0x2b.repository.WebSubRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * WebSub (formerly PubSubHubbub) subscriptions.
+ * <p>
+ * Feeds that advertise a hub (see {@link WebSubLinks}) are subscribed at it
+ * when a refresh finds the hub. The hub verifies the subscription by calling
+ * {@code /api/websub/{feedId}} and from then on pushes the feed's updates
+ * there, signed with a secret only the hub and this service know. While the
+ * lease the hub granted runs, the feed is polled only as a safety net (see
+ * {@link RefreshSchedule#whenPushed(Duration)}); leases are renewed
+ * {@code websub.renew-before} ahead of their end. A request the hub does not
+ * verify within {@code websub.pending-timeout}, rejects or denies is sent
+ * again; the wait doubles with every attempt, up to
+ * {@code websub.max-retry-interval}.
+ * <p>
+ * Subscribing needs a callback URL the hub can reach, so nothing happens
+ * unless {@code websub.callback-url} is set. The callback cannot be
+ * authenticated, so it only accepts a verification or denial while a
+ * request to the hub is outstanding; anyone else could otherwise mark a
+ * subscription active or denied.
+ */
+@ApplicationScoped
+public class WebSubService {
+    private static final Logger logger = LoggerFactory.getLogger(WebSubService.class);
+    private static final SecureRandom random = new SecureRandom();
+
+    @Inject
+    HTTPSService httpsService;
+    @Inject
+    WebSubRepository webSubRepository;
+
+    // public base URL of this instance, e.g. https://feedbox.example.com
+    @ConfigProperty(name = "websub.callback-url")
+    Optional<String> callbackUrl = Optional.empty();
+
+    // lease asked for; hubs may grant a different one
+    @ConfigProperty(name = "websub.lease", defaultValue = "10d")
+    Duration lease = Duration.ofDays(10);
+
+    @ConfigProperty(name = "websub.renew-before", defaultValue = "1d")
+    Duration renewBefore = Duration.ofDays(1);
+
+    // longest lease a hub may grant; verifications with a longer one are refused
+    @ConfigProperty(name = "websub.max-lease", defaultValue = "365d")
+    Duration maxLease = Duration.ofDays(365);
+
+    // wait for the verification of a first request before it is sent again
+    @ConfigProperty(name = "websub.pending-timeout", defaultValue = "1h")
+    Duration pendingTimeout = Duration.ofHours(1);
+
+    @ConfigProperty(name = "websub.max-retry-interval", defaultValue = "7d")
+    Duration maxRetryInterval = Duration.ofDays(7);
+
+    // the subscriptions by feed id; loaded on first use, reloaded on renewal
+    private final Map<Integer, WebSubSubscription> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    // subscription requests are sent off the refresh threads
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Look for a hub in a freshly fetched feed document and subscribe to it,
+     * unless the feed is subscribed there already. The request is sent in
+     * the background.
+     *
+     * @param feed     the feed
+     * @param headers  headers of the response
+     * @param document the response body
+     */
+    public void discover(Feed feed, HttpHeaders headers, byte[] document) {
+        if (callbackUrl.isEmpty()) {
+            return;
+        }
+        var discovery = WebSubLinks.discover(headers, document, feed.getFeedUrl());
+        if (discovery.isEmpty()) {
+            return;
+        }
+        URI hub = discovery.get().hub();
+        URI topic = discovery.get().topic();
+        var known = subscriptions().get(feed.getId());
+        if (known != null && known.hub().equals(hub) && known.topic().equals(topic)) {
+            return;
+        }
+        logger.info("Feed [{}] advertises WebSub hub {}", feed.getFeedUrl(), hub);
+        executor.execute(() -> subscribe(feed.getId(), hub, topic));
+    }
+
+    /**
+     * Subscribe a feed at a hub with a new secret. If the hub does not take
+     * the request, it is sent again by {@link #renewDue()}.
+     */
+    void subscribe(int feedId, URI hub, URI topic) {
+        byte[] secret = new byte[32];
+        random.nextBytes(secret);
+        request(new WebSubSubscription(feedId, hub, topic, HexFormat.of().formatHex(secret),
+                WebSubSubscription.PENDING, null, 0, null), WebSubSubscription.PENDING);
+    }
+
+    /**
+     * Renew the leases that end within {@code websub.renew-before}, or have
+     * ended already, and send the requests again that the hub has not
+     * verified in time or has denied. Also picks up subscriptions other
+     * replicas made.
+     */
+    public void renewDue() {
+        if (callbackUrl.isEmpty()) {
+            return;
+        }
+        reload();
+        Instant now = Instant.now();
+        Instant renewBy = now.plus(renewBefore);
+        for (var subscription : subscriptions.values()) {
+            // both keep the secret: the hub may push with it until it has
+            // verified the new request
+            if (subscription.isRetryDue(now)) {
+                request(subscription, WebSubSubscription.RENEWING.equals(subscription.state())
+                        ? WebSubSubscription.RENEWING
+                        : WebSubSubscription.PENDING);
+            } else if (WebSubSubscription.ACTIVE.equals(subscription.state())
+                    && subscription.leaseExpiresAt().isBefore(renewBy)) {
+                request(subscription, WebSubSubscription.RENEWING);
+            }
+        }
+    }
+
+    /**
+     * Store a subscription as requested, then request it from the hub. It
+     * is stored first because the hub may verify it before it answers.
+     *
+     * @param state {@code pending} for a new subscription, {@code renewing}
+     *              for a renewal of a verified one
+     */
+    private void request(WebSubSubscription subscription, String state) {
+        var requested = subscription.requested(state,
+                Instant.now().plus(retryDelay(subscription.attempts() + 1)));
+        webSubRepository.save(requested);
+        subscriptions.put(requested.feedId(), requested);
+        send(requested);
+    }
+
+    /**
+     * @return how long the hub has to verify the given attempt before it is
+     *         made again
+     */
+    Duration retryDelay(int attempt) {
+        Duration delay = pendingTimeout.multipliedBy(1L << Math.clamp(attempt - 1, 0, 30));
+        return delay.compareTo(maxRetryInterval) > 0 ? maxRetryInterval : delay;
+    }
+
+    /**
+     * Send a subscription request to the hub. The hub answers
+     * {@code 202 Accepted} and verifies it through the callback later.
+     */
+    private void send(WebSubSubscription subscription) {
+        var form = new LinkedHashMap<String, String>();
+        form.put("hub.mode", "subscribe");
+        form.put("hub.topic", subscription.topic().toString());
+        form.put("hub.callback", callback(subscription.feedId()));
+        form.put("hub.lease_seconds", Long.toString(lease.toSeconds()));
+        form.put("hub.secret", subscription.secret());
+        var response = httpsService.postForm(subscription.hub(), form);
+        if (response.isEmpty()) {
+            logger.warn("WebSub hub {} rejected subscription of feed {}, trying again at {}", subscription.hub(),
+                    subscription.feedId(), subscription.retryAt());
+            return;
+        }
+        logger.debug("Requested WebSub subscription of feed {} at {}", subscription.feedId(), subscription.hub());
+    }
+
+    /**
+     * Answer the hub's verification of a (un)subscription.
+     *
+     * @param feedId       the feed the callback belongs to
+     * @param mode         {@code hub.mode}
+     * @param topic        {@code hub.topic}
+     * @param challenge    {@code hub.challenge}, echoed to confirm
+     * @param leaseSeconds {@code hub.lease_seconds}, the lease granted
+     * @return the challenge if the request matches what was asked for, empty
+     *         to refuse it; a subscription is only confirmed while its
+     *         request is outstanding, and with a lease between one second
+     *         and {@code websub.max-lease}
+     */
+    public Optional<String> verify(int feedId, String mode, String topic, String challenge, Long leaseSeconds) {
+        if (challenge == null || topic == null) {
+            return Optional.empty();
+        }
+        var subscription = webSubRepository.findByFeed(feedId);
+        if ("unsubscribe".equals(mode)) {
+            // only confirm what nobody here asked for anymore
+            return subscription.isPresent() ? Optional.empty() : Optional.of(challenge);
+        }
+        if (!"subscribe".equals(mode) || subscription.isEmpty() || !subscription.get().isRequested()
+                || !subscription.get().topic().toString().equals(topic)) {
+            return Optional.empty();
+        }
+        if (leaseSeconds != null && (leaseSeconds <= 0 || leaseSeconds > maxLease.toSeconds())) {
+            logger.warn("Refusing WebSub verification of feed {} with lease of {}s", feedId, leaseSeconds);
+            return Optional.empty();
+        }
+        Duration granted = leaseSeconds != null ? Duration.ofSeconds(leaseSeconds) : lease;
+        var active = subscription.get().verified(Instant.now().plus(granted));
+        webSubRepository.save(active);
+        subscriptions.put(feedId, active);
+        logger.info("WebSub subscription of feed {} at {} active for {}", feedId, active.hub(), granted);
+        return Optional.of(challenge);
+    }
+
+    /**
+     * The hub refused a subscription. It is kept as denied until
+     * {@link #renewDue()} asks again, or the feed advertises another hub.
+     * Only taken while a request to the hub is outstanding, like a
+     * verification.
+     */
+    public void denied(int feedId, String topic, String reason) {
+        var subscription = webSubRepository.findByFeed(feedId);
+        if (subscription.isEmpty() || !subscription.get().isRequested()
+                || !subscription.get().topic().toString().equals(topic)) {
+            return;
+        }
+        logger.warn("WebSub hub {} denied subscription of feed {}: {}", subscription.get().hub(), feedId, reason);
+        var denied = subscription.get().withState(WebSubSubscription.DENIED, null);
+        webSubRepository.save(denied);
+        subscriptions.put(feedId, denied);
+    }
+
+    /**
+     * @return the subscription of a feed, as stored
+     */
+    public Optional<WebSubSubscription> find(int feedId) {
+        return webSubRepository.findByFeed(feedId);
+    }
+
+    /**
+     * Check the {@code X-Hub-Signature} of pushed content: the hex HMAC of
+     * the body, keyed with the subscription's secret, prefixed with the hash
+     * function, e.g. {@code sha256=...}.
+     *
+     * @return whether the content comes from the hub
+     */
+    public boolean verifySignature(WebSubSubscription subscription, String signature, byte[] body) {
+        if (signature == null) {
+            return false;
+        }
+        int separator = signature.indexOf('=');
+        if (separator < 0) {
+            return false;
+        }
+        String algorithm = switch (signature.substring(0, separator).trim().toLowerCase(Locale.ROOT)) {
+            case "sha1" -> "HmacSHA1";
+            case "sha256" -> "HmacSHA256";
+            case "sha384" -> "HmacSHA384";
+            case "sha512" -> "HmacSHA512";
+            default -> null;
+        };
+        if (algorithm == null) {
+            return false;
+        }
+        byte[] expected;
+        byte[] actual;
+        try {
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(subscription.secret().getBytes(StandardCharsets.UTF_8),
+                    algorithm));
+            expected = mac.doFinal(body);
+            actual = HexFormat.of().parseHex(signature.substring(separator + 1).trim().toLowerCase(Locale.ROOT));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+        // constant time, so the signature cannot be guessed byte by byte
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * @return whether a hub pushes the updates of a feed right now, so
+     *         polling it is only a safety net
+     */
+    public boolean isPushed(int feedId) {
+        if (callbackUrl.isEmpty()) {
+            return false;
+        }
+        var subscription = subscriptions().get(feedId);
+        return subscription != null && subscription.isActive(Instant.now());
+    }
+
+    /**
+     * Forget a feed, e.g. because it was deleted. Its row goes with the
+     * feed; the hub is told with a {@code 410 Gone} on its next push.
+     */
+    public void forget(int feedId) {
+        subscriptions.remove(feedId);
+    }
+
+    String callback(int feedId) {
+        String base = callbackUrl.orElseThrow();
+        return (base.endsWith("/") ? base.substring(0, base.length() - 1) : base) + "/api/websub/" + feedId;
+    }
+
+    private Map<Integer, WebSubSubscription> subscriptions() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    reload();
+                }
+            }
+        }
+        return subscriptions;
+    }
+
+    private synchronized void reload() {
+        var stored = new HashMap<Integer, WebSubSubscription>();
+        for (var subscription : webSubRepository.findAll()) {
+            stored.put(subscription.feedId(), subscription);
+        }
+        // replace in place: readers never see an empty map in between
+        subscriptions.keySet().retainAll(stored.keySet());
+        subscriptions.putAll(stored);
+        loaded = true;
+    }
+}
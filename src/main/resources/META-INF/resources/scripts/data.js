@@ -30,9 +30,28 @@ class DataService {
     return this._request(`./api/folder/${folderId}`, { method: "DELETE" });
   }
 
+  /**
+   * Store a new feed. It is subscribed in the background; see waitForFeed.
+   * @returns {Promise<number>} the id of the new feed
+   */
   async createFeed(feed) {
     return this._request("./api/feed", { method: "POST", body: feed });
   }
+  /**
+   * Wait until the subscription of a new feed has finished, or until
+   * timeout milliseconds have passed.
+   * @returns {Promise<Feed>} the feed, with status "active" or "failed";
+   *   still "pending" if the timeout passed first
+   */
+  async waitForFeed(feedId, { pollInterval = 1000, timeout = 120000 } = {}) {
+    const deadline = Date.now() + timeout;
+    let feed = await this._request(`./api/feed/${feedId}`);
+    while (feed && feed.status === "pending" && Date.now() < deadline) {
+      await new Promise((resolve) => setTimeout(resolve, pollInterval));
+      feed = await this._request(`./api/feed/${feedId}`);
+    }
+    return feed;
+  }
   async updateFeed(feed) {
     return this._request(`./api/feed/${feed.id}`, {
       method: "PUT",
@@ -46,8 +65,17 @@ class DataService {
   async checkFeed(feedUrl) {
     return this._request(`./api/feed/check?url=${encodeURIComponent(feedUrl)}`);
   }
-  async refreshFeeds() {
-    return this._request("./api/feed/refresh", { method: "POST" });
+  /**
+   * Start a refresh of all feeds and wait until it has finished.
+   * @returns {Promise<object>} the final job status
+   */
+  async refreshFeeds({ pollInterval = 1000 } = {}) {
+    let job = await this._request("./api/feed/refresh", { method: "POST" });
+    while (job && (job.state === "running" || job.state === "cancelling")) {
+      await new Promise((resolve) => setTimeout(resolve, pollInterval));
+      job = await this._request(`./api/feed/refresh/${job.id}`);
+    }
+    return job;
   }
 
   getArticles() {
@@ -140,6 +168,7 @@ export function normalizeFeed(feed) {
     url: feed.url ?? null,
     feedUrl: feed.feedUrl ?? "",
     lastError: feed.lastError ?? null,
+    status: feed.status ?? "active",
   };
 }
 
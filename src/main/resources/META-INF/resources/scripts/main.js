@@ -682,11 +682,31 @@ async function deleteFolder(folder) {
 
 async function createFeed(feed) {
   await withErrorModal(async () => {
-    await dataService.createFeed(feed);
+    const feedId = await dataService.createFeed(feed);
+    // shows the feed right away; name and icon follow once it is subscribed
     await refreshFolders({ background: false });
+    const created = await dataService.waitForFeed(feedId);
+    await refreshFolders({ background: false });
+    if (created?.status === "failed") {
+      const error = new Error(created.lastError || "Subscription failed");
+      error.subscriptionFailed = true;
+      throw error;
+    }
+    if (created?.status === "pending") {
+      const error = new Error("Subscription still pending");
+      error.subscriptionPending = true;
+      throw error;
+    }
   }, (error) => {
     const isDuplicate = error.status === 409 || error.cause?.status === 409;
-    return isDuplicate ? "This feed already exists." : "Error saving feed.";
+    if (isDuplicate) return "This feed already exists.";
+    if (error.subscriptionPending) {
+      return "The feed is still being subscribed; its articles appear once it is done: " +
+        escapeHtml(feed.feedUrl);
+    }
+    return error.subscriptionFailed
+      ? "Feed not reachable or not a valid RSS/Atom/JSON feed: " + escapeHtml(feed.feedUrl)
+      : "Error saving feed.";
   });
 }
 
@@ -26,6 +26,7 @@
  * @property {string|null} icon - URL of the feed icon, or null if not available
  * @property {string|null} lastRefreshedAt - ISO timestamp of last successful refresh
  * @property {string|null} lastError - Last refresh error message, or null if healthy
+ * @property {"pending"|"active"|"failed"} status - Subscription state; "pending" until the first download is done
  */
 
 /**
@@ -0,0 +1,10 @@
+-- V10__feed_subscription_status.sql
+-- Subscription state of a feed.
+--
+-- A new feed is stored as 'pending' right away and subscribed in the
+-- background: the first download of the feed yields its title, home page,
+-- first articles and icon. It then becomes 'active', or 'failed' with the
+-- reason in last_error if the URL did not turn out to be a feed. Only
+-- active feeds are claimed by the refresh job. Existing feeds are active.
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS status TEXT NOT NULL DEFAULT 'active';
@@ -0,0 +1,29 @@
+-- V11__article_search_vector.sql
+-- Full-text search over articles.
+--
+-- Background: the article search added one
+-- "(title ILIKE '%token%' OR description ILIKE '%token%')" clause per
+-- search token. A leading wildcard cannot use a b-tree index, so every
+-- search read the whole article table.
+--
+-- search_vector holds the stemmed words of title, description and
+-- content, weighted in that order for ts_rank. It is a generated column,
+-- so every insert path (JDBC batch and COPY merge) fills it without
+-- changes. The configuration 'english' must match the one
+-- ArticleRepository passes to plainto_tsquery, or the stems won't match.
+--
+-- Content is cut to its first 100000 characters: a tsvector is limited
+-- to 1 MB and an oversized article must not fail the whole insert.
+--
+-- Adding a stored generated column rewrites the table; on large
+-- databases expect this migration to take a while.
+
+ALTER TABLE article ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('english'::regconfig, coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english'::regconfig, coalesce(description, '')), 'B') ||
+        setweight(to_tsvector('english'::regconfig, left(coalesce(content, ''), 100000)), 'C')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS article_search_vector_idx
+    ON article USING GIN (search_vector);
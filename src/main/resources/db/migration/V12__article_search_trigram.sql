@@ -0,0 +1,22 @@
+-- V12__article_search_trigram.sql
+-- Trigram index for the substring search mode (article.search.mode=substring).
+--
+-- Background: that mode keeps the exact "every token is a case-insensitive
+-- substring" semantics users rely on for partial words, product codes and
+-- non-English text. A leading-wildcard ILIKE cannot use a b-tree index, but
+-- a pg_trgm GIN index can serve it.
+--
+-- The index is on title and description concatenated with a space. Search
+-- tokens never contain whitespace, so a token matches the concatenation
+-- exactly when it matches title or description. This gives one indexed
+-- predicate per token, and GIN evaluates all of them in a single index
+-- scan. The expression must stay identical to SEARCH_TEXT in
+-- ArticleRepository, or the planner won't use the index.
+--
+-- Tokens shorter than three characters have no trigram to look up; they
+-- still work, but read the whole index.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS article_search_trgm_idx
+    ON article USING GIN ((title || ' ' || description) gin_trgm_ops);
@@ -0,0 +1,23 @@
+-- V13__article_timeline_index.sql
+-- Index for the global article timeline.
+--
+-- Background: the only pagination index was article_feed_published_id_idx
+-- (feed_id, published, id). The "all articles" timeline has no feed_id
+-- predicate, so it could not use that index for an ordered scan and
+-- sorted every article with a date to return 25 of them.
+--
+-- The index is partial: the list queries never return articles without a
+-- published date (see ArticleRepository.buildFind), so those rows are
+-- left out. The column order and NULLS LAST match the per-feed index and
+-- the ORDER BY of the list queries. The planner only uses an index for
+-- ordering when these are identical.
+--
+-- No INCLUDE columns: the list queries first pick the ids of a page from
+-- (published, id) alone, which this index covers with its key columns.
+-- The text columns of the list (title, description, content) cannot be
+-- included, because a btree entry is limited to about 2.7 kB and a long
+-- description would make the insert fail.
+
+CREATE INDEX IF NOT EXISTS article_published_id_idx
+    ON article (published DESC NULLS LAST, id DESC)
+    WHERE published IS NOT NULL;
@@ -0,0 +1,10 @@
+-- V14__websub_subscription_retry.sql
+-- Retries of WebSub subscription requests.
+--
+-- A request the hub never verified, or denied, used to stay 'pending' or
+-- 'denied' for good. retry_at is now when such a request is sent again and
+-- attempts counts the requests since the last verification; the wait
+-- between them doubles with every attempt.
+
+ALTER TABLE websub_subscription ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE websub_subscription ADD COLUMN IF NOT EXISTS retry_at TIMESTAMPTZ;
@@ -0,0 +1,11 @@
+-- V4__feed_conditional_get.sql
+-- Store the HTTP cache validators of the last successful feed download.
+--
+-- The refresh job sends them back as If-None-Match / If-Modified-Since so
+-- servers that support conditional requests can answer with
+-- "304 Not Modified" instead of the full feed body. Both values are opaque
+-- strings copied verbatim from the response headers; NULL means the server
+-- did not send the header (or the feed has never been fetched).
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS etag          TEXT;
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS last_modified TEXT;
@@ -0,0 +1,16 @@
+-- V5__feed_refresh_schedule.sql
+-- Per-feed refresh scheduling.
+--
+-- Instead of refreshing every feed on every job tick, each feed carries the
+-- time it is next due and the interval that was used to compute it. The
+-- interval is derived from how often the feed publishes (see
+-- RefreshSchedule), so busy feeds are polled every few minutes and dormant
+-- ones about once a day. NULL next_refresh_at means "due now", which is
+-- what new and pre-existing feeds start with.
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS next_refresh_at  TIMESTAMPTZ;
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS refresh_interval INTEGER;
+
+-- The job asks for "next_refresh_at IS NULL OR next_refresh_at <= now()"
+-- on every tick.
+CREATE INDEX IF NOT EXISTS feed_next_refresh_at_idx ON feed (next_refresh_at);
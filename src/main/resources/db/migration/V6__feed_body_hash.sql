@@ -0,0 +1,9 @@
+-- V6__feed_body_hash.sql
+-- Hash of the last successfully ingested feed body.
+--
+-- Many servers send neither ETag nor Last-Modified but return a
+-- byte-identical body until the feed actually changes. The refresh job
+-- compares the SHA-256 of the downloaded body (hex encoded) with this value
+-- and skips parsing and the article insert when they match.
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS body_hash TEXT;
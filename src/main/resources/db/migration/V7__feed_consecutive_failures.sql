@@ -0,0 +1,8 @@
+-- V7__feed_consecutive_failures.sql
+-- Number of refreshes of a feed that failed in a row.
+--
+-- A feed that 404s or times out used to be retried on every cycle. The
+-- refresh job now backs off exponentially based on this counter; it is
+-- reset by the next successful refresh.
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS consecutive_failures INTEGER NOT NULL DEFAULT 0;
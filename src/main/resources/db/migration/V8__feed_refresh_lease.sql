@@ -0,0 +1,11 @@
+-- V8__feed_refresh_lease.sql
+-- Refresh leases for running several replicas.
+--
+-- A node claims a batch of due feeds by setting lease_owner and
+-- lease_expires_at (SELECT ... FOR UPDATE SKIP LOCKED, so concurrent
+-- claims never overlap). Storing the refresh outcome clears the lease. The
+-- lease of a node that died before that expires and the feed is claimed
+-- again by another node.
+
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS lease_owner      TEXT;
+ALTER TABLE feed ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMPTZ;
@@ -0,0 +1,17 @@
+-- V9__websub_subscription.sql
+-- WebSub (formerly PubSubHubbub) subscriptions of feeds that advertise a hub.
+--
+-- A row is written in state 'pending' when the subscription request is sent
+-- to the hub, and becomes 'active' once the hub has verified it through the
+-- callback; lease_expires_at is then the end of the lease the hub granted.
+-- 'denied' records a hub that refused the subscription. The secret signs
+-- the content the hub pushes and is never sent anywhere but to the hub.
+
+CREATE TABLE IF NOT EXISTS websub_subscription (
+    feed_id          INTEGER PRIMARY KEY REFERENCES feed(id) ON DELETE CASCADE,
+    hub              TEXT        NOT NULL,
+    topic            TEXT        NOT NULL,
+    secret           TEXT        NOT NULL,
+    state            TEXT        NOT NULL,
+    lease_expires_at TIMESTAMPTZ
+);
@@ -0,0 +1,115 @@
+package de._0x2b.repository;
+
+import de._0x2b.model.Article;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Rows/sec comparison of the JDBC batch and the COPY ingestion paths.
+ * <p>
+ * Needs a real (throwaway) PostgreSQL database, so it only runs when one is
+ * given explicitly; the schema is migrated with the regular Flyway scripts:
+ *
+ * <pre>
+ * mvn test -Dtest=ArticleIngestBenchmarkTest \
+ *     -Dfeedbox.benchmark.jdbc-url="jdbc:postgresql://localhost:5432/bench?user=user&amp;password=password" \
+ *     -Dfeedbox.benchmark.rows=50000
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "feedbox.benchmark.jdbc-url", matches = ".+")
+class ArticleIngestBenchmarkTest {
+
+    private static final int ROWS = Integer.getInteger("feedbox.benchmark.rows", 20_000);
+
+    private static PGSimpleDataSource dataSource;
+    private static int feedId;
+
+    private final ArticleRepository sut = new ArticleRepository();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setURL(System.getProperty("feedbox.benchmark.jdbc-url"));
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration")
+                .baselineOnMigrate(true).baselineVersion("0").load().migrate();
+
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO feed (name, url, feed_url) VALUES ('bench', 'https://bench.example', ?) RETURNING id")) {
+            stmt.setString(1, "https://bench.example/" + UUID.randomUUID());
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                feedId = rs.getInt(1);
+            }
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM feed WHERE id = ?")) {
+            stmt.setInt(1, feedId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    void compareBatchAndCopyIngestion() {
+        sut.dataSource = dataSource;
+
+        // warm up both paths (statement caches, JIT)
+        run("warm-up batch", articles("warmup-batch", 1_000), sut::batchInsert);
+        run("warm-up copy", articles("warmup-copy", 1_000), sut::copyInsert);
+
+        List<Article> batchRows = articles("batch", ROWS);
+        List<Article> copyRows = articles("copy", ROWS);
+
+        assertEquals(ROWS, run("batch, new rows", batchRows, sut::batchInsert));
+        assertEquals(ROWS, run("copy, new rows", copyRows, sut::copyInsert));
+
+        // the typical refresh: everything already stored
+        assertEquals(0, run("batch, duplicates", batchRows, sut::batchInsert));
+        assertEquals(0, run("copy, duplicates", copyRows, sut::copyInsert));
+    }
+
+    private static int run(String label, List<Article> articles,
+            Function<List<Article>, Map<Integer, Integer>> path) {
+        long start = System.nanoTime();
+        int inserted = path.apply(articles).values().stream().mapToInt(Integer::intValue).sum();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-20s %8d rows in %7.3fs = %10.0f rows/sec (%d inserted)%n",
+                label, articles.size(), seconds, articles.size() / seconds, inserted);
+        return inserted;
+    }
+
+    private static List<Article> articles(String prefix, int count) {
+        String run = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article(-1, feedId, "bench", "Title " + i,
+                    "A short description of article " + i + " with \"quotes\", commas and\nnewlines.",
+                    "<p>" + "Lorem ipsum dolor sit amet. ".repeat(20) + "</p>",
+                    "https://bench.example/" + prefix + "/" + run + "/" + i, now.minusSeconds(i),
+                    "Author " + (i % 10), "https://bench.example/img/" + i + ".png", "[news, bench]"));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,294 @@
+package de._0x2b.repository;
+
+import de._0x2b.model.Article;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.postgresql.ds.PGSimpleDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query plans of the article list queries.
+ * <p>
+ * Needs a real (throwaway) PostgreSQL database, like
+ * {@link ArticleIngestBenchmarkTest}, and only runs when one is given:
+ *
+ * <pre>
+ * mvn test -Dtest=ArticleQueryPlanTest \
+ *     -Dfeedbox.benchmark.jdbc-url="jdbc:postgresql://localhost:5432/bench?user=user&amp;password=password"
+ * </pre>
+ */
+@EnabledIfSystemProperty(named = "feedbox.benchmark.jdbc-url", matches = ".+")
+class ArticleQueryPlanTest {
+
+    private static final int ROWS = 20_000;
+    // a second feed of the folder, its articles half a second after each of
+    // the first feed's, so folder pages merge both
+    private static final int OTHER_ROWS = 2_000;
+    // far from the dates of other test data, so the feed's articles are not
+    // interleaved with those of other feeds
+    private static final Instant NEWEST = Instant.parse("2001-01-01T00:00:00Z");
+    private static final Pattern ARTICLE_SCAN = Pattern.compile(
+            "Index Only Scan using (article_published_id_idx|article_feed_published_id_idx) on article a\\S* "
+                    + "\\(actual rows=(\\d+)");
+
+    private static PGSimpleDataSource dataSource;
+    private static int folderId;
+    private static int feedId;
+    private static int otherFeedId;
+
+    private final ArticleRepository sut = new ArticleRepository();
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        dataSource = new PGSimpleDataSource();
+        dataSource.setURL(System.getProperty("feedbox.benchmark.jdbc-url"));
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration")
+                .baselineOnMigrate(true).baselineVersion("0").load().migrate();
+
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO folder (name) VALUES (?) RETURNING id")) {
+                stmt.setString(1, "plan-" + UUID.randomUUID());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    folderId = rs.getInt(1);
+                }
+            }
+            feedId = createFeed(conn);
+            otherFeedId = createFeed(conn);
+        }
+
+        var repository = new ArticleRepository();
+        repository.dataSource = dataSource;
+        repository.copyInsert(articles(feedId, ROWS, 0));
+        repository.copyInsert(articles(otherFeedId, OTHER_ROWS, 500));
+        // VACUUM sets the visibility map, which index-only scans rely on
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("VACUUM ANALYZE article");
+        }
+    }
+
+    private static int createFeed(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO feed (folder_id, name, url, feed_url) VALUES (?, 'plan', 'https://plan.example', ?) "
+                        + "RETURNING id")) {
+            stmt.setInt(1, folderId);
+            stmt.setString(2, "https://plan.example/" + UUID.randomUUID());
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        // cascades to the feed and its articles
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement("DELETE FROM folder WHERE id = ?")) {
+            stmt.setInt(1, folderId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @BeforeEach
+    void useDatabase() {
+        sut.dataSource = dataSource;
+    }
+
+    @Test
+    void substringSearch_usesTrigramIndex() throws SQLException {
+        for (String q : List.of("fb-1234", "rtikel 1999")) {
+            List<Object> params = new ArrayList<>();
+            String plan = explainWithoutSeqScan(sut.buildFind(null, null, null, null, false, q, false, params),
+                    params);
+
+            assertTrue(plan.contains("article_search_trgm_idx"), plan);
+            assertFalse(plan.contains("Seq Scan on article"), plan);
+        }
+    }
+
+    @Test
+    void substringSearch_matchesTokensAcrossTitleAndDescription() {
+        // "artikel" is only in the title, "fb-19999" only in the description
+        List<Article> found = sut.findByFeed(feedId, "ARTIKEL fb-19999");
+
+        assertEquals(List.of("Artikel 19999"), found.stream().map(Article::getTitle).toList());
+        assertTrue(sut.findByFeed(feedId, "19999fb").isEmpty());
+    }
+
+    @Test
+    void fullTextSearch_usesSearchVectorIndex() throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String plan = explainWithoutSeqScan(sut.buildFind(null, null, null, null, false, "1234", true, params),
+                params);
+
+        assertTrue(plan.contains("article_search_vector_idx"), plan);
+        assertFalse(plan.contains("Seq Scan on article"), plan);
+    }
+
+    @Test
+    void fullTextSearch_matchesQueriesWithoutWordsAsSubstrings() {
+        sut.searchMode = "fulltext";
+
+        assertTrue(sut.isFullText("artikel"));
+        // stop words only: plainto_tsquery is empty and would match nothing
+        assertFalse(sut.isFullText("the a"));
+        assertEquals(25, sut.findByFeed(feedId, "a").size());
+    }
+
+    @Test
+    void allArticles_scansTimelineIndexFromTheCursor() throws SQLException {
+        for (Cursor cursor : cursors()) {
+            List<Object> params = new ArrayList<>();
+            String sql = sut.buildFind(null, null, cursor.id(), cursor.date(), false, null, false, params);
+
+            assertBoundedIndexScan(sql, params, "article_published_id_idx");
+        }
+    }
+
+    @Test
+    void feed_scansFeedIndexFromTheCursor() throws SQLException {
+        for (Cursor cursor : cursors()) {
+            List<Object> params = new ArrayList<>();
+            String sql = sut.buildFind("f.id = ?", List.of(feedId), cursor.id(), cursor.date(), false, null, false,
+                    params);
+
+            assertBoundedIndexScan(sql, params, "article_feed_published_id_idx");
+        }
+    }
+
+    @Test
+    void folder_scansFeedIndexFromTheCursor() throws SQLException {
+        for (Cursor cursor : cursors()) {
+            List<Object> params = new ArrayList<>();
+            String sql = sut.buildFind("fo.id = ?", List.of(folderId), cursor.id(), cursor.date(), true, null, false,
+                    params);
+
+            assertBoundedIndexScan(sql, params, "article_feed_published_id_idx");
+        }
+    }
+
+    @Test
+    void pages_followEachOtherWithoutGapsOrDuplicates() {
+        List<Article> first = sut.findByFolder(folderId, null);
+        Article last = first.getLast();
+        List<Article> second = sut.findByFolder(folderId, last.getId(), last.getPublished().toString(), null);
+
+        // the pages of both feeds merged: 0, 0.5, 1, 1.5, ... seconds old
+        assertEquals(25, first.size());
+        assertEquals(NEWEST, first.getFirst().getPublished());
+        assertEquals(NEWEST.minusSeconds(12), last.getPublished());
+        assertEquals(NEWEST.minusMillis(12_500), second.getFirst().getPublished());
+        assertEquals(NEWEST.minusMillis(24_500), second.getLast().getPublished());
+        assertEquals(otherFeedId, second.getFirst().getFeedId());
+    }
+
+    private record Cursor(Long id, String date) {
+    }
+
+    /** No cursor (the first page), and the cursor of a page near the end of the feed. */
+    private static List<Cursor> cursors() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id, published FROM article WHERE feed_id = ? "
+                                + "ORDER BY published DESC, id DESC OFFSET ? LIMIT 1")) {
+            stmt.setInt(1, feedId);
+            stmt.setInt(2, ROWS - 50);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return List.of(new Cursor(null, null),
+                        new Cursor(rs.getLong(1), rs.getTimestamp(2).toInstant().toString()));
+            }
+        }
+    }
+
+    /**
+     * The page ids must come from an index-only scan of {@code index} that
+     * starts at the cursor: it returns at most a page per loop and filters
+     * nothing out.
+     */
+    private static void assertBoundedIndexScan(String sql, List<Object> params, String index) throws SQLException {
+        String plan = explain("EXPLAIN (ANALYZE, COSTS OFF, TIMING OFF) " + sql, params);
+
+        assertFalse(plan.contains("Seq Scan on article"), plan);
+        assertFalse(plan.contains("Bitmap Heap Scan on article"), plan);
+        Matcher scan = ARTICLE_SCAN.matcher(plan);
+        assertTrue(scan.find(), plan);
+        assertEquals(index, scan.group(1), plan);
+        assertTrue(Integer.parseInt(scan.group(2)) <= 25, plan);
+        String details = plan.substring(scan.end());
+        int nextNode = details.indexOf("->");
+        assertFalse((nextNode < 0 ? details : details.substring(0, nextNode)).contains("Rows Removed by Filter"),
+                plan);
+    }
+
+    /**
+     * The plan of {@code sql} with sequential scans disabled. The planner
+     * still picks a sequential scan when no index can serve the query, so
+     * this checks which index applies, independent of the table size.
+     */
+    private static String explainWithoutSeqScan(String sql, List<Object> params) throws SQLException {
+        return explain("EXPLAIN " + sql, params, "SET LOCAL enable_seqscan = off");
+    }
+
+    private static String explain(String explain, List<Object> params, String... settings) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String setting : settings) {
+                    stmt.execute(setting);
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(explain)) {
+                for (int i = 0; i < params.size(); i++) {
+                    if (params.get(i) instanceof Instant instant) {
+                        stmt.setTimestamp(i + 1, Timestamp.from(instant));
+                    } else {
+                        stmt.setObject(i + 1, params.get(i));
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                conn.rollback();
+            }
+        }
+    }
+
+    /** {@code count} articles, one per second back from {@code NEWEST - offsetMillis}. */
+    private static List<Article> articles(int feedId, int count, long offsetMillis) {
+        String run = UUID.randomUUID().toString();
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article(-1, feedId, "plan", "Artikel " + i, "Produkt FB-" + i + " im Test",
+                    "<p>content " + i + "</p>", "https://plan.example/" + run + "/" + i,
+                    NEWEST.minusSeconds(i).minusMillis(offsetMillis), "Author " + (i % 10), null, "[plan]"));
+        }
+        return articles;
+    }
+}
@@ -1,8 +1,15 @@
 package de._0x2b.repository;
 
+import de._0x2b.model.Article;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ArticleRepositoryTest {
 
@@ -38,4 +45,131 @@ class ArticleRepositoryTest {
     void escapeIlike_handlesEmptyToken() {
         assertEquals("", ArticleRepository.escapeIlike(""));
     }
+
+    @Test
+    void buildFind_fullText_matchesSearchVectorWithWholeQuery() {
+        ArticleRepository sut = new ArticleRepository();
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind("f.id = ?", List.of(3), null, null, false, " postgres index ", true, params);
+
+        assertTrue(sql.contains("a.search_vector @@ plainto_tsquery('english', ?)"), sql);
+        assertFalse(sql.contains("ILIKE"), sql);
+        assertTrue(sql.endsWith("ORDER BY a.published DESC NULLS LAST, a.id DESC"), sql);
+        assertEquals(List.of("postgres index", 3), params);
+    }
+
+    @Test
+    void buildFind_substringMode_addsOneEscapedIlikeClausePerToken() {
+        ArticleRepository sut = new ArticleRepository();
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind(null, null, null, null, false, "postgres 100%", false, params);
+
+        assertFalse(sql.contains("search_vector"), sql);
+        // the trigram-indexed expression of V12, one pattern per token
+        assertTrue(sql.contains(" AND (a.title || ' ' || a.description) ILIKE ? ESCAPE '\\' "), sql);
+        assertEquals(List.of("%postgres%", "%100\\%%"), params);
+    }
+
+    @Test
+    void isFullText_onlyInFullTextMode_andOnlyForAQuery() {
+        // no data source: neither case may ask the database
+        ArticleRepository sut = new ArticleRepository();
+
+        assertFalse(sut.isFullText("postgres"));
+        sut.searchMode = "fulltext";
+        assertFalse(sut.isFullText(" "));
+        assertFalse(sut.isFullText(null));
+    }
+
+    @Test
+    void isFullText_onlyForAQueryWithAWordThatIsNoStopWord() {
+        ArticleRepository sut = new ArticleRepository();
+        sut.searchMode = "fulltext";
+
+        assertTrue(sut.isFullText("postgres"));
+        assertTrue(sut.isFullText("The Index"));
+        assertTrue(sut.isFullText("1"));
+        assertTrue(sut.isFullText("naïve"));
+        // plainto_tsquery drops stop words and punctuation
+        assertFalse(sut.isFullText("the a"));
+        assertFalse(sut.isFullText("To be, or not to be?"));
+        assertFalse(sut.isFullText("don't"));
+        assertFalse(sut.isFullText("..."));
+    }
+
+    @Test
+    void buildFind_ranked_ordersByRank_andPagesFromTheCursorArticle() {
+        ArticleRepository sut = new ArticleRepository();
+        sut.searchRank = true;
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind(null, null, 42L, "2020-01-01T00:00:00Z", false, "postgres", true, params);
+
+        assertTrue(sql.contains("FROM article c WHERE c.id = ?"), sql);
+        assertTrue(sql.contains("ORDER BY ts_rank(a.search_vector, plainto_tsquery('english', ?)) DESC"), sql);
+        assertEquals(List.of("postgres", "postgres", "postgres", 42L, "postgres"), params);
+    }
+
+    @Test
+    void buildFind_withoutQuery_pagesByDateEvenWhenRanked() {
+        ArticleRepository sut = new ArticleRepository();
+        sut.searchRank = true;
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind(null, null, 42L, "2020-01-01T00:00:00Z", false, "", true, params);
+
+        assertFalse(sql.contains("ts_rank"), sql);
+        Instant cursor = Instant.parse("2020-01-01T00:00:00Z");
+        assertEquals(List.of(cursor, 42L), params);
+    }
+
+    @Test
+    void buildFind_allArticles_picksPageIdsWithoutFeedJoin() {
+        ArticleRepository sut = new ArticleRepository();
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind(null, null, 42L, "2020-01-01T00:00:00Z", false, null, false, params);
+
+        assertTrue(sql.contains("WHERE a.id IN (SELECT a.id FROM article a WHERE a.published IS NOT NULL "
+                + " AND (a.published, a.id) < (?, ?)  ORDER BY a.published DESC NULLS LAST, a.id DESC LIMIT 25)"),
+                sql);
+        assertEquals(List.of(Instant.parse("2020-01-01T00:00:00Z"), 42L), params);
+    }
+
+    @Test
+    void buildFind_folder_pagesEachFeed_andBindsFolderAfterFeedPage() {
+        ArticleRepository sut = new ArticleRepository();
+        List<Object> params = new ArrayList<>();
+
+        String sql = sut.buildFind("fo.id = ?", List.of(5), 42L, "2020-01-01T00:00:00Z", true, "rss", false, params);
+
+        assertTrue(sql.contains("JOIN folder fo on fo.id = f.folder_id  CROSS JOIN LATERAL ("), sql);
+        assertTrue(sql.contains(" AND a.feed_id = f.id "), sql);
+        assertTrue(sql.indexOf("fo.id = ?") > sql.indexOf("(a.published, a.id) < (?, ?)"), sql);
+        assertEquals(List.of("%rss%", Instant.parse("2020-01-01T00:00:00Z"), 42L, 5), params);
+    }
+
+    @Test
+    void appendCsvRow_quotesTextAndWritesNullAsEmptyField() {
+        Article a = new Article(-1, 7, "feed", "Title", "", "c", "https://example.com/a",
+                Instant.parse("2020-01-01T10:15:30Z"), "Jane", null, "[x]");
+
+        StringBuilder row = new StringBuilder();
+        ArticleRepository.appendCsvRow(row, a);
+
+        assertEquals("7,\"Title\",\"\",\"c\",\"https://example.com/a\",2020-01-01T10:15:30Z,\"Jane\",,\"[x]\"\n",
+                row.toString());
+    }
+
+    @Test
+    void appendCsvRow_doublesQuotesAndKeepsSeparatorsInsideQuotedFields() {
+        Article a = new Article(-1, 1, "feed", "say \"hi\", then\nleave", "d", "c", null, null, "", "", "");
+
+        StringBuilder row = new StringBuilder();
+        ArticleRepository.appendCsvRow(row, a);
+
+        assertEquals("1,\"say \"\"hi\"\", then\nleave\",\"d\",\"c\",,,\"\",\"\",\"\"\n", row.toString());
+    }
 }
@@ -113,4 +113,44 @@ class ArticleMapperTest {
 
         assertEquals("https://cdn.example/enclosure.png", a.getImageUrl());
     }
+
+    @Test
+    void toArticle_jsonFeedItem_mapsFieldsLikeRssItem() {
+        Feed feed = new Feed(10, 1, "FeedName", URI.create("https://example.com"),
+                URI.create("https://example.com/feed.json"));
+        var item = new JsonFeedItem("1", "https://example.com/a", null, "Title", "Summary", "<p>Html</p>", "Text",
+                "2020-01-01T01:00:00+01:00", null, List.of("Ann", "Bob"), List.of("cat1", "cat2"),
+                List.of("https://cdn.example/image.jpg", "https://cdn.example/banner.jpg"));
+
+        Article a = sut.toArticle(feed, item);
+
+        assertEquals(feed.getId(), a.getFeedId());
+        assertEquals(feed.getName(), a.getFeedName());
+        assertEquals("Title", a.getTitle());
+        assertEquals("Summary", a.getDescription());
+        assertEquals("<p>Html</p>", a.getContent());
+        assertEquals("https://example.com/a", a.getLink());
+        assertEquals("Ann, Bob", a.getAuthors());
+        assertEquals(Instant.parse("2020-01-01T00:00:00Z"), a.getPublished());
+        assertEquals("https://cdn.example/image.jpg", a.getImageUrl());
+        assertEquals("[cat1, cat2]", a.getCategories());
+    }
+
+    @Test
+    void toArticle_jsonFeedItem_fallsBackToTextContentExternalUrlAndModifiedDate() {
+        Feed feed = new Feed(10, 1, "FeedName", URI.create("https://example.com"),
+                URI.create("https://example.com/feed.json"));
+        var item = new JsonFeedItem("1", null, "https://elsewhere.example/b", null, null, null, "Text",
+                "yesterday", "2021-06-01T12:00:00Z", List.of(), List.of(), List.of());
+
+        Article a = sut.toArticle(feed, item);
+
+        assertEquals("", a.getTitle());
+        assertEquals("", a.getDescription());
+        assertEquals("Text", a.getContent());
+        assertEquals("https://elsewhere.example/b", a.getLink());
+        assertEquals("", a.getAuthors());
+        assertEquals("", a.getImageUrl());
+        assertEquals(Instant.parse("2021-06-01T12:00:00Z"), a.getPublished());
+    }
 }
@@ -0,0 +1,111 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.Article;
+import de._0x2b.repository.ArticleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArticleWriterTest {
+
+    @Mock
+    ArticleRepository articleRepository;
+    @Mock
+    RefreshMetrics refreshMetrics;
+
+    @InjectMocks
+    ArticleWriter sut;
+
+    @BeforeEach
+    void setUp() {
+        sut.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.stop();
+    }
+
+    @Test
+    void write_emptyList_completesWithoutInsert() throws Exception {
+        assertEquals(0, sut.write(List.of()).get(1, TimeUnit.SECONDS));
+
+        verifyNoInteractions(articleRepository);
+    }
+
+    @Test
+    void write_insertsAndCompletesWithInsertedRows() throws Exception {
+        List<Article> articles = articles(1, 3);
+        when(articleRepository.create(articles)).thenReturn(Map.of(1, 2));
+
+        assertEquals(2, sut.write(articles).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void flush_coalescesFeedsIntoOneInsert_andCreditsEachFeed() throws Exception {
+        when(articleRepository.create(anyList())).thenReturn(Map.of(1, 2));
+        var first = request(articles(1, 2));
+        var second = request(articles(2, 3));
+
+        sut.flush(List.of(first, second));
+
+        assertEquals(2, first.result().get(1, TimeUnit.SECONDS));
+        // nothing of feed 2 was new
+        assertEquals(0, second.result().get(1, TimeUnit.SECONDS));
+        verify(articleRepository).create(argThat(list -> list.size() == 5));
+    }
+
+    @Test
+    void flush_whenCoalescedInsertFails_retriesPerFeed() throws Exception {
+        List<Article> good = articles(1, 2);
+        List<Article> bad = articles(2, 1);
+        var failure = new DataAccessException("DB down", new SQLException("down"));
+        doThrow(failure).when(articleRepository).create(argThat(list -> list.size() == 3));
+        doReturn(Map.of(1, 2)).when(articleRepository).create(good);
+        doThrow(failure).when(articleRepository).create(bad);
+        var first = request(good);
+        var second = request(bad);
+
+        sut.flush(List.of(first, second));
+
+        assertEquals(2, first.result().get(1, TimeUnit.SECONDS));
+        var thrown = assertThrows(CompletionException.class, () -> second.result().join());
+        assertSame(failure, thrown.getCause());
+        // every article is counted once, in the outcome of its retry
+        verify(refreshMetrics).insert(eq(RefreshMetrics.RETRIED), anyLong(), eq(3), eq(0));
+        verify(refreshMetrics).insert(eq(RefreshMetrics.OK), anyLong(), eq(2), eq(2));
+        verify(refreshMetrics).insert(eq(RefreshMetrics.ERROR), anyLong(), eq(1), eq(0));
+    }
+
+    private static ArticleWriter.WriteRequest request(List<Article> articles) {
+        return new ArticleWriter.WriteRequest(articles, new CompletableFuture<>());
+    }
+
+    private static List<Article> articles(int feedId, int count) {
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article(-1, feedId, "feed" + feedId, "t" + i, "d", "c",
+                    "https://feed" + feedId + ".example/" + i, Instant.EPOCH, "", "", ""));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,136 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.BodyLimitException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BodyLimitsTest {
+
+    @Test
+    void apply_passesBodyWithinLimits() throws Exception {
+        var limits = new BodyLimits(10, 0, Duration.ZERO);
+        var subscriber = limits.apply(responseInfo(Map.of()), HttpResponse.BodySubscribers.ofByteArray());
+
+        feed(subscriber, new AtomicBoolean(), new byte[6], new byte[4]);
+
+        assertEquals(10, subscriber.getBody().toCompletableFuture().get(1, TimeUnit.SECONDS).length);
+    }
+
+    @Test
+    void apply_whenBodyGrowsPastMaximum_failsAndCancels() {
+        var limits = new BodyLimits(10, 0, Duration.ZERO);
+        var subscriber = limits.apply(responseInfo(Map.of()), HttpResponse.BodySubscribers.ofByteArray());
+        var cancelled = new AtomicBoolean();
+
+        feed(subscriber, cancelled, new byte[6], new byte[6]);
+
+        assertTrue(cancelled.get());
+        var e = assertThrows(CompletionException.class, () -> subscriber.getBody().toCompletableFuture().join());
+        assertInstanceOf(BodyLimitException.class, e.getCause());
+    }
+
+    @Test
+    void apply_whenContentLengthExceedsMaximum_failsBeforeAnyData() {
+        var limits = new BodyLimits(10, 0, Duration.ZERO);
+        var subscriber = limits.apply(responseInfo(Map.of("Content-Length", List.of("11"))),
+                HttpResponse.BodySubscribers.ofByteArray());
+        var cancelled = new AtomicBoolean();
+
+        feed(subscriber, cancelled);
+
+        assertTrue(cancelled.get());
+        assertNotNull(BodyLimitException.find(
+                assertThrows(CompletionException.class, () -> subscriber.getBody().toCompletableFuture().join())));
+    }
+
+    @Test
+    void apply_whenBodyStalls_failsAfterGrace() throws Exception {
+        var limits = new BodyLimits(Long.MAX_VALUE, 1000, Duration.ofMillis(50));
+        var subscriber = limits.apply(responseInfo(Map.of()), HttpResponse.BodySubscribers.ofByteArray());
+        var cancelled = new CountDownLatch(1);
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.countDown();
+            }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap(new byte[10])));
+
+        var e = assertThrows(ExecutionException.class,
+                () -> subscriber.getBody().toCompletableFuture().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(BodyLimitException.class, e.getCause());
+        // the timer fails the body before it cancels the subscription
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void bound_failsOnceDecodedBodyExceedsMaximum() throws IOException {
+        var limits = new BodyLimits(10, 0, Duration.ZERO);
+
+        try (InputStream in = limits.bound(new ByteArrayInputStream(new byte[10]))) {
+            assertEquals(10, in.readAllBytes().length);
+        }
+        try (InputStream in = limits.bound(new ByteArrayInputStream(new byte[11]))) {
+            assertThrows(BodyLimitException.class, in::readAllBytes);
+        }
+    }
+
+    @Test
+    void find_looksThroughWrappers() {
+        var limit = new BodyLimitException("too large");
+
+        assertSame(limit, BodyLimitException.find(new CompletionException(new IOException(limit))));
+        assertNull(BodyLimitException.find(new IOException("other")));
+        assertNull(BodyLimitException.find(null));
+    }
+
+    private static void feed(HttpResponse.BodySubscriber<?> subscriber, AtomicBoolean cancelled, byte[]... chunks) {
+        subscriber.onSubscribe(subscription(cancelled));
+        for (byte[] chunk : chunks) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(chunk)));
+        }
+        subscriber.onComplete();
+    }
+
+    private static Flow.Subscription subscription(AtomicBoolean cancelled) {
+        return new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+                cancelled.set(true);
+            }
+        };
+    }
+
+    private static HttpResponse.ResponseInfo responseInfo(Map<String, List<String>> headers) {
+        HttpResponse.ResponseInfo info = mock(HttpResponse.ResponseInfo.class);
+        when(info.headers()).thenReturn(HttpHeaders.of(headers, (n, v) -> true));
+        return info;
+    }
+}
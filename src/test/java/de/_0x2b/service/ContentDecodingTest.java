@@ -0,0 +1,155 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ContentDecodingTest {
+
+    private static final byte[] DOCUMENT = "<rss><channel><title>t</title></channel></rss>".repeat(50)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void decode_gzip() throws Exception {
+        assertArrayEquals(DOCUMENT, ContentDecoding.decode("gzip", gzip(DOCUMENT), BodyLimits.NONE));
+        assertArrayEquals(DOCUMENT, ContentDecoding.decode("x-gzip", gzip(DOCUMENT), BodyLimits.NONE));
+    }
+
+    @Test
+    void decode_deflate_zlibWrappedAndRaw() throws Exception {
+        assertArrayEquals(DOCUMENT, ContentDecoding.decode("deflate", deflate(DOCUMENT, false), BodyLimits.NONE));
+        assertArrayEquals(DOCUMENT, ContentDecoding.decode("deflate", deflate(DOCUMENT, true), BodyLimits.NONE));
+    }
+
+    @Test
+    void decode_identity_returnsBodyAsIs() throws Exception {
+        assertSame(DOCUMENT, ContentDecoding.decode(ContentDecoding.IDENTITY, DOCUMENT, BodyLimits.NONE));
+    }
+
+    @Test
+    void decode_emptyBody_isEmpty() throws Exception {
+        assertArrayEquals(new byte[0], ContentDecoding.decode("gzip", new byte[0], BodyLimits.NONE));
+    }
+
+    @Test
+    void decode_unsupportedEncoding_throws() {
+        assertThrows(IOException.class, () -> ContentDecoding.decode("br", DOCUMENT, BodyLimits.NONE));
+    }
+
+    @Test
+    void encoding_isLowerCased_andDefaultsToIdentity() {
+        assertEquals("gzip", ContentDecoding.encoding(headers(" GZIP ")));
+        assertEquals(ContentDecoding.IDENTITY, ContentDecoding.encoding(HttpHeaders.of(Map.of(), (n, v) -> true)));
+    }
+
+    @Test
+    void ofByteArray_decodesAndReportsWireAndDecodedSize() throws Exception {
+        byte[] wire = gzip(DOCUMENT);
+        var sizes = new AtomicLongArray(2);
+        var encoding = new AtomicReference<String>();
+
+        var subscriber = ContentDecoding.ofByteArray(BodyLimits.NONE, (enc, wireBytes, decodedBytes) -> {
+            encoding.set(enc);
+            sizes.set(0, wireBytes);
+            sizes.set(1, decodedBytes);
+        }).apply(responseInfo("gzip"));
+        feed(subscriber, wire);
+
+        assertArrayEquals(DOCUMENT, subscriber.getBody().toCompletableFuture().get(1, TimeUnit.SECONDS));
+        assertEquals("gzip", encoding.get());
+        assertEquals(wire.length, sizes.get(0));
+        assertEquals(DOCUMENT.length, sizes.get(1));
+    }
+
+    @Test
+    void ofByteArray_whenBodyIsCorrupt_failsWithIOException() {
+        var subscriber = ContentDecoding.ofByteArray(BodyLimits.NONE, (enc, wireBytes, decodedBytes) -> fail())
+                .apply(responseInfo("gzip"));
+        feed(subscriber, DOCUMENT);
+
+        var e = assertThrows(CompletionException.class, () -> subscriber.getBody().toCompletableFuture().join());
+        assertInstanceOf(UncheckedIOException.class, e.getCause());
+    }
+
+    @Test
+    void ofInputStream_decodesWhileReading_andReportsOnClose() throws Exception {
+        byte[] wire = deflate(DOCUMENT, false);
+        var sizes = new AtomicLongArray(2);
+
+        var subscriber = ContentDecoding.ofInputStream(BodyLimits.NONE, (enc, wireBytes, decodedBytes) -> {
+            sizes.set(0, wireBytes);
+            sizes.set(1, decodedBytes);
+        }).apply(responseInfo("deflate"));
+        feed(subscriber, wire);
+
+        try (InputStream body = subscriber.getBody().toCompletableFuture().get(1, TimeUnit.SECONDS)) {
+            assertArrayEquals(DOCUMENT, body.readAllBytes());
+            assertEquals(0, sizes.get(1), "reported once the body is closed");
+        }
+        assertEquals(wire.length, sizes.get(0));
+        assertEquals(DOCUMENT.length, sizes.get(1));
+    }
+
+    private static <T> void feed(HttpResponse.BodySubscriber<T> subscriber, byte[] body) {
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap(body)));
+        subscriber.onComplete();
+    }
+
+    private static HttpResponse.ResponseInfo responseInfo(String encoding) {
+        HttpResponse.ResponseInfo info = mock(HttpResponse.ResponseInfo.class);
+        when(info.headers()).thenReturn(headers(encoding));
+        return info;
+    }
+
+    private static HttpHeaders headers(String encoding) {
+        return HttpHeaders.of(Map.of("Content-Encoding", List.of(encoding)), (n, v) -> true);
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes, boolean raw) throws IOException {
+        var out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, raw);
+        try (var deflate = new DeflaterOutputStream(out, deflater)) {
+            deflate.write(bytes);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
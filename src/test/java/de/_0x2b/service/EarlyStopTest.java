@@ -0,0 +1,67 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EarlyStopTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+    private static final Instant STORED = NOW.minus(Duration.ofDays(1));
+
+    @Test
+    void reached_afterOldItemsInARow_ofNewestFirstFeed() {
+        var sut = new EarlyStop(STORED, 3, NOW);
+
+        assertFalse(sut.reached(hoursAfterStored(2)));
+        assertFalse(sut.reached(hoursAfterStored(1)));
+        assertFalse(sut.reached(STORED));
+        assertFalse(sut.reached(hoursAfterStored(-1)));
+        assertTrue(sut.reached(hoursAfterStored(-2)));
+        assertTrue(sut.stopped());
+        assertEquals(hoursAfterStored(2), sut.newest());
+    }
+
+    @Test
+    void undatedItems_resetTheCount() {
+        var sut = new EarlyStop(STORED, 2, NOW);
+
+        assertFalse(sut.reached(hoursAfterStored(-1)));
+        assertFalse(sut.reached(null));
+        // stamped with the current time by the mapper: undated as well
+        assertFalse(sut.reached(NOW));
+        assertFalse(sut.reached(hoursAfterStored(-2)));
+        assertTrue(sut.reached(hoursAfterStored(-3)));
+    }
+
+    @Test
+    void feedNotSortedNewestFirst_isReadToTheEnd() {
+        var sut = new EarlyStop(STORED, 2, NOW);
+
+        assertFalse(sut.reached(hoursAfterStored(-5)));
+        assertFalse(sut.reached(hoursAfterStored(-4)));
+        for (int hours = -10; hours > -20; hours--) {
+            assertFalse(sut.reached(hoursAfterStored(hours)));
+        }
+        assertFalse(sut.stopped());
+    }
+
+    @Test
+    void withoutStoredDateOrWhenDisabled_neverStops() {
+        var unknown = new EarlyStop(null, 1, NOW);
+        var disabled = new EarlyStop(STORED, 0, NOW);
+
+        for (int hours = -1; hours > -10; hours--) {
+            assertFalse(unknown.reached(hoursAfterStored(hours)));
+            assertFalse(disabled.reached(hoursAfterStored(hours)));
+        }
+        assertEquals(hoursAfterStored(-1), unknown.newest());
+    }
+
+    private static Instant hoursAfterStored(int hours) {
+        return STORED.plus(Duration.ofHours(hours));
+    }
+}
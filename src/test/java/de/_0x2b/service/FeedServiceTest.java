@@ -1,6 +1,8 @@
 package de._0x2b.service;
 
 import com.apptasticsoftware.rssreader.module.mediarss.MediaRssItem;
+import de._0x2b.exception.BodyLimitException;
+import de._0x2b.exception.DataAccessException;
 import de._0x2b.model.Article;
 import de._0x2b.model.Feed;
 import de._0x2b.model.Icon;
@@ -10,22 +12,33 @@ import org.jsoup.Connection;
 import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpResponse;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -42,14 +55,55 @@ class FeedServiceTest {
     FeedRepository feedRepository;
     @Mock
     ArticleRepository articleRepository;
-    @Mock
+    // real default methods: the streaming parse goes through the stubbed list
+    // parse, so the stubs must not be strict about its arguments
+    @Mock(answer = Answers.CALLS_REAL_METHODS, strictness = Mock.Strictness.LENIENT)
     MediaRssParser mediaRssParser;
+    @Spy
+    JsonFeedParser jsonFeedParser = new JsonFeedParser();
     @Mock
     ArticleMapper articleMapper;
+    @Mock
+    ArticleWriter articleWriter;
+    @Mock
+    KnownLinks knownLinks;
+    @Mock
+    RefreshOutcomes refreshOutcomes;
+    @Mock
+    RefreshMetrics refreshMetrics;
+    @Spy
+    RefreshSchedule refreshSchedule = new RefreshSchedule();
+    @Spy
+    HostThrottle hostThrottle = new HostThrottle();
+    @Spy
+    HostCircuitBreaker hostCircuitBreaker = new HostCircuitBreaker();
+    @Mock
+    WebSubService webSubService;
+    @Spy
+    ProbeCache probeCache = new ProbeCache();
+    @Spy
+    LeaseOwner leaseOwner = new LeaseOwner();
 
     @InjectMocks
     FeedService sut;
 
+    // real stage: parsing runs on its threads as in production
+    ParseStage parseStage = new ParseStage();
+
+    @BeforeEach
+    void start() {
+        parseStage.threads = 2;
+        parseStage.start();
+        sut.parseStage = parseStage;
+        sut.start();
+    }
+
+    @AfterEach
+    void stop() {
+        sut.stop();
+        parseStage.stop();
+    }
+
     // -----------------------
     // create(feed, icon)
     // -----------------------
@@ -85,27 +139,219 @@ class FeedServiceTest {
     }
 
     @Test
-    void create_callsMetadataAndIconLookup_andStores() throws Exception {
-        // Spy to stub getFeedMetadata without hitting real RssReader
-        FeedService spy = spy(sut);
+    void create_storesPendingFeed_andSubscribesInBackground() throws Exception {
+        Feed input = new Feed(-1, -1, "", null, URI.create("https://example.com/rss"));
+        ArgumentCaptor<Feed> stored = ArgumentCaptor.forClass(Feed.class);
+        when(feedRepository.create(stored.capture())).thenReturn(99);
+        when(feedRepository.startSubscription(eq(99), any(Instant.class), eq(Duration.ofMinutes(15))))
+                .thenReturn(true);
 
+        int id = sut.create(input);
+
+        assertEquals(99, id);
+        assertEquals(Feed.PENDING, stored.getValue().getStatus());
+        assertEquals("https://example.com/rss", stored.getValue().getName());
+        assertEquals(URI.create("https://example.com/rss"), stored.getValue().getUrl());
+        // the unstubbed download finds nothing, which may pass: tried again later
+        verify(feedRepository, timeout(1000)).retrySubscription(eq(99), startsWith("Feed not reachable"),
+                any(Instant.class));
+        verify(feedRepository, never()).activate(any());
+    }
+
+    @Test
+    void create_whenFeedCannotBeStored_throws_andDoesNotSubscribe() {
         Feed input = new Feed(-1, -1, "", null, URI.create("https://example.com/rss"));
-        Feed enriched = new Feed(-1, -1, "Feed Title", URI.create("https://example.com"),
+        when(feedRepository.create(input)).thenReturn(-1);
+
+        assertThrows(DataAccessException.class, () -> sut.create(input));
+
+        verifyNoInteractions(httpsService);
+    }
+
+    @Test
+    void subscribeDue_subscribesDuePendingFeedsAgain() throws Exception {
+        Feed pending = new Feed(8, 1, "https://example.com/rss", URI.create("https://example.com/rss"),
                 URI.create("https://example.com/rss"));
-        Icon icon = new Icon();
+        pending.setStatus(Feed.PENDING);
+        when(feedRepository.findDueSubscriptions(any(Instant.class))).thenReturn(List.of(pending));
+        when(feedRepository.startSubscription(eq(8), any(Instant.class), any(Duration.class))).thenReturn(true);
 
-        doReturn(enriched).when(spy).getFeedMetadata(input);
-        when(iconService.findIcon(enriched)).thenReturn(icon);
-        when(feedRepository.create(enriched)).thenReturn(99);
+        assertEquals(1, sut.subscribeDue());
 
-        int id = spy.create(input);
+        verify(httpsService, timeout(1000)).fetchAsBytes(pending.getFeedUrl());
+    }
 
-        assertEquals(99, id);
-        verify(spy).getFeedMetadata(input);
-        verify(iconService).findIcon(enriched);
-        verify(feedRepository).create(enriched);
-        verify(iconService).create(icon);
-        assertEquals(99, icon.getFeedId());
+    @Test
+    void subscribeDue_whenAttemptAlreadyRunning_doesNotDownloadAgain() throws Exception {
+        Feed pending = new Feed(8, 1, "https://example.com/rss", URI.create("https://example.com/rss"),
+                URI.create("https://example.com/rss"));
+        pending.setStatus(Feed.PENDING);
+        when(feedRepository.findDueSubscriptions(any(Instant.class))).thenReturn(List.of(pending));
+        when(feedRepository.startSubscription(eq(8), any(Instant.class), any(Duration.class))).thenReturn(false);
+
+        assertEquals(1, sut.subscribeDue());
+
+        verify(feedRepository, timeout(1000)).startSubscription(eq(8), any(Instant.class), any(Duration.class));
+        sut.stop();
+        verifyNoInteractions(httpsService);
+    }
+
+    @Test
+    void subscribe_whenFeedNotReachable_retriesWithBackoff() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/rss", URI.create("https://example.com/rss"),
+                URI.create("https://example.com/rss"));
+        feed.setConsecutiveFailures(2);
+        refreshSchedule.jitter = 0;
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenReturn(Optional.empty());
+
+        Instant before = Instant.now();
+        sut.subscribe(feed);
+
+        // third failure in a row: 4x the minimum interval
+        verify(feedRepository).retrySubscription(eq(5), startsWith("Feed not reachable"),
+                argThat(at -> !at.isBefore(before.plus(Duration.ofMinutes(20)))
+                        && !at.isAfter(Instant.now().plus(Duration.ofMinutes(20)))));
+        verify(feedRepository, never()).markSubscriptionFailed(anyInt(), any());
+    }
+
+    @Test
+    void subscribe_whenOutOfAttempts_marksFailed() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/rss", URI.create("https://example.com/rss"),
+                URI.create("https://example.com/rss"));
+        feed.setConsecutiveFailures(7);
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenReturn(Optional.empty());
+
+        sut.subscribe(feed);
+
+        verify(feedRepository).markSubscriptionFailed(5,
+                "Feed not reachable: https://example.com/rss (gave up after 8 attempts)");
+        verify(feedRepository, never()).retrySubscription(anyInt(), any(), any());
+    }
+
+    @Test
+    void subscribe_whenActivatingFails_retries() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/feed.json", URI.create("https://example.com/feed.json"),
+                URI.create("https://example.com/feed.json"));
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> resp = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(resp.body()).thenReturn("""
+                {"version": "https://jsonfeed.org/version/1.1", "title": "JSON Blog", "items": []}
+                """.getBytes());
+        when(resp.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of("application/feed+json")),
+                (name, value) -> true));
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        doThrow(new SQLException("connection lost")).when(feedRepository).activate(feed);
+
+        sut.subscribe(feed);
+
+        verify(feedRepository).retrySubscription(eq(5), startsWith("Activating feed failed"), any(Instant.class));
+    }
+
+    @Test
+    void subscribe_whenSomethingUnexpectedFails_retries() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/rss", URI.create("https://example.com/rss"),
+                URI.create("https://example.com/rss"));
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenThrow(new IllegalStateException("boom"));
+
+        sut.subscribe(feed);
+
+        verify(feedRepository).retrySubscription(eq(5), eq("Subscribing failed: boom"), any(Instant.class));
+        verify(feedRepository, never()).activate(any());
+    }
+
+    @Test
+    void subscribe_readsMetadataArticlesAndIcon_fromOneDownload_thenActivates() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/feed.json", URI.create("https://example.com/feed.json"),
+                URI.create("https://example.com/feed.json"));
+        feed.setStatus(Feed.PENDING);
+        byte[] json = """
+                {"version": "https://jsonfeed.org/version/1.1", "title": "JSON Blog",
+                 "home_page_url": "https://example.com/", "favicon": "/favicon.png",
+                 "items": [{"id": "1", "url": "https://example.com/1", "content_text": "one"}]}
+                """.getBytes();
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> resp = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(json);
+        when(resp.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of("application/feed+json")),
+                (name, value) -> true));
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        when(articleMapper.toArticle(eq(feed), any(JsonFeedItem.class))).thenCallRealMethod();
+        when(knownLinks.filterNew(eq(5), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(1));
+        when(iconService.fetchFavicon(any(Icon.class))).thenAnswer(inv -> {
+            Icon icon = inv.getArgument(0);
+            icon.setImage(new byte[] { 1 });
+            return icon;
+        });
+
+        sut.subscribe(feed);
+
+        assertEquals("JSON Blog", feed.getName());
+        assertEquals(URI.create("https://example.com/"), feed.getUrl());
+        verify(httpsService, times(1)).fetchAsBytes(any());
+        verify(httpsService, never()).fetchUriAsStream(any(), any(), any());
+        verify(articleWriter).write(argThat(articles -> articles.size() == 1));
+        verify(refreshOutcomes).success(eq(5), any(), isNull(), isNull(),
+                eq(FeedService.hashBody(json).sha256()), any());
+
+        ArgumentCaptor<Icon> icon = ArgumentCaptor.forClass(Icon.class);
+        verify(iconService).create(icon.capture());
+        assertEquals("https://example.com/favicon.png", icon.getValue().getUrl());
+        assertEquals(5, icon.getValue().getFeedId());
+        verify(iconService, never()).findIcon(any());
+
+        var inOrder = inOrder(feedRepository, refreshOutcomes);
+        inOrder.verify(feedRepository).activate(feed);
+        inOrder.verify(refreshOutcomes).flush();
+    }
+
+    @Test
+    void subscribe_whenNotAFeed_marksFailed_andStoresNothing() throws Exception {
+        Feed feed = new Feed(5, null, "https://example.com/", URI.create("https://example.com/"),
+                URI.create("https://example.com/"));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> resp = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(resp.body()).thenReturn("<html><body>Hello</body></html>".getBytes());
+        when(resp.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of("text/html")),
+                (name, value) -> true));
+        when(httpsService.fetchAsBytes(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+
+        sut.subscribe(feed);
+
+        verify(feedRepository).markSubscriptionFailed(eq(5), startsWith("Not a valid RSS/Atom/JSON feed"));
+        verify(feedRepository, never()).activate(any());
+        verify(articleWriter, never()).write(anyList());
+        verify(iconService, never()).create(any());
+    }
+
+    @Test
+    void refresh_skipsFeedsThatAreNotSubscribedYet() {
+        Feed pending = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/a"));
+        pending.setStatus(Feed.PENDING);
+        Feed failed = new Feed(2, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/b"));
+        failed.setStatus(Feed.FAILED);
+        when(feedRepository.findAll()).thenReturn(List.of(pending, failed));
+
+        sut.refresh(new RefreshCycle());
+
+        verify(httpsService, never()).fetchUriAsStream(any(), any(), any());
+        verify(refreshOutcomes).flush();
+    }
+
+    @Test
+    void refresh_skipsFeedsLeasedByAnotherNode() {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        String owner = leaseOwner.get();
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        when(feedRepository.claim(eq(List.of(1)), any(Instant.class), eq(owner), any(Duration.class)))
+                .thenReturn(List.of());
+
+        sut.refresh(new RefreshCycle());
+
+        verifyNoInteractions(httpsService);
     }
 
     @Test
@@ -149,6 +395,97 @@ class FeedServiceTest {
         // direct feed path uses empty name and null url per implementation
     }
 
+    @Test
+    void checkFeedUrl_whenBodyIsJsonFeed_returnsDirectFeed() throws Exception {
+        String url = "https://example.com/feed.json";
+
+        JsoupProvider provider = mock(JsoupProvider.class);
+        Connection.Response response = mock(Connection.Response.class);
+
+        when(provider.execute(url)).thenReturn(response);
+        when(response.body()).thenReturn("{\"version\": \"https://jsonfeed.org/version/1.1\", \"items\": []}");
+        when(response.contentType()).thenReturn("application/json");
+
+        List<Feed> feeds = sut.checkFeedUrl(url, provider);
+
+        assertEquals(1, feeds.size());
+        assertEquals(URI.create(url), feeds.getFirst().getFeedUrl());
+    }
+
+    @Test
+    void checkFeedUrl_whenCheckedAgain_answersFromProbeCache() throws Exception {
+        String url = "https://example.com/rss";
+
+        JsoupProvider provider = mock(JsoupProvider.class);
+        Connection.Response response = mock(Connection.Response.class);
+
+        when(provider.execute(url)).thenReturn(response);
+        when(response.body()).thenReturn("<rss version=\"2.0\"><channel/></rss>");
+        when(response.contentType()).thenReturn("application/rss+xml");
+
+        List<Feed> first = sut.checkFeedUrl(url, provider);
+        List<Feed> second = sut.checkFeedUrl(url, provider);
+
+        assertEquals(1, second.size());
+        assertEquals(first.getFirst().getFeedUrl(), second.getFirst().getFeedUrl());
+        verify(provider, times(1)).execute(url);
+    }
+
+    @Test
+    void subscribe_afterCheck_usesCheckedDocument_withoutDownloadingAgain() throws Exception {
+        String url = "https://example.com/feed.json";
+        String json = """
+                {"version": "https://jsonfeed.org/version/1.1", "title": "JSON Blog",
+                 "items": [{"id": "1", "url": "https://example.com/1", "content_text": "one"}]}
+                """;
+
+        JsoupProvider provider = mock(JsoupProvider.class);
+        Connection.Response response = mock(Connection.Response.class);
+        when(provider.execute(url)).thenReturn(response);
+        when(response.body()).thenReturn(json);
+        when(response.bodyAsBytes()).thenReturn(json.getBytes());
+        when(response.contentType()).thenReturn("application/feed+json");
+        when(response.multiHeaders()).thenReturn(Map.of("Content-Type", List.of("application/feed+json")));
+        sut.checkFeedUrl(url, provider);
+
+        Feed feed = new Feed(5, null, url, URI.create(url), URI.create(url));
+        feed.setStatus(Feed.PENDING);
+        when(articleMapper.toArticle(eq(feed), any(JsonFeedItem.class))).thenCallRealMethod();
+        when(knownLinks.filterNew(eq(5), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(1));
+
+        sut.subscribe(feed);
+
+        verify(httpsService, never()).fetchAsBytes(any());
+        assertEquals("JSON Blog", feed.getName());
+        verify(articleWriter).write(argThat(articles -> articles.size() == 1));
+        verify(feedRepository).activate(feed);
+    }
+
+    @Test
+    void checkFeedUrl_whenHtmlLinksJsonFeed_returnsIt() throws Exception {
+        String url = "https://example.com";
+        String html = """
+                <html><head>
+                  <link rel="alternate" type="application/feed+json" title="My JSON" href="/feed.json"/>
+                </head></html>
+                """;
+
+        JsoupProvider provider = mock(JsoupProvider.class);
+        Connection.Response response = mock(Connection.Response.class);
+
+        when(provider.execute(url)).thenReturn(response);
+        when(response.body()).thenReturn(html);
+        when(response.contentType()).thenReturn("text/html; charset=utf-8");
+        when(response.parse()).thenReturn(Jsoup.parse(html, url));
+
+        List<Feed> feeds = sut.checkFeedUrl(url, provider);
+
+        assertEquals(1, feeds.size());
+        assertEquals("My JSON", feeds.getFirst().getName());
+        assertEquals(URI.create("https://example.com/feed.json"), feeds.getFirst().getFeedUrl());
+    }
+
     @Test
     void checkFeedUrl_whenHtmlContainsAlternateLinks_extractsAndNormalizesFeedUrls() throws Exception {
         String url = "https://example.com";
@@ -227,48 +564,284 @@ class FeedServiceTest {
     }
 
     @Test
-    void refresh_allFeeds_whenFetchEmpty_doesNotStoreArticles() throws SQLException {
+    void refresh_allFeeds_whenFetchEmpty_doesNotStoreArticles() throws Exception {
         Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
 
         when(feedRepository.findAll()).thenReturn(List.of(feed));
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.empty());
+        claimable(feed);
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.empty());
 
-        sut.refresh();
+        sut.refresh(new RefreshCycle());
 
-        verify(articleRepository, never()).create(anyList());
+        verify(articleWriter, never()).write(anyList());
         // No HTTP response -> the new error-marking path should fire so
         // the UI can surface a "broken since" state.
-        verify(feedRepository).markRefreshError(eq(1), anyString());
+        verify(refreshOutcomes).error(eq(1), anyString(), any());
+        // outcomes still buffered at the end of the cycle are written
+        verify(refreshOutcomes).flush();
+    }
+
+    @Test
+    void refreshDue_refreshesOnlyDueFeeds() throws SQLException {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+
+        when(feedRepository.claimDue(any(Instant.class), anyString(), any(Duration.class), anyInt()))
+                .thenReturn(List.of(feed))
+                .thenReturn(List.of());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.empty());
+
+        sut.refreshDue();
+
+        verify(feedRepository, never()).findAll();
+        verify(httpsService).fetchUriAsStream(feed.getFeedUrl(), null, null);
+        // first failure -> retry after the minimum interval plus up to 20% jitter
+        verify(refreshOutcomes).error(eq(1), anyString(), argThat(d -> d.compareTo(Duration.ofMinutes(5)) >= 0
+                && d.compareTo(Duration.ofMinutes(6)) <= 0));
+    }
+
+    @Test
+    void refresh_whenHostCircuitOpen_skipsFeed() throws SQLException {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        hostCircuitBreaker.failureThreshold = 1;
+        hostCircuitBreaker.onFailure(feed.getFeedUrl());
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+
+        sut.refresh(new RefreshCycle());
+
+        verifyNoInteractions(httpsService);
+        verify(refreshOutcomes, never()).error(anyInt(), any(), any());
+        // no outcome releases the lease, so the cycle does
+        verify(feedRepository).release(List.of(1), leaseOwner.get());
+    }
+
+    @Test
+    void parseFeed_whenFetchEmpty_countsTowardsHostCircuit() {
+        Feed feed = new Feed(1, 1, "Feed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        hostCircuitBreaker.failureThreshold = 2;
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.empty());
+
+        sut.parseFeed(feed);
+        assertTrue(hostCircuitBreaker.allow(feed.getFeedUrl()));
+        sut.parseFeed(feed);
+
+        assertFalse(hostCircuitBreaker.allow(feed.getFeedUrl()));
     }
 
     @Test
-    void refresh_singleFeed_whenStatusNot200_doesNotStoreArticles() throws SQLException {
+    void refresh_whileSameRefreshRuns_attachesToItInsteadOfFetchingAgain() throws Exception {
         Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        var fetching = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenAnswer(inv -> {
+            fetching.countDown();
+            release.await();
+            return Optional.empty();
+        });
+
+        var first = CompletableFuture.runAsync(() -> sut.refresh(new RefreshCycle()));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        Thread single = Thread.ofVirtual().start(() -> sut.refresh(1));
+        awaitWaiting(single);
+        release.countDown();
+
+        first.get(5, TimeUnit.SECONDS);
+        assertTrue(single.join(Duration.ofSeconds(5)));
+        verify(httpsService, times(1)).fetchUriAsStream(feed.getFeedUrl(), null, null);
+        verify(refreshOutcomes, times(1)).error(eq(1), anyString(), any());
+    }
+
+    @Test
+    void refresh_whenAttachedRefreshIsCancelled_refreshesTheFeedItself() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        var fetching = new CountDownLatch(1);
+        var cycle = new RefreshCycle();
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenAnswer(inv -> {
+            fetching.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.empty();
+        }).thenReturn(Optional.empty());
+
+        var all = CompletableFuture.runAsync(() -> sut.refresh(cycle));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        Thread single = Thread.ofVirtual().start(() -> sut.refresh(1));
+        awaitWaiting(single);
+        cycle.cancel();
+
+        all.get(5, TimeUnit.SECONDS);
+        assertTrue(single.join(Duration.ofSeconds(5)));
+        assertEquals(0, cycle.failed());
+        // the cancelled fetch and the one of the single refresh
+        verify(httpsService, times(2)).fetchUriAsStream(feed.getFeedUrl(), null, null);
+        verify(refreshOutcomes, times(1)).error(eq(1), anyString(), any());
+        // both cycles release what they claimed
+        verify(feedRepository, times(2)).release(List.of(1), leaseOwner.get());
+    }
+
+    @Test
+    void refresh_withCycle_reportsProgress() throws Exception {
+        Feed ok = new Feed(1, 1, "a", URI.create("https://a.example"), URI.create("https://a.example/rss"));
+        Feed broken = new Feed(2, 1, "b", URI.create("https://b.example"), URI.create("https://b.example/rss"));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream("<rss/>".getBytes()));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(feedRepository.findAll()).thenReturn(List.of(ok, broken));
+        claimable(ok, broken);
+        when(httpsService.fetchUriAsStream(ok.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(httpsService.fetchUriAsStream(broken.getFeedUrl(), null, null)).thenReturn(Optional.empty());
+        MediaRssItem item = mock(MediaRssItem.class);
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(item));
+        when(articleMapper.toArticle(ok, item))
+                .thenReturn(new Article(-1, 1, "a", "t", "d", "c", "l", null, "", "", ""));
+        when(knownLinks.filterNew(eq(1), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(1));
+        var cycle = new RefreshCycle();
+
+        sut.refresh(cycle);
+
+        assertEquals(2, cycle.total());
+        assertEquals(2, cycle.done());
+        assertEquals(1, cycle.failed());
+        assertEquals(1, cycle.newArticles());
+    }
+
+    @Test
+    void refresh_parsesOnParseStage_notOnFetchThread() throws Exception {
+        Feed feed = new Feed(1, 1, "a", URI.create("https://a.example"), URI.create("https://a.example/rss"));
 
-        when(feedRepository.findOne(1)).thenReturn(List.of(feed));
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream("<rss/>".getBytes()));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        var fetchThread = new CompletableFuture<Thread>();
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenAnswer(inv -> {
+            fetchThread.complete(Thread.currentThread());
+            return Optional.of(resp);
+        });
+        var parseThread = new CompletableFuture<Thread>();
+        when(mediaRssParser.parse(any(InputStream.class))).thenAnswer(inv -> {
+            parseThread.complete(Thread.currentThread());
+            return List.of();
+        });
+        when(knownLinks.filterNew(eq(1), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(0));
+
+        sut.refresh(new RefreshCycle());
+
+        assertTrue(fetchThread.join().isVirtual());
+        assertFalse(parseThread.join().isVirtual());
+        assertTrue(parseThread.join().getName().startsWith("feed-parser-"));
+        verify(refreshMetrics).permitWait(eq("fetch"), eq(RefreshMetrics.OK), anyLong());
+        verify(refreshMetrics).permitWait(eq("parse"), eq(RefreshMetrics.OK), anyLong());
+        verify(refreshOutcomes).success(eq(1), any(), isNull(), isNull(), anyString(), any());
+    }
+
+    @Test
+    void refresh_whenCycleCancelled_interruptsFetches_andRecordsNoError() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        var fetching = new CountDownLatch(1);
+        var cycle = new RefreshCycle();
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenAnswer(inv -> {
+            fetching.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                // what HTTPSService does when its request is interrupted
+                Thread.currentThread().interrupt();
+            }
+            return Optional.empty();
+        });
+
+        var refresh = CompletableFuture.runAsync(() -> sut.refresh(cycle));
+        assertTrue(fetching.await(5, TimeUnit.SECONDS));
+        cycle.cancel();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        assertTrue(cycle.isCancelled());
+        assertEquals(0, cycle.failed());
+        verify(refreshOutcomes, never()).error(anyInt(), any(), any());
+    }
+
+    @Test
+    void refreshDue_whenNothingDue_fetchesNothing() {
+        when(feedRepository.claimDue(any(Instant.class), anyString(), any(Duration.class), anyInt()))
+                .thenReturn(List.of());
+
+        sut.refreshDue();
+
+        verifyNoInteractions(httpsService);
+    }
+
+    @Test
+    void refreshDue_claimsBatchesUntilNoneLeft_underOneOwner() {
+        Feed first = new Feed(1, 1, "a", URI.create("https://a.example"), URI.create("https://a.example/rss"));
+        Feed second = new Feed(2, 1, "b", URI.create("https://b.example"), URI.create("https://b.example/rss"));
+        leaseOwner.nodeId = Optional.of("node-1");
+        sut.leaseBatchSize = 1;
+
+        when(feedRepository.claimDue(any(Instant.class), eq("node-1"), eq(Duration.ofMinutes(15)), eq(1)))
+                .thenReturn(List.of(first))
+                .thenReturn(List.of(second))
+                .thenReturn(List.of());
+        when(httpsService.fetchUriAsStream(any(URI.class), isNull(), isNull())).thenReturn(Optional.empty());
+
+        sut.refreshDue();
+
+        verify(feedRepository, times(3)).claimDue(any(Instant.class), eq("node-1"), any(Duration.class), eq(1));
+        verify(httpsService).fetchUriAsStream(first.getFeedUrl(), null, null);
+        verify(httpsService).fetchUriAsStream(second.getFeedUrl(), null, null);
+        // every batch releases its leases by flushing its outcomes
+        verify(refreshOutcomes, times(2)).flush();
+    }
+
+    @Test
+    void refresh_singleFeed_whenStatusNot200_doesNotStoreArticles() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+
+        claimable(feed);
 
         // You need to return whatever type HTTPSService returns; we mock it as Object
         // with methods via deep stubs:
         var httpResponse = mock(java.net.http.HttpResponse.class, RETURNS_DEEP_STUBS);
         when(httpResponse.statusCode()).thenReturn(500);
 
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.of(httpResponse));
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(httpResponse));
 
         sut.refresh(1);
 
-        verify(articleRepository, never()).create(anyList());
-        verify(feedRepository).markRefreshError(eq(1), anyString());
+        verify(articleWriter, never()).write(anyList());
+        verify(refreshOutcomes).error(eq(1), anyString(), any());
     }
 
     @Test
     void parseFeed_whenFetchEmpty_doesNothing_andMarksError() throws SQLException {
         Feed feed = new Feed(1, 1, "Feed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.empty());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.empty());
 
         sut.parseFeed(feed);
 
-        verifyNoInteractions(mediaRssParser, articleMapper, articleRepository);
-        verify(feedRepository).markRefreshError(eq(1), anyString());
+        verifyNoInteractions(mediaRssParser, articleMapper, articleWriter);
+        verify(refreshOutcomes).error(eq(1), anyString(), any());
     }
 
     @Test
@@ -278,16 +851,16 @@ class FeedServiceTest {
         @SuppressWarnings("unchecked")
         HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
         when(resp.statusCode()).thenReturn(500);
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
 
         sut.parseFeed(feed);
 
-        verifyNoInteractions(mediaRssParser, articleMapper, articleRepository);
-        verify(feedRepository).markRefreshError(eq(1), anyString());
+        verifyNoInteractions(mediaRssParser, articleMapper, articleWriter);
+        verify(refreshOutcomes).error(eq(1), anyString(), any());
     }
 
     @Test
-    void parseFeed_whenStatus200_parsesMapsAndStoresArticles_andMarksSuccess() throws SQLException {
+    void parseFeed_whenStatus200_parsesMapsAndStoresArticles_andMarksSuccess() throws Exception {
         Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
 
         // response body InputStream
@@ -297,11 +870,12 @@ class FeedServiceTest {
         HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
         when(resp.statusCode()).thenReturn(200);
         when(resp.body()).thenReturn(body);
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
 
         MediaRssItem item1 = mock(MediaRssItem.class);
         MediaRssItem item2 = mock(MediaRssItem.class);
-        when(mediaRssParser.parse(body)).thenReturn(List.of(item1, item2));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(item1, item2));
 
         Article a1 = new Article(-1, feed.getId(), feed.getName(),
                 "t1", "d1", "c1", "l1", Instant.parse("2020-01-01T00:00:00Z"),
@@ -313,26 +887,29 @@ class FeedServiceTest {
         when(articleMapper.toArticle(feed, item1)).thenReturn(a1);
         when(articleMapper.toArticle(feed, item2)).thenReturn(a2);
 
-        sut.parseFeed(feed);
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(2));
+
+        sut.parseFeed(feed).join();
 
         ArgumentCaptor<List<Article>> captor = ArgumentCaptor.forClass(List.class);
-        verify(articleRepository).create(captor.capture());
+        verify(articleWriter).write(captor.capture());
 
         List<Article> stored = captor.getValue();
         assertEquals(2, stored.size());
         assertSame(a1, stored.get(0));
         assertSame(a2, stored.get(1));
 
-        verify(mediaRssParser).parse(body);
+        verify(mediaRssParser).parse(any(InputStream.class));
         verify(articleMapper).toArticle(feed, item1);
         verify(articleMapper).toArticle(feed, item2);
         // Successful insert -> mark the feed as healthy.
-        verify(feedRepository).markRefreshSuccess(eq(feed.getId()), isNull());
-        verify(feedRepository, never()).markRefreshError(anyInt(), anyString());
+        verify(refreshOutcomes).success(eq(feed.getId()), any(), isNull(), isNull(), anyString(), any());
+        verify(refreshOutcomes, never()).error(anyInt(), anyString(), any());
     }
 
     @Test
-    void parseFeed_whenMapperThrowsForOneItem_continuesWithOthers() throws SQLException {
+    void parseFeed_whenMapperThrowsForOneItem_continuesWithOthers() throws Exception {
         Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
 
         InputStream body = new ByteArrayInputStream("<rss/>".getBytes());
@@ -341,32 +918,36 @@ class FeedServiceTest {
         HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
         when(resp.statusCode()).thenReturn(200);
         when(resp.body()).thenReturn(body);
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
 
         MediaRssItem bad = mock(MediaRssItem.class);
         MediaRssItem good = mock(MediaRssItem.class);
-        when(mediaRssParser.parse(body)).thenReturn(List.of(bad, good));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(bad, good));
 
         when(articleMapper.toArticle(feed, bad)).thenThrow(new RuntimeException("boom"));
         Article aGood = new Article(-1, feed.getId(), feed.getName(),
                 "t", "d", "c", "l", null, "", "", "");
         when(articleMapper.toArticle(feed, good)).thenReturn(aGood);
 
-        sut.parseFeed(feed);
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(1));
+
+        sut.parseFeed(feed).join();
 
         @SuppressWarnings("unchecked")
         ArgumentCaptor<List<Article>> captor = ArgumentCaptor.forClass(List.class);
-        verify(articleRepository).create(captor.capture());
+        verify(articleWriter).write(captor.capture());
 
         List<Article> stored = captor.getValue();
         assertEquals(1, stored.size());
         assertSame(aGood, stored.getFirst());
         // Even with one bad item, the batch is still considered a success.
-        verify(feedRepository).markRefreshSuccess(eq(feed.getId()), isNull());
+        verify(refreshOutcomes).success(eq(feed.getId()), any(), isNull(), isNull(), anyString(), any());
     }
 
     @Test
-    void parseFeed_whenArticleRepositoryCreateThrows_marksError() throws SQLException {
+    void parseFeed_whenArticleWriteFails_marksError() throws Exception {
         Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
 
         InputStream body = new ByteArrayInputStream("<rss/>".getBytes());
@@ -375,22 +956,427 @@ class FeedServiceTest {
         HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
         when(resp.statusCode()).thenReturn(200);
         when(resp.body()).thenReturn(body);
-        when(httpsService.fetchUriAsStream(feed.getFeedUrl())).thenReturn(Optional.of(resp));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
 
         MediaRssItem item = mock(MediaRssItem.class);
-        when(mediaRssParser.parse(body)).thenReturn(List.of(item));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(item));
         when(articleMapper.toArticle(feed, item))
                 .thenReturn(new Article(-1, feed.getId(), feed.getName(), "t", "d", "c", "l", null, "", "", ""));
 
-        // Simulate a database failure during the batch insert. This is
-        // the new behaviour - the failure must NOT be swallowed.
-        doThrow(new de._0x2b.exception.DataAccessException("DB down", new SQLException("down")))
-                .when(articleRepository).create(anyList());
+        // Simulate a database failure in the writer stage. The failure
+        // must NOT be swallowed.
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.failedFuture(
+                new de._0x2b.exception.DataAccessException("DB down", new SQLException("down"))));
+
+        sut.parseFeed(feed).join();
+
+        verify(refreshOutcomes).error(eq(feed.getId()), contains("DB down"), any());
+        verify(refreshOutcomes, never()).success(anyInt(), any(), any(), any(), any(), any());
+        verify(knownLinks, never()).remember(anyInt(), anyList(), any());
+    }
+
+    @Test
+    void parseFeed_sendsStoredValidators_andOn304_skipsParsingAndMarksSuccess() throws SQLException {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        feed.setEtag("\"v1\"");
+        feed.setLastModified("Wed, 01 Jan 2020 00:00:00 GMT");
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(304);
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), "\"v1\"", "Wed, 01 Jan 2020 00:00:00 GMT"))
+                .thenReturn(Optional.of(resp));
+
+        sut.parseFeed(feed);
+
+        verifyNoInteractions(mediaRssParser, articleMapper, articleWriter);
+        // No new validators on the 304 -> the stored ones are kept.
+        verify(refreshOutcomes).success(eq(5), isNull(), eq("\"v1\""),
+                eq("Wed, 01 Jan 2020 00:00:00 GMT"), isNull(), any());
+        verify(refreshOutcomes, never()).error(anyInt(), anyString(), any());
+    }
+
+    @Test
+    void parseFeed_whenStatus200_storesResponseValidators() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+
+        InputStream body = new ByteArrayInputStream("<rss/>".getBytes());
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(body);
+        when(resp.headers()).thenReturn(HttpHeaders.of(
+                Map.of("ETag", List.of("\"v2\""), "Last-Modified", List.of("Thu, 02 Jan 2020 00:00:00 GMT")),
+                (name, value) -> true));
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of());
+
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(0));
+
+        sut.parseFeed(feed).join();
+
+        verify(refreshOutcomes).success(eq(5), any(), eq("\"v2\""),
+                eq("Thu, 02 Jan 2020 00:00:00 GMT"), anyString(), any());
+    }
+
+    @Test
+    void parseFeed_whenBodyHashUnchanged_skipsParsingAndInsert_andMarksSuccess() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        byte[] bytes = "<rss><channel/></rss>".getBytes();
+        feed.setBodyHash(FeedService.readBody(new ByteArrayInputStream(bytes)).sha256());
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream(bytes));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
 
         sut.parseFeed(feed);
 
-        verify(feedRepository).markRefreshError(eq(feed.getId()), contains("DB down"));
-        verify(feedRepository, never()).markRefreshSuccess(anyInt(), any());
+        verifyNoInteractions(mediaRssParser, articleMapper, articleWriter);
+        verify(refreshOutcomes).success(eq(5), any(), isNull(), isNull(), eq(feed.getBodyHash()), any());
+    }
+
+    @Test
+    void parseFeed_whenBodyHashChanged_parsesAndStoresNewHash() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        feed.setBodyHash(FeedService.readBody(new ByteArrayInputStream("<rss/>".getBytes())).sha256());
+        byte[] bytes = "<rss><channel/></rss>".getBytes();
+        String newHash = FeedService.readBody(new ByteArrayInputStream(bytes)).sha256();
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream(bytes));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of());
+
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(0));
+
+        sut.parseFeed(feed).join();
+
+        verify(mediaRssParser).parse(any(InputStream.class));
+        verify(refreshOutcomes).success(eq(5), any(), isNull(), isNull(), eq(newHash), any());
+    }
+
+    @Test
+    void parseFeed_writesOnlyUnknownLinks_andRemembersWholeDocument() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream("<rss/>".getBytes()));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+
+        MediaRssItem oldItem = mock(MediaRssItem.class);
+        MediaRssItem newItem = mock(MediaRssItem.class);
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(oldItem, newItem));
+        Article old = new Article(-1, feed.getId(), feed.getName(), "t1", "d", "c", "l1", null, "", "", "");
+        Article fresh = new Article(-1, feed.getId(), feed.getName(), "t2", "d", "c", "l2", null, "", "", "");
+        when(articleMapper.toArticle(feed, oldItem)).thenReturn(old);
+        when(articleMapper.toArticle(feed, newItem)).thenReturn(fresh);
+
+        when(knownLinks.filterNew(feed.getId(), List.of(old, fresh))).thenReturn(List.of(fresh));
+        when(articleWriter.write(List.of(fresh))).thenReturn(CompletableFuture.completedFuture(1));
+
+        sut.parseFeed(feed).join();
+
+        verify(knownLinks).remember(feed.getId(), List.of(old, fresh), null);
+        verify(refreshOutcomes).success(eq(5), any(), isNull(), isNull(), anyString(), any());
+    }
+
+    @Test
+    void parseFeed_whenBodyChanged_looksForWebSubHub() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        byte[] bytes = "<rss/>".getBytes();
+        HttpHeaders headers = noHeaders();
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream(bytes));
+        when(resp.headers()).thenReturn(headers);
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of());
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(0));
+
+        sut.parseFeed(feed).join();
+
+        verify(webSubService).discover(feed, headers, bytes);
+    }
+
+    @Test
+    void parseFeed_whenHubPushesFeed_pollsOnlyAtSafetyNetInterval() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        feed.setRefreshInterval(Duration.ofMinutes(10));
+        refreshSchedule.pushInterval = Duration.ofHours(24);
+        when(webSubService.isPushed(5)).thenReturn(true);
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(304);
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+
+        sut.parseFeed(feed).join();
+
+        verify(refreshOutcomes).success(eq(5), any(), any(), any(), any(), eq(Duration.ofHours(24)));
+    }
+
+    @Test
+    void ingest_storesPushedArticlesWithoutTouchingRefreshState() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        MediaRssItem item = mock(MediaRssItem.class);
+        Article article = new Article(-1, 5, "MyFeed", "t", "d", "c", "l", null, "", "", "");
+        when(feedRepository.findOne(5)).thenReturn(List.of(feed));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of(item));
+        when(articleMapper.toArticle(feed, item)).thenReturn(article);
+        when(knownLinks.filterNew(5, List.of(article))).thenReturn(List.of(article));
+        when(articleWriter.write(List.of(article))).thenReturn(CompletableFuture.completedFuture(1));
+
+        assertEquals(1, sut.ingest(5, null, "<feed/>".getBytes()));
+        verifyNoInteractions(refreshOutcomes, httpsService);
+    }
+
+    @Test
+    void parseFeed_whenJsonFeed_mapsItsItemsWithoutRssParser() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"),
+                URI.create("https://example.com/feed.json"));
+        byte[] json = """
+                {"version": "https://jsonfeed.org/version/1.1", "title": "MyFeed",
+                 "items": [
+                   {"id": "2", "url": "https://example.com/2", "title": "Second",
+                    "date_published": "2020-01-02T00:00:00Z"},
+                   {"id": "1", "url": "https://example.com/1", "title": "First",
+                    "date_published": "2020-01-01T00:00:00Z"}
+                 ]}
+                """.getBytes();
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream(json));
+        when(resp.headers()).thenReturn(HttpHeaders.of(Map.of("Content-Type", List.of("application/feed+json")),
+                (name, value) -> true));
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(articleMapper.toArticle(eq(feed), any(JsonFeedItem.class))).thenCallRealMethod();
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(2));
+
+        assertEquals(2, sut.parseFeed(feed).join().newArticles());
+
+        verifyNoInteractions(mediaRssParser);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Article>> written = ArgumentCaptor.forClass(List.class);
+        verify(articleWriter).write(written.capture());
+        assertEquals(List.of("https://example.com/2", "https://example.com/1"),
+                written.getValue().stream().map(Article::getLink).toList());
+        assertEquals(Instant.parse("2020-01-02T00:00:00Z"), written.getValue().getFirst().getPublished());
+    }
+
+    @Test
+    void parseFeed_stopsReadingAfterItemsOlderThanStoredArticles() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        Instant newestStored = Instant.now().minus(Duration.ofDays(1));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(new ByteArrayInputStream("<rss/>".getBytes()));
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+        when(knownLinks.newestPublished(5)).thenReturn(newestStored);
+
+        // newest first: one new item, then older ones
+        var items = new ArrayList<MediaRssItem>();
+        var articles = new ArrayList<Article>();
+        for (int hours = -1; hours < 5; hours++) {
+            MediaRssItem item = mock(MediaRssItem.class);
+            Article article = new Article(-1, 5, "MyFeed", "t", "d", "c", "l" + hours,
+                    newestStored.minus(Duration.ofHours(hours)), "", "", "");
+            items.add(item);
+            articles.add(article);
+        }
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(items);
+        for (int i = 0; i < 4; i++) {
+            when(articleMapper.toArticle(feed, items.get(i))).thenReturn(articles.get(i));
+        }
+        var read = articles.subList(0, 4);
+        when(knownLinks.filterNew(5, read)).thenReturn(read.subList(0, 1));
+        when(articleWriter.write(read.subList(0, 1))).thenReturn(CompletableFuture.completedFuture(1));
+
+        assertEquals(1, sut.parseFeed(feed).join().newArticles());
+
+        // three old items in a row: the last two are never mapped
+        verify(articleMapper, never()).toArticle(feed, items.get(4));
+        verify(articleMapper, never()).toArticle(feed, items.get(5));
+        verify(knownLinks).remember(5, read, newestStored.plus(Duration.ofHours(1)));
+        // the schedule gets the dates of the items left unread as well
+        verify(knownLinks).published(eq(5), eq(read.stream().map(Article::getPublished).toList()), eq(true),
+                any(Instant.class));
+        verify(refreshMetrics).parse(eq(RefreshMetrics.STOPPED_EARLY), anyLong(), eq(0));
+    }
+
+    @Test
+    void parseFeed_whenBodyExceedsLimits_marksErrorWithReason_andLeavesHostCircuitAlone() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        hostCircuitBreaker.failureThreshold = 1;
+        InputStream body = mock(InputStream.class);
+        when(body.read(any(byte[].class), anyInt(), anyInt()))
+                .thenThrow(new IOException(new BodyLimitException("Response body exceeds 10 bytes")));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> resp = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(body);
+        when(resp.headers()).thenReturn(noHeaders());
+        when(httpsService.fetchUriAsStream(feed.getFeedUrl(), null, null)).thenReturn(Optional.of(resp));
+
+        sut.parseFeed(feed).join();
+
+        verifyNoInteractions(mediaRssParser, articleWriter);
+        verify(refreshOutcomes).error(eq(5), eq("Response body exceeds 10 bytes"), any());
+        verify(refreshMetrics).fetch(eq("body_limit"), anyLong(), eq(0L));
+        assertTrue(hostCircuitBreaker.allow(feed.getFeedUrl()));
+    }
+
+    @Test
+    void refresh_asyncMode_whenBodyExceedsLimits_marksErrorWithReason() {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.refreshMode = "async";
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchAsync(eq(feed.getFeedUrl()), isNull(), isNull(), any(Duration.class)))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new BodyLimitException("Response body slower than 1 bytes/s")));
+
+        sut.refresh(new RefreshCycle());
+
+        verify(refreshOutcomes).error(eq(1), eq("Response body slower than 1 bytes/s"), any());
+    }
+
+    @Test
+    void refresh_asyncMode_fetchesWithDeadline_andStoresArticles() throws Exception {
+        Feed feed = new Feed(5, 1, "MyFeed", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.refreshMode = "async";
+        sut.fetchDeadline = Duration.ofSeconds(3);
+        byte[] bytes = "<rss/>".getBytes();
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> resp = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(resp.statusCode()).thenReturn(200);
+        when(resp.body()).thenReturn(bytes);
+        when(resp.headers()).thenReturn(noHeaders());
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchAsync(feed.getFeedUrl(), null, null, Duration.ofSeconds(3)))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(resp)));
+        when(mediaRssParser.parse(any(InputStream.class))).thenReturn(List.of());
+        when(knownLinks.filterNew(eq(feed.getId()), anyList())).thenAnswer(inv -> inv.getArgument(1));
+        when(articleWriter.write(anyList())).thenReturn(CompletableFuture.completedFuture(0));
+
+        sut.refresh(new RefreshCycle());
+
+        verify(httpsService, never()).fetchUriAsStream(any(), any(), any());
+        verify(refreshOutcomes).success(eq(5), any(), isNull(), isNull(),
+                eq(FeedService.hashBody(bytes).sha256()), any());
+        verify(refreshMetrics).permitWait(eq("in_flight"), eq(RefreshMetrics.OK), anyLong());
+        verify(refreshMetrics).permitWait(eq("parse"), eq(RefreshMetrics.OK), anyLong());
+    }
+
+    @Test
+    void refresh_asyncMode_whenNoResponse_marksError() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.refreshMode = "async";
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchAsync(eq(feed.getFeedUrl()), isNull(), isNull(), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        sut.refresh(new RefreshCycle());
+
+        verify(articleWriter, never()).write(anyList());
+        verify(refreshOutcomes).error(eq(1), anyString(), any());
+    }
+
+    @Test
+    void cancelInFlight_abortsPendingExchanges_andLeavesFeedWithoutOutcome() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.refreshMode = "async";
+        CompletableFuture<Optional<HttpResponse<byte[]>>> exchange = new CompletableFuture<>();
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchAsync(eq(feed.getFeedUrl()), isNull(), isNull(), any(Duration.class)))
+                .thenReturn(exchange);
+
+        var refresh = CompletableFuture.runAsync(() -> sut.refresh(new RefreshCycle()));
+        int cancelled = 0;
+        for (int i = 0; i < 500 && cancelled == 0; i++) {
+            cancelled = sut.cancelInFlight();
+            Thread.sleep(10);
+        }
+        refresh.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, cancelled);
+        assertTrue(exchange.isCancelled());
+        verify(refreshOutcomes, never()).error(anyInt(), any(), any());
+        verify(refreshOutcomes, never()).success(anyInt(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void cancelInFlight_releasesTheHostProbe() throws Exception {
+        Feed feed = new Feed(1, 1, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.refreshMode = "async";
+        hostCircuitBreaker.failureThreshold = 1;
+        hostCircuitBreaker.openFor = Duration.ZERO;
+        hostCircuitBreaker.onFailure(feed.getFeedUrl());
+        CompletableFuture<Optional<HttpResponse<byte[]>>> exchange = new CompletableFuture<>();
+
+        when(feedRepository.findAll()).thenReturn(List.of(feed));
+        claimable(feed);
+        when(httpsService.fetchAsync(eq(feed.getFeedUrl()), isNull(), isNull(), any(Duration.class)))
+                .thenReturn(exchange);
+
+        var refresh = CompletableFuture.runAsync(() -> sut.refresh(new RefreshCycle()));
+        int cancelled = 0;
+        for (int i = 0; i < 500 && cancelled == 0; i++) {
+            cancelled = sut.cancelInFlight();
+            Thread.sleep(10);
+        }
+        refresh.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, cancelled);
+        verify(hostCircuitBreaker).onAbandoned(feed.getFeedUrl());
+        // the aborted probe no longer blocks the host
+        assertTrue(hostCircuitBreaker.allow(feed.getFeedUrl()));
+    }
+
+    @Test
+    void hashBody_matchesReadBody() throws Exception {
+        assertEquals(FeedService.readBody(new ByteArrayInputStream("abc".getBytes())).sha256(),
+                FeedService.hashBody("abc".getBytes()).sha256());
+    }
+
+    @Test
+    void readBody_returnsBytesAndHexSha256() throws Exception {
+        var body = FeedService.readBody(new ByteArrayInputStream("abc".getBytes()));
+
+        assertArrayEquals("abc".getBytes(), body.bytes());
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", body.sha256());
     }
 
     @Test
@@ -406,6 +1392,7 @@ class FeedServiceTest {
         assertEquals(1, result);
         verify(articleRepository).deleteByFeed(feedId);
         verify(feedRepository).delete(feedId);
+        verify(knownLinks).forget(feedId);
     }
 
     @Test
@@ -433,4 +1420,25 @@ class FeedServiceTest {
         verify(articleRepository).deleteByFeed(feedId);
         verify(feedRepository).delete(feedId);
     }
+
+    /**
+     * Wait until {@code thread} blocks, i.e. has attached to a running
+     * refresh.
+     */
+    // none of the feeds is leased by another node
+    private void claimable(Feed... feeds) {
+        when(feedRepository.claim(anyCollection(), any(Instant.class), anyString(), any(Duration.class)))
+                .thenReturn(List.of(feeds));
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        for (int i = 0; i < 500 && thread.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    private static HttpHeaders noHeaders() {
+        return HttpHeaders.of(Map.of(), (name, value) -> true);
+    }
 }
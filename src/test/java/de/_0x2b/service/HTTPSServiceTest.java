@@ -1,5 +1,7 @@
 package de._0x2b.service;
 
+import de._0x2b.exception.BodyLimitException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -11,7 +13,11 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -63,6 +69,7 @@ class HTTPSServiceTest {
         assertEquals(uri, sent.uri());
         assertEquals("GET", sent.method());
         assertEquals(Optional.of(userAgent), sent.headers().firstValue("User-Agent"));
+        assertEquals(Optional.of("gzip, deflate"), sent.headers().firstValue("Accept-Encoding"));
         assertEquals(Optional.of(java.time.Duration.ofSeconds(timeoutSeconds)), sent.timeout());
     }
 
@@ -184,4 +191,145 @@ class HTTPSServiceTest {
         assertTrue(result.isEmpty());
         assertTrue(Thread.currentThread().isInterrupted(), "Interrupted flag should be re-set");
     }
+
+    @Test
+    void fetchUriAsStream_withValidators_sendsConditionalHeaders_andReturns304() throws Exception {
+        URI uri = URI.create("https://example.com/conditional");
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> response = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(304);
+
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(response);
+
+        Optional<HttpResponse<InputStream>> result = sut.fetchUriAsStream(uri, "\"abc\"",
+                "Wed, 01 Jan 2020 00:00:00 GMT");
+
+        assertTrue(result.isPresent(), "304 is not an error and must reach the caller");
+
+        ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+
+        HttpRequest sent = requestCaptor.getValue();
+        assertEquals(Optional.of("\"abc\""), sent.headers().firstValue("If-None-Match"));
+        assertEquals(Optional.of("Wed, 01 Jan 2020 00:00:00 GMT"), sent.headers().firstValue("If-Modified-Since"));
+    }
+
+    @Test
+    void fetchUriAsStream_withoutValidators_sendsUnconditionalRequest() throws Exception {
+        URI uri = URI.create("https://example.com/plain");
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<InputStream> response = (HttpResponse<InputStream>) mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+
+        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(response);
+
+        sut.fetchUriAsStream(uri, null, " ");
+
+        ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).send(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+
+        HttpRequest sent = requestCaptor.getValue();
+        assertTrue(sent.headers().firstValue("If-None-Match").isEmpty());
+        assertTrue(sent.headers().firstValue("If-Modified-Since").isEmpty());
+        assertEquals(Optional.of("gzip, deflate"), sent.headers().firstValue("Accept-Encoding"));
+    }
+
+    // -------------------------
+    // fetchAsync
+    // -------------------------
+
+    @Test
+    void fetchAsync_when2xx_completesWithResponse_andSendsValidators() throws Exception {
+        URI uri = URI.create("https://example.com/async");
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> response = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(200);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response));
+
+        var result = sut.fetchAsync(uri, "\"abc\"", null, Duration.ofSeconds(10)).get(1, TimeUnit.SECONDS);
+
+        assertSame(response, result.orElseThrow());
+        ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).sendAsync(requestCaptor.capture(), any(HttpResponse.BodyHandler.class));
+        assertEquals(Optional.of("\"abc\""), requestCaptor.getValue().headers().firstValue("If-None-Match"));
+    }
+
+    @Test
+    void fetchAsync_whenStatusIs4xxOr5xx_orExchangeFails_completesEmpty() throws Exception {
+        URI uri = URI.create("https://example.com/async-fail");
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<byte[]> response = (HttpResponse<byte[]>) mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(503);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(response))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("boom")));
+
+        assertTrue(sut.fetchAsync(uri, null, null, Duration.ofSeconds(10)).get(1, TimeUnit.SECONDS).isEmpty());
+        assertTrue(sut.fetchAsync(uri, null, null, Duration.ofSeconds(10)).get(1, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    void fetchAsync_whenDeadlinePasses_abortsExchange_andCompletesEmpty() throws Exception {
+        URI uri = URI.create("https://example.com/slow");
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn((CompletableFuture) exchange);
+
+        var result = sut.fetchAsync(uri, null, null, Duration.ofMillis(50)).get(1, TimeUnit.SECONDS);
+
+        assertTrue(result.isEmpty());
+        assertTrue(exchange.isCancelled());
+    }
+
+    @Test
+    void fetchAsync_whenBodyExceedsLimits_completesWithBodyLimitException() {
+        URI uri = URI.create("https://example.com/huge");
+        var limit = new BodyLimitException("Response body exceeds 10 bytes");
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IOException(limit)));
+
+        var e = assertThrows(CompletionException.class,
+                () -> sut.fetchAsync(uri, null, null, Duration.ofMinutes(1)).join());
+
+        assertSame(limit, e.getCause());
+    }
+
+    @Test
+    void fetchAsync_whenCancelled_abortsExchange() {
+        URI uri = URI.create("https://example.com/cancel");
+        CompletableFuture<HttpResponse<byte[]>> exchange = new CompletableFuture<>();
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn((CompletableFuture) exchange);
+
+        sut.fetchAsync(uri, null, null, Duration.ofMinutes(1)).cancel(true);
+
+        assertTrue(exchange.isCancelled());
+    }
+
+    // -------------------------
+    // transferred
+    // -------------------------
+
+    @Test
+    void transferred_countsWireAndDecodedBytesByEncoding() {
+        sut.registry = new SimpleMeterRegistry();
+
+        sut.transferred("gzip", 100, 700);
+        sut.transferred("gzip", 50, 300);
+        sut.transferred("identity", 20, 20);
+
+        assertEquals(150, sut.registry.get("feedbox.http.body.bytes")
+                .tags("encoding", "gzip", "stage", "wire").counter().count());
+        assertEquals(1000, sut.registry.get("feedbox.http.body.bytes")
+                .tags("encoding", "gzip", "stage", "decoded").counter().count());
+        assertEquals(20, sut.registry.get("feedbox.http.body.bytes")
+                .tags("encoding", "identity", "stage", "wire").counter().count());
+    }
 }
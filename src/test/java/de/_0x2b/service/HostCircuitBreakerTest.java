@@ -0,0 +1,134 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostCircuitBreakerTest {
+
+    private static final URI FEED_A = URI.create("https://dead.example/a.xml");
+    private static final URI FEED_B = URI.create("https://dead.example/b.xml");
+    private static final URI OTHER = URI.create("https://alive.example/feed.xml");
+
+    private final HostCircuitBreaker sut = new HostCircuitBreaker();
+
+    @BeforeEach
+    void setUp() {
+        sut.failureThreshold = 3;
+        sut.openFor = Duration.ofHours(1);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAcrossFeedsOfAHost() {
+        sut.onFailure(FEED_A);
+        sut.onFailure(FEED_B);
+        assertTrue(sut.allow(FEED_A));
+
+        sut.onFailure(FEED_A);
+
+        assertFalse(sut.allow(FEED_A));
+        assertFalse(sut.allow(FEED_B));
+        assertTrue(sut.allow(OTHER));
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        sut.onFailure(FEED_A);
+        sut.onFailure(FEED_A);
+        sut.onSuccess(FEED_B);
+        sut.onFailure(FEED_A);
+
+        assertTrue(sut.allow(FEED_A));
+    }
+
+    @Test
+    void afterOpenPeriod_letsOneProbeThrough() {
+        sut.openFor = Duration.ZERO;
+        for (int i = 0; i < 3; i++) {
+            sut.onFailure(FEED_A);
+        }
+
+        assertTrue(sut.allow(FEED_A));
+        // the probe is still running
+        assertFalse(sut.allow(FEED_B));
+
+        sut.onSuccess(FEED_A);
+        assertTrue(sut.allow(FEED_B));
+        assertTrue(sut.allow(FEED_B));
+    }
+
+    @Test
+    void failedProbe_reopensTheCircuit() {
+        sut.openFor = Duration.ZERO;
+        for (int i = 0; i < 3; i++) {
+            sut.onFailure(FEED_A);
+        }
+        assertTrue(sut.allow(FEED_A));
+
+        sut.openFor = Duration.ofHours(1);
+        sut.onFailure(FEED_A);
+
+        assertFalse(sut.allow(FEED_A));
+    }
+
+    @Test
+    void lateFailureWhileOpen_doesNotExtendTheCircuit() {
+        sut.openFor = Duration.ZERO;
+        for (int i = 0; i < 3; i++) {
+            sut.onFailure(FEED_A);
+        }
+        sut.openFor = Duration.ofHours(1);
+        // a request started before the circuit opened
+        sut.onFailure(FEED_B);
+
+        assertTrue(sut.allow(FEED_A));
+    }
+
+    @Test
+    void abandonedProbe_letsTheNextFeedProbe() {
+        sut.openFor = Duration.ZERO;
+        for (int i = 0; i < 3; i++) {
+            sut.onFailure(FEED_A);
+        }
+        assertTrue(sut.allow(FEED_A));
+        assertFalse(sut.allow(FEED_B));
+
+        sut.onAbandoned(FEED_A);
+
+        assertTrue(sut.allow(FEED_B));
+        assertFalse(sut.allow(FEED_A));
+    }
+
+    @Test
+    void probeWithoutOutcome_expiresAfterProbeTimeout() throws Exception {
+        sut.openFor = Duration.ZERO;
+        sut.probeTimeout = Duration.ofMillis(50);
+        for (int i = 0; i < 3; i++) {
+            sut.onFailure(FEED_A);
+        }
+        assertTrue(sut.allow(FEED_A));
+        assertFalse(sut.allow(FEED_B));
+
+        Thread.sleep(100);
+
+        assertTrue(sut.allow(FEED_B));
+    }
+
+    @Test
+    void forgetsHostsOnSuccess_andHostsIdleForTheTtl() throws Exception {
+        sut.idleTtl = Duration.ofMillis(50);
+        sut.onFailure(FEED_A);
+        sut.onFailure(OTHER);
+        sut.onSuccess(OTHER);
+        assertEquals(1, sut.hostCount());
+
+        Thread.sleep(100);
+        sut.allow(OTHER);
+
+        assertEquals(0, sut.hostCount());
+    }
+}
@@ -0,0 +1,84 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostThrottleTest {
+
+    @Test
+    void key_isCaseInsensitiveHost() {
+        assertEquals("example.com", HostThrottle.key(URI.create("https://Example.COM/feed.xml")));
+        assertEquals("", HostThrottle.key(URI.create("relative/feed.xml")));
+    }
+
+    @Test
+    void acquire_limitsConcurrentRequestsPerHost() throws Exception {
+        HostThrottle sut = new HostThrottle();
+        sut.concurrency = 2;
+        sut.minSpacing = Duration.ZERO;
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new CompletableFuture<?>[10];
+            for (int i = 0; i < futures.length; i++) {
+                URI uri = URI.create("https://same.example/feed" + i);
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try (var permit = sut.acquire(uri)) {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        TimeUnit.MILLISECONDS.sleep(20);
+                        inFlight.decrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void acquire_spacesRequestStartsOnSameHost_butNotAcrossHosts() throws Exception {
+        HostThrottle sut = new HostThrottle();
+        sut.concurrency = 10;
+        sut.minSpacing = Duration.ofMillis(100);
+
+        long start = System.nanoTime();
+        sut.acquire(URI.create("https://a.example/1")).close();
+        sut.acquire(URI.create("https://b.example/1")).close();
+        long otherHostsMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        sut.acquire(URI.create("https://a.example/2")).close();
+        sut.acquire(URI.create("https://a.example/3")).close();
+        long sameHostMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(otherHostsMillis < 100, "first request to each host must not wait");
+        assertTrue(sameHostMillis >= 200, "third request to a.example must start 200ms after the first");
+    }
+
+    @Test
+    void acquire_forgetsIdleHosts_butNotHostsInUse() throws Exception {
+        HostThrottle sut = new HostThrottle();
+        sut.minSpacing = Duration.ZERO;
+        sut.idleTtl = Duration.ofMillis(50);
+
+        sut.acquire(URI.create("https://idle.example/1")).close();
+        try (var busy = sut.acquire(URI.create("https://busy.example/1"))) {
+            TimeUnit.MILLISECONDS.sleep(100);
+
+            sut.acquire(URI.create("https://new.example/1")).close();
+
+            assertEquals(2, sut.hostCount(), "idle.example must be forgotten, busy.example kept");
+        }
+    }
+}
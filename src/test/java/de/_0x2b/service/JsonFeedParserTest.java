@@ -0,0 +1,140 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonFeedParserTest {
+
+    private final JsonFeedParser sut = new JsonFeedParser();
+
+    @Test
+    void parse_readsItemsInOrder_withAuthorsTagsAndImages() {
+        String json = """
+                {"version": "https://jsonfeed.org/version/1.1", "title": "Blog",
+                 "authors": [{"name": "Feed Author"}],
+                 "items": [
+                   {"id": "2", "url": "https://example.com/2", "title": "Second", "content_html": "<p>2</p>",
+                    "summary": "two", "date_published": "2020-01-02T00:00:00Z",
+                    "authors": [{"name": "Ann"}, {"name": "Bob"}, {"url": "https://example.com/nobody"}],
+                    "tags": ["a", "b"], "banner_image": "https://example.com/banner.png",
+                    "attachments": [{"url": "https://example.com/2.mp3", "mime_type": "audio/mpeg"},
+                                    {"url": "https://example.com/2.jpg", "mime_type": "image/jpeg"}]},
+                   {"id": 1, "external_url": "https://elsewhere.example/1", "content_text": "1",
+                    "author": {"name": "Old Style"}, "image": "https://example.com/1.png",
+                    "_custom": {"nested": [1, 2, {"deep": true}]}}
+                 ]}
+                """;
+
+        List<JsonFeedItem> items = new ArrayList<>();
+        sut.parse(stream(json), items::add);
+
+        assertEquals(2, items.size());
+        var second = items.get(0);
+        assertEquals("2", second.id());
+        assertEquals("https://example.com/2", second.url());
+        assertEquals("Second", second.title());
+        assertEquals("<p>2</p>", second.contentHtml());
+        assertEquals("two", second.summary());
+        assertEquals("2020-01-02T00:00:00Z", second.datePublished());
+        assertEquals(List.of("Ann", "Bob"), second.authors());
+        assertEquals(List.of("a", "b"), second.tags());
+        assertEquals(List.of("https://example.com/banner.png", "https://example.com/2.jpg"), second.images());
+
+        var first = items.get(1);
+        assertEquals("1", first.id());
+        assertNull(first.url());
+        assertEquals("https://elsewhere.example/1", first.externalUrl());
+        assertEquals("1", first.contentText());
+        assertNull(first.contentHtml());
+        assertEquals(List.of("Old Style"), first.authors());
+        assertEquals(List.of("https://example.com/1.png"), first.images());
+    }
+
+    @Test
+    void parse_stopsReadingWhenConsumerHasEnough() {
+        var json = new StringBuilder("{\"version\": \"https://jsonfeed.org/version/1.1\", \"items\": [");
+        for (int i = 0; i < 500; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"id\": \"").append(i).append("\", \"content_text\": \"")
+                    .append("x".repeat(200)).append("\"}");
+        }
+        byte[] document = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        var in = new ByteArrayInputStream(document);
+
+        List<String> ids = new ArrayList<>();
+        sut.parse(in, item -> {
+            ids.add(item.id());
+            return ids.size() < 3;
+        });
+
+        assertEquals(List.of("0", "1", "2"), ids);
+        assertTrue(in.available() > document.length / 2, "read far past the third item");
+    }
+
+    @Test
+    void parse_skipsNonObjectItems_andDocumentsWithoutItems() {
+        List<JsonFeedItem> items = new ArrayList<>();
+
+        sut.parse(stream("{\"items\": [\"junk\", [1], {\"id\": \"1\"}, null]}"), items::add);
+        sut.parse(stream("{\"version\": \"https://jsonfeed.org/version/1\", \"items\": {}}"), items::add);
+
+        assertEquals(1, items.size());
+        assertEquals("1", items.getFirst().id());
+        assertEquals(List.of(), items.getFirst().tags());
+    }
+
+    @Test
+    void parse_rejectsInvalidDocuments() {
+        assertThrows(IllegalArgumentException.class, () -> sut.parse(stream("[]"), item -> true));
+        assertThrows(UncheckedIOException.class, () -> sut.parse(stream("{\"items\": [{\"id\": "), item -> true));
+    }
+
+    @Test
+    void channel_readsTitleAndHomePage_evenAfterItems() {
+        var channel = sut.channel(stream("""
+                {"version": "https://jsonfeed.org/version/1.1", "items": [{"id": "1", "title": "Item"}],
+                 "title": "Blog", "home_page_url": "https://example.com/"}
+                """));
+
+        assertEquals("Blog", channel.title());
+        assertEquals("https://example.com/", channel.homePageUrl());
+        assertNull(sut.channel(stream("{\"items\": []}")).title());
+    }
+
+    @Test
+    void channel_prefersFaviconOverIcon() {
+        var channel = sut.channel(stream("""
+                {"title": "Blog", "icon": "https://example.com/big.png", "items": [],
+                 "favicon": "https://example.com/small.png"}
+                """));
+
+        assertEquals("https://example.com/small.png", channel.iconUrl());
+        assertEquals("https://example.com/big.png",
+                sut.channel(stream("{\"icon\": \"https://example.com/big.png\"}")).iconUrl());
+        assertNull(sut.channel(stream("{\"title\": \"Blog\"}")).iconUrl());
+    }
+
+    @Test
+    void isJsonFeed_byContentTypeOrVersionUrl() {
+        String feed = "\uFEFF  {\"version\": \"https://jsonfeed.org/version/1.1\"}";
+
+        assertTrue(JsonFeedParser.isJsonFeed("application/feed+json; charset=utf-8", "{}"));
+        assertTrue(JsonFeedParser.isJsonFeed("application/json", feed));
+        assertTrue(JsonFeedParser.isJsonFeed(null, feed));
+        assertTrue(JsonFeedParser.isJsonFeed(null, feed.getBytes(StandardCharsets.UTF_8)));
+        assertFalse(JsonFeedParser.isJsonFeed("application/json", "{\"data\": []}"));
+        assertFalse(JsonFeedParser.isJsonFeed("application/rss+xml", feed));
+        assertFalse(JsonFeedParser.isJsonFeed(null, "<rss version=\"2.0\"></rss>"));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,146 @@
+package de._0x2b.service;
+
+import de._0x2b.exception.DataAccessException;
+import de._0x2b.model.Article;
+import de._0x2b.repository.ArticleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KnownLinksTest {
+
+    @Mock
+    ArticleRepository articleRepository;
+
+    @InjectMocks
+    KnownLinks sut;
+
+    @Test
+    void filterNew_loadsStoredLinksOnce_andDropsKnownArticles() {
+        when(articleRepository.findLinksByFeed(1)).thenReturn(List.of("https://a.example/1", "https://a.example/2"));
+        Article known = article("https://a.example/1");
+        Article fresh = article("https://a.example/3");
+
+        assertEquals(List.of(fresh), sut.filterNew(1, List.of(known, fresh)));
+        assertEquals(List.of(fresh), sut.filterNew(1, List.of(known, fresh)));
+
+        verify(articleRepository, times(1)).findLinksByFeed(1);
+    }
+
+    @Test
+    void filterNew_keepsLinksRememberedWhileLoading() {
+        Article older = article("https://a.example/1");
+        Article newer = article("https://a.example/2");
+        when(articleRepository.findLinksByFeed(1)).thenAnswer(invocation -> {
+            // a refresh of the same feed stores its document meanwhile
+            sut.remember(1, List.of(newer), null);
+            return List.of("https://a.example/1");
+        });
+
+        // the query result would have dropped "older" instead
+        assertEquals(List.of(older), sut.filterNew(1, List.of(older, newer)));
+        assertEquals(List.of(older), sut.filterNew(1, List.of(older, newer)));
+        verify(articleRepository, times(1)).findLinksByFeed(1);
+    }
+
+    @Test
+    void remember_replacesKnownLinksWithStoredDocument() {
+        when(articleRepository.findLinksByFeed(1)).thenReturn(List.of("https://a.example/1"));
+        Article first = article("https://a.example/1");
+        Article second = article("https://a.example/2");
+        sut.filterNew(1, List.of(first, second));
+
+        sut.remember(1, List.of(second), null);
+
+        // only the last stored document is kept; anything else goes to the database again
+        assertEquals(List.of(first), sut.filterNew(1, List.of(first, second)));
+    }
+
+    @Test
+    void filterNew_whenLoadFails_passesEverythingThrough_andRetriesLater() {
+        when(articleRepository.findLinksByFeed(1))
+                .thenThrow(new DataAccessException("DB down", new SQLException("down")))
+                .thenReturn(List.of("https://a.example/1"));
+        Article article = article("https://a.example/1");
+
+        assertEquals(List.of(article), sut.filterNew(1, List.of(article)));
+        assertEquals(List.of(), sut.filterNew(1, List.of(article)));
+    }
+
+    @Test
+    void forget_reloadsFromDatabase() {
+        when(articleRepository.findLinksByFeed(1)).thenReturn(List.of());
+        sut.remember(1, List.of(article("https://a.example/1")), Instant.parse("2024-01-01T00:00:00Z"));
+
+        sut.forget(1);
+        Article article = article("https://a.example/1");
+
+        assertEquals(List.of(article), sut.filterNew(1, List.of(article)));
+        assertNull(sut.newestPublished(1));
+    }
+
+    @Test
+    void remember_keepsNewestPublicationDate() {
+        Instant older = Instant.parse("2024-01-01T00:00:00Z");
+        Instant newer = Instant.parse("2024-01-02T00:00:00Z");
+        assertNull(sut.newestPublished(1));
+
+        sut.remember(1, List.of(), newer);
+        sut.remember(1, List.of(), older);
+        sut.remember(1, List.of(), null);
+
+        assertEquals(newer, sut.newestPublished(1));
+    }
+
+    @Test
+    void published_whenStoppedEarly_addsDatesOfTheItemsAfterTheStop() {
+        Instant now = Instant.parse("2024-01-10T00:00:00Z");
+        List<Instant> document = List.of(day(8), day(7), day(6), day(5), day(4));
+        assertEquals(document, sut.published(1, document, false, now));
+
+        // a new item came in; reading stopped after two old ones
+        List<Instant> read = List.of(day(9), day(8), day(7));
+        var published = sut.published(1, read, true, now);
+
+        // the oldest item fell out of the five-item document meanwhile
+        assertEquals(List.of(day(9), day(8), day(7), day(6), day(5)), published);
+        assertEquals(published, sut.published(1, read, true, now));
+    }
+
+    @Test
+    void published_leavesOutUndatedItems_andWithoutEarlierDocumentOnlyHasTheItemsRead() {
+        Instant now = Instant.parse("2024-01-10T00:00:00Z");
+        var read = new ArrayList<Instant>(List.of(now, day(8)));
+        read.add(null);
+
+        // the mapper stamps undated items with the time of the refresh
+        assertEquals(List.of(day(8)), sut.published(1, read, true, now));
+        assertEquals(List.of(day(8)), sut.published(1, List.of(day(8)), true, now.plusSeconds(60)));
+    }
+
+    @Test
+    void hash_distinguishesLinks() {
+        assertEquals(KnownLinks.hash("https://a.example/1"), KnownLinks.hash("https://a.example/1"));
+        assertNotEquals(KnownLinks.hash("https://a.example/1"), KnownLinks.hash("https://a.example/2"));
+    }
+
+    private static Instant day(int day) {
+        return Instant.parse("2024-01-01T00:00:00Z").plus(Duration.ofDays(day - 1));
+    }
+
+    private static Article article(String link) {
+        return new Article(-1, 1, "feed", "t", "d", "c", link, null, "", "", "");
+    }
+}
@@ -0,0 +1,198 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseStageTest {
+
+    private final ParseStage sut = new ParseStage();
+
+    @AfterEach
+    void tearDown() {
+        sut.stop();
+    }
+
+    @Test
+    void submit_runsTaskOnParserPlatformThread() throws Exception {
+        sut.threads = 1;
+        sut.start();
+
+        var thread = sut.submit(0, Thread::currentThread).get(1, TimeUnit.SECONDS);
+
+        assertFalse(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("feed-parser-"));
+    }
+
+    @Test
+    void submit_whenTaskThrows_completesExceptionally_andKeepsParsing() throws Exception {
+        sut.threads = 1;
+        sut.start();
+
+        var failed = sut.submit(0, () -> {
+            throw new IllegalStateException("broken document");
+        });
+        var error = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+
+        assertEquals(42, sut.submit(0, () -> 42).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_whenTaskThrowsError_completesExceptionally_andKeepsParsing() throws Exception {
+        sut.threads = 1;
+        sut.start();
+
+        var failed = sut.submit(0, () -> {
+            throw new NoClassDefFoundError("broken parser");
+        });
+        var error = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(NoClassDefFoundError.class, error.getCause());
+
+        assertEquals(42, sut.submit(0, () -> 42).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_whenTaskRunsOutOfMemory_completesExceptionally() throws Exception {
+        sut.threads = 1;
+        sut.start();
+
+        var failed = sut.submit(0, () -> {
+            throw new OutOfMemoryError("document too large");
+        });
+
+        var error = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, error.getCause());
+    }
+
+    @Test
+    void submit_whenTaskFinishesAfterStop_stillCompletes() throws Exception {
+        sut.threads = 1;
+        sut.start();
+        var parsing = new CountDownLatch(1);
+        var stopped = new CountDownLatch(1);
+        var running = sut.submit(0, () -> {
+            parsing.countDown();
+            // outlives the interrupt of stop()
+            while (true) {
+                try {
+                    stopped.await();
+                    return 1;
+                } catch (InterruptedException e) {
+                    // keep waiting
+                }
+            }
+        });
+        assertTrue(parsing.await(1, TimeUnit.SECONDS));
+
+        sut.stop();
+        stopped.countDown();
+
+        assertEquals(1, running.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_whenParsersBusyAndQueueFull_blocksCaller() throws Exception {
+        sut.threads = 1;
+        sut.queueSize = 1;
+        sut.start();
+        var parsing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var busy = sut.submit(0, () -> {
+            parsing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        assertTrue(parsing.await(1, TimeUnit.SECONDS));
+        var queued = sut.submit(0, () -> 2);
+
+        var third = new CompletableFuture<CompletableFuture<Integer>>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                third.complete(sut.submit(0, () -> 3));
+            } catch (InterruptedException e) {
+                third.completeExceptionally(e);
+            }
+        });
+        // the queue holds one document, so the third caller waits for space
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+        assertTrue(caller.isAlive());
+
+        release.countDown();
+        assertEquals(1, busy.get(1, TimeUnit.SECONDS));
+        assertEquals(2, queued.get(1, TimeUnit.SECONDS));
+        assertEquals(3, third.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_whenDocumentsExceedQueueBytes_blocksCaller_butParsesOversizedDocumentAlone() throws Exception {
+        sut.threads = 1;
+        sut.queueBytes = 100;
+        sut.start();
+        var parsing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        var busy = sut.submit(60, () -> {
+            parsing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        assertTrue(parsing.await(1, TimeUnit.SECONDS));
+
+        var second = new CompletableFuture<CompletableFuture<Integer>>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                second.complete(sut.submit(60, () -> 2));
+            } catch (InterruptedException e) {
+                second.completeExceptionally(e);
+            }
+        });
+        // 120 bytes do not fit in 100, although the queue has room
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        assertTrue(caller.isAlive());
+
+        release.countDown();
+        assertEquals(1, busy.get(1, TimeUnit.SECONDS));
+        assertEquals(2, second.get(1, TimeUnit.SECONDS).get(1, TimeUnit.SECONDS));
+        assertEquals(3, sut.submit(1_000, () -> 3).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stop_failsQueuedTasks() throws Exception {
+        sut.threads = 1;
+        sut.start();
+        var parsing = new CountDownLatch(1);
+        sut.submit(0, () -> {
+            parsing.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        });
+        assertTrue(parsing.await(1, TimeUnit.SECONDS));
+        var queued = sut.submit(0, () -> 1);
+
+        sut.stop();
+
+        assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+    }
+}
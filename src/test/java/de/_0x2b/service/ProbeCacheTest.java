@@ -0,0 +1,62 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Feed;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProbeCacheTest {
+
+    private static final HttpHeaders HEADERS = HttpHeaders.of(
+            Map.of("Content-Type", List.of("application/rss+xml")), (name, value) -> true);
+
+    private final ProbeCache sut = new ProbeCache();
+
+    @Test
+    void get_returnsWhatWasPut_untilTtlIsOver() throws Exception {
+        sut.ttl = Duration.ofMillis(100);
+        var feed = new Feed(-1, null, "", null, URI.create("https://example.com/rss"));
+        sut.put("https://example.com/rss", new ProbeCache.Probe(HEADERS, new byte[] { 1, 2 }, List.of(feed)));
+
+        var probe = sut.get("https://example.com/rss").orElseThrow();
+        assertArrayEquals(new byte[] { 1, 2 }, probe.body());
+        assertEquals(List.of(feed), probe.feeds());
+        assertTrue(sut.get("https://example.com/other").isEmpty());
+
+        Thread.sleep(150);
+
+        assertTrue(sut.get("https://example.com/rss").isEmpty());
+    }
+
+    @Test
+    void put_dropsOldestEntries_beyondMaxEntries() {
+        sut.maxEntries = 2;
+
+        sut.put("a", new ProbeCache.Probe(HEADERS, null, List.of()));
+        sut.put("b", new ProbeCache.Probe(HEADERS, null, List.of()));
+        sut.put("a", new ProbeCache.Probe(HEADERS, null, List.of()));
+        sut.put("c", new ProbeCache.Probe(HEADERS, null, List.of()));
+
+        assertTrue(sut.get("b").isEmpty());
+        assertTrue(sut.get("a").isPresent());
+        assertTrue(sut.get("c").isPresent());
+    }
+
+    @Test
+    void put_keepsFeedsButNotBodyOfLargeResponses() {
+        sut.maxBodySize = 4;
+        var feed = new Feed(-1, null, "", null, URI.create("https://example.com/rss"));
+
+        sut.put("https://example.com/rss", new ProbeCache.Probe(HEADERS, new byte[5], List.of(feed)));
+
+        var probe = sut.get("https://example.com/rss").orElseThrow();
+        assertNull(probe.body());
+        assertEquals(List.of(feed), probe.feeds());
+    }
+}
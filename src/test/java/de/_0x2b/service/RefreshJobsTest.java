@@ -0,0 +1,114 @@
+package de._0x2b.service;
+
+import de._0x2b.model.RefreshJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshJobsTest {
+
+    @Mock
+    FeedService feedService;
+
+    @InjectMocks
+    RefreshJobs sut;
+
+    @AfterEach
+    void tearDown() {
+        sut.stop();
+    }
+
+    @Test
+    void start_returnsRunningJob_untilItIsDone() throws Exception {
+        var release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            release.await();
+            return null;
+        }).when(feedService).refresh(any(RefreshCycle.class));
+
+        var first = sut.start();
+        var second = sut.start();
+
+        assertEquals("running", first.state());
+        assertEquals(first.id(), second.id());
+        release.countDown();
+        var done = awaitFinished(first.id());
+        assertEquals("done", done.state());
+        assertNotNull(done.finishedAt());
+        assertNotEquals(first.id(), sut.start().id());
+    }
+
+    @Test
+    void find_reportsProgressOfTheCycle() throws Exception {
+        doAnswer(inv -> {
+            RefreshCycle cycle = inv.getArgument(0);
+            cycle.finished(FeedRefreshResult.inserted(3));
+            cycle.finished(FeedRefreshResult.FAILED);
+            return null;
+        }).when(feedService).refresh(any(RefreshCycle.class));
+
+        var status = awaitFinished(sut.start().id());
+
+        assertEquals(2, status.done());
+        assertEquals(1, status.failed());
+        assertEquals(3, status.newArticles());
+    }
+
+    @Test
+    void cancel_cancelsTheCycle() throws Exception {
+        var started = new CountDownLatch(1);
+        doAnswer(inv -> {
+            RefreshCycle cycle = inv.getArgument(0);
+            started.countDown();
+            while (!cycle.isCancelled()) {
+                Thread.sleep(5);
+            }
+            return null;
+        }).when(feedService).refresh(any(RefreshCycle.class));
+        var job = sut.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var cancelling = sut.cancel(job.id()).orElseThrow();
+
+        assertTrue(List.of("cancelling", "cancelled").contains(cancelling.state()));
+
+        assertEquals("cancelled", awaitFinished(job.id()).state());
+    }
+
+    @Test
+    void find_andCancel_unknownJob_areEmpty() {
+        assertTrue(sut.find("nope").isEmpty());
+        assertTrue(sut.cancel("nope").isEmpty());
+    }
+
+    @Test
+    void start_whenRefreshThrows_marksJobFailed() throws Exception {
+        doThrow(new IllegalStateException("boom")).when(feedService).refresh(any(RefreshCycle.class));
+
+        assertEquals("failed", awaitFinished(sut.start().id()).state());
+    }
+
+    private RefreshJobStatus awaitFinished(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            var status = sut.find(id).orElseThrow();
+            if (status.finishedAt() != null) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("job " + id + " did not finish");
+        return null;
+    }
+}
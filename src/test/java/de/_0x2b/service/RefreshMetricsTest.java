@@ -0,0 +1,67 @@
+package de._0x2b.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefreshMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RefreshMetrics sut = new RefreshMetrics();
+
+    @BeforeEach
+    void setUp() {
+        sut.registry = registry;
+    }
+
+    @Test
+    void fetch_recordsLatencyAndBytesByOutcome() {
+        sut.fetch(RefreshMetrics.OK, TimeUnit.MILLISECONDS.toNanos(200), 4096);
+        sut.fetch("not_modified", TimeUnit.MILLISECONDS.toNanos(50), 0);
+
+        var ok = registry.get("feedbox.refresh.fetch").tag("outcome", "ok").timer();
+        assertEquals(1, ok.count());
+        assertEquals(200, ok.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(4096, registry.get("feedbox.refresh.fetch.bytes").tag("outcome", "ok").summary().totalAmount());
+        assertEquals(1, registry.get("feedbox.refresh.fetch").tag("outcome", "not_modified").timer().count());
+    }
+
+    @Test
+    void insert_countsInsertedAndIgnoredRows() {
+        sut.insert(RefreshMetrics.OK, 1_000, 10, 3);
+        sut.insert(RefreshMetrics.ERROR, 1_000, 5, 0);
+        sut.insert(RefreshMetrics.RETRIED, 1_000, 15, 0);
+        sut.known(20);
+
+        assertEquals(3, registry.get("feedbox.refresh.articles").tag("result", "inserted").counter().count());
+        assertEquals(7, registry.get("feedbox.refresh.articles").tag("result", "ignored").counter().count());
+        assertEquals(5, registry.get("feedbox.refresh.articles").tag("result", "failed").counter().count());
+        assertEquals(20, registry.get("feedbox.refresh.articles").tag("result", "known").counter().count());
+        assertEquals(1, registry.get("feedbox.refresh.insert").tag("outcome", "error").timer().count());
+        assertEquals(1, registry.get("feedbox.refresh.insert").tag("outcome", "retried").timer().count());
+    }
+
+    @Test
+    void parse_countsMappingFailures() {
+        sut.parse(RefreshMetrics.OK, 1_000, 0);
+        sut.parse(RefreshMetrics.OK, 1_000, 2);
+
+        assertEquals(2, registry.get("feedbox.refresh.parse").timer().count());
+        assertEquals(2, registry.get("feedbox.refresh.mapping.failures").counter().count());
+    }
+
+    @Test
+    void permitWait_isTaggedByPermitAndOutcome() {
+        sut.permitWait("host", RefreshMetrics.OK, 1_000);
+        sut.permitWait("global", RefreshMetrics.INTERRUPTED, 1_000);
+
+        assertEquals(1, registry.get("feedbox.refresh.permit.wait").tags("permit", "host", "outcome", "ok")
+                .timer().count());
+        assertEquals(1, registry.get("feedbox.refresh.permit.wait").tags("permit", "global", "outcome", "interrupted")
+                .timer().count());
+    }
+}
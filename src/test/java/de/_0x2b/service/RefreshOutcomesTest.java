@@ -0,0 +1,102 @@
+package de._0x2b.service;
+
+import de._0x2b.model.RefreshOutcome;
+import de._0x2b.repository.FeedRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshOutcomesTest {
+
+    @Mock
+    FeedRepository feedRepository;
+    @Spy
+    LeaseOwner leaseOwner = new LeaseOwner();
+
+    @InjectMocks
+    RefreshOutcomes sut;
+
+    @BeforeEach
+    void setUp() {
+        sut.flushSize = 3;
+        sut.flushInterval = Duration.ofHours(1);
+        leaseOwner.nodeId = Optional.of("node-1");
+    }
+
+    @Test
+    void record_buffersUntilFlushSize() throws SQLException {
+        sut.success(1, Instant.EPOCH, null, null, "h1", Duration.ofMinutes(5));
+        sut.error(2, "boom", Duration.ofMinutes(5));
+        verifyNoInteractions(feedRepository);
+
+        sut.success(3, Instant.EPOCH, null, null, "h3", Duration.ofMinutes(5));
+
+        assertEquals(List.of(1, 2, 3), flushedFeedIds());
+    }
+
+    @Test
+    void flush_writesPendingOutcomes_latestPerFeed() throws SQLException {
+        sut.error(1, "boom", Duration.ofMinutes(5));
+        sut.success(1, Instant.EPOCH, "\"v1\"", null, "h1", Duration.ofMinutes(5));
+
+        sut.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<RefreshOutcome>> captor = ArgumentCaptor.forClass(Collection.class);
+        // only releases the leases this node holds
+        verify(feedRepository).markRefreshed(captor.capture(), eq("node-1"));
+        RefreshOutcome outcome = captor.getValue().iterator().next();
+        assertEquals(1, captor.getValue().size());
+        assertFalse(outcome.failed());
+        assertEquals("\"v1\"", outcome.etag());
+    }
+
+    @Test
+    void flush_whenNothingPending_doesNotTouchDatabase() {
+        sut.flush();
+
+        verifyNoInteractions(feedRepository);
+    }
+
+    @Test
+    void flush_whenUpdateFails_keepsOutcomesForNextFlush() throws SQLException {
+        doThrow(new SQLException("down")).doNothing().when(feedRepository).markRefreshed(anyCollection(), anyString());
+        sut.error(1, null, Duration.ofMinutes(5));
+
+        sut.flush();
+        sut.flush();
+
+        verify(feedRepository, times(2)).markRefreshed(anyCollection(), anyString());
+        sut.flush();
+        verifyNoMoreInteractions(feedRepository);
+    }
+
+    @Test
+    void error_withoutMessage_isStillAFailure() {
+        assertTrue(RefreshOutcome.error(1, Instant.EPOCH, null, Duration.ZERO).failed());
+    }
+
+    private List<Integer> flushedFeedIds() throws SQLException {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<RefreshOutcome>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(feedRepository).markRefreshed(captor.capture(), anyString());
+        return captor.getValue().stream().map(RefreshOutcome::feedId).toList();
+    }
+}
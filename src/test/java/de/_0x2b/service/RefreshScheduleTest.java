@@ -0,0 +1,119 @@
+package de._0x2b.service;
+
+import de._0x2b.model.Feed;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RefreshScheduleTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    private final RefreshSchedule sut = new RefreshSchedule();
+
+    @Test
+    void afterFetch_busyFeed_isPolledAtMinimumInterval() {
+        // 50 items within the last hour, document truncated
+        List<Instant> published = new ArrayList<>();
+        for (int i = 1; i <= 50; i++) {
+            published.add(NOW.minus(Duration.ofMinutes(i)));
+        }
+
+        assertEquals(Duration.ofMinutes(5), sut.afterFetch(published, NOW));
+    }
+
+    @Test
+    void afterFetch_truncatedDocument_usesSpanOfRecentItems() {
+        // 10 items, one every hour, nothing older in the document
+        List<Instant> published = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            published.add(NOW.minus(Duration.ofHours(i)));
+        }
+
+        assertEquals(Duration.ofHours(1), sut.afterFetch(published, NOW));
+    }
+
+    @Test
+    void afterFetch_documentReachingPastWindow_spreadsRecentItemsOverWindow() {
+        // 14 items in the last week plus an old one -> one item every 12 hours
+        List<Instant> published = new ArrayList<>();
+        for (int i = 1; i <= 14; i++) {
+            published.add(NOW.minus(Duration.ofHours(i * 11L)));
+        }
+        published.add(NOW.minus(Duration.ofDays(30)));
+
+        assertEquals(Duration.ofHours(12), sut.afterFetch(published, NOW));
+    }
+
+    @Test
+    void afterFetch_dormantFeed_isPolledAtMaximumInterval() {
+        List<Instant> published = List.of(NOW.minus(Duration.ofDays(40)), NOW.minus(Duration.ofDays(90)));
+
+        assertEquals(Duration.ofHours(24), sut.afterFetch(published, NOW));
+    }
+
+    @Test
+    void afterFetch_ignoresUndatedItemsStampedWithRefreshTime() {
+        // the mapper stamps undated items with "now", which is after the
+        // refresh start - they must not make the feed look busy
+        List<Instant> published = List.of(NOW.plusMillis(5), NOW.plusMillis(6), NOW.plusMillis(7));
+
+        assertEquals(Duration.ofHours(24), sut.afterFetch(published, NOW));
+    }
+
+    @Test
+    void afterUnchanged_stretchesPreviousInterval_upToMaximum() {
+        Feed feed = new Feed(1, null, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+
+        feed.setRefreshInterval(Duration.ofHours(2));
+        assertEquals(Duration.ofHours(3), sut.afterUnchanged(feed));
+
+        feed.setRefreshInterval(Duration.ofHours(20));
+        assertEquals(Duration.ofHours(24), sut.afterUnchanged(feed));
+    }
+
+    @Test
+    void afterError_firstFailure_usesMinimum() {
+        Feed feed = new Feed(1, null, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.random = () -> 0;
+
+        assertEquals(Duration.ofMinutes(5), sut.afterError(feed));
+    }
+
+    @Test
+    void afterError_doublesWithConsecutiveFailures_upToMaximumBackoff() {
+        Feed feed = new Feed(1, null, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        sut.random = () -> 0;
+
+        feed.setConsecutiveFailures(3);
+        assertEquals(Duration.ofMinutes(40), sut.afterError(feed));
+
+        feed.setConsecutiveFailures(20);
+        assertEquals(Duration.ofDays(7), sut.afterError(feed));
+
+        feed.setConsecutiveFailures(Integer.MAX_VALUE);
+        assertEquals(Duration.ofDays(7), sut.afterError(feed));
+    }
+
+    @Test
+    void afterError_addsJitter() {
+        Feed feed = new Feed(1, null, "n", URI.create("https://example.com"), URI.create("https://example.com/rss"));
+        feed.setConsecutiveFailures(1);
+        sut.random = () -> 0.5;
+
+        // 10 minutes plus half of the 20% jitter
+        assertEquals(Duration.ofMinutes(11), sut.afterError(feed));
+    }
+
+    @Test
+    void whenPushed_pollsNoMoreOftenThanPushInterval() {
+        assertEquals(Duration.ofHours(24), sut.whenPushed(Duration.ofMinutes(5)));
+        assertEquals(Duration.ofHours(48), sut.whenPushed(Duration.ofHours(48)));
+    }
+}
@@ -0,0 +1,53 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final SingleFlight<Integer, Void> sut = new SingleFlight<>();
+
+    @Test
+    void submit_whileInFlight_attachesToRunningWork() {
+        var work = new CompletableFuture<Void>();
+        var starts = new AtomicInteger();
+
+        var first = sut.submit(1, () -> {
+            starts.incrementAndGet();
+            return work;
+        });
+        var second = sut.submit(1, () -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertSame(first, second);
+        assertEquals(1, starts.get());
+        assertFalse(second.isDone());
+        work.complete(null);
+        assertTrue(second.isDone());
+    }
+
+    @Test
+    void submit_afterCompletion_startsNewRun_andKeysAreIndependent() {
+        sut.submit(1, () -> CompletableFuture.completedFuture(null));
+        var pending = sut.submit(2, CompletableFuture::new);
+
+        var starts = new AtomicInteger();
+        sut.submit(1, () -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        var attached = sut.submit(2, () -> {
+            starts.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertEquals(1, starts.get());
+        assertSame(pending, attached);
+    }
+}
@@ -0,0 +1,80 @@
+package de._0x2b.service;
+
+import com.apptasticsoftware.rssreader.module.mediarss.MediaRssItem;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingMediaRssParserTest {
+
+    private final StreamingMediaRssParser sut = new StreamingMediaRssParser();
+
+    @Test
+    void parse_returnsAllItemsInDocumentOrder() {
+        List<MediaRssItem> items = sut.parse(new ByteArrayInputStream(rss(3)));
+
+        assertEquals(List.of(Optional.of("item 0"), Optional.of("item 1"), Optional.of("item 2")),
+                items.stream().map(MediaRssItem::getTitle).toList());
+    }
+
+    @Test
+    void parse_withConsumer_stopsReadingWhenConsumerIsDone() {
+        byte[] document = rss(500);
+        var in = new CountingInputStream(document);
+        var titles = new ArrayList<String>();
+
+        sut.parse(in, item -> {
+            titles.add(item.getTitle().orElseThrow());
+            return titles.size() < 2;
+        });
+
+        assertEquals(List.of("item 0", "item 1"), titles);
+        assertTrue(in.read < document.length / 2,
+                "read " + in.read + " of " + document.length + " bytes");
+    }
+
+    private static byte[] rss(int items) {
+        var rss = new StringBuilder("<?xml version=\"1.0\"?><rss version=\"2.0\"><channel><title>t</title>"
+                + "<link>https://example.com</link><description>d</description>");
+        for (int i = 0; i < items; i++) {
+            rss.append("<item><title>item ").append(i).append("</title><link>https://example.com/")
+                    .append(i).append("</link><description>").append("x".repeat(200))
+                    .append("</description></item>");
+        }
+        return rss.append("</channel></rss>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long read;
+
+        CountingInputStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                read++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+}
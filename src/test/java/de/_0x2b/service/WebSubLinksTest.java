@@ -0,0 +1,92 @@
+package de._0x2b.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebSubLinksTest {
+
+    private static final URI FEED_URL = URI.create("https://example.com/feed.xml");
+
+    @Test
+    void discover_rssWithAtomLinks() {
+        String rss = """
+                <rss version="2.0" xmlns:atom="http://www.w3.org/2005/Atom"><channel>
+                  <title>t</title>
+                  <atom:link rel="hub" href="https://hub.example.com/"/>
+                  <atom:link rel="self" type="application/rss+xml" href="https://example.com/rss"/>
+                  <item><title>i</title></item>
+                </channel></rss>""";
+
+        var discovery = WebSubLinks.discover(noHeaders(), bytes(rss), FEED_URL).orElseThrow();
+
+        assertEquals(URI.create("https://hub.example.com/"), discovery.hub());
+        assertEquals(URI.create("https://example.com/rss"), discovery.topic());
+    }
+
+    @Test
+    void discover_atomFeed_resolvesRelativeLinks_andDefaultsTopicToFeedUrl() {
+        String atom = """
+                <feed xmlns="http://www.w3.org/2005/Atom">
+                  <link rel="alternate" href="https://example.com/"/>
+                  <link rel="hub" href="/hub"/>
+                  <entry><title>e</title></entry>
+                </feed>""";
+
+        var discovery = WebSubLinks.discover(noHeaders(), bytes(atom), FEED_URL).orElseThrow();
+
+        assertEquals(URI.create("https://example.com/hub"), discovery.hub());
+        assertEquals(FEED_URL, discovery.topic());
+    }
+
+    @Test
+    void discover_linkHeaders_winOverDocument() {
+        var headers = HttpHeaders.of(Map.of("Link", List.of(
+                "<https://hub.example.com/>; rel=\"hub\", <https://example.com/topic>; rel=self")),
+                (n, v) -> true);
+        String atom = "<feed xmlns=\"http://www.w3.org/2005/Atom\"><link rel=\"hub\" href=\"https://other/\"/></feed>";
+
+        var discovery = WebSubLinks.discover(headers, bytes(atom), FEED_URL).orElseThrow();
+
+        assertEquals(URI.create("https://hub.example.com/"), discovery.hub());
+        assertEquals(URI.create("https://example.com/topic"), discovery.topic());
+    }
+
+    @Test
+    void discover_ignoresLinksInsideItems() {
+        String rss = """
+                <rss xmlns:atom="http://www.w3.org/2005/Atom"><channel>
+                  <item><atom:link rel="hub" href="https://hub.example.com/"/></item>
+                </channel></rss>""";
+
+        assertEquals(Optional.empty(), WebSubLinks.discover(noHeaders(), bytes(rss), FEED_URL));
+    }
+
+    @Test
+    void discover_withoutHubOrOnBrokenDocument_isEmpty() {
+        assertEquals(Optional.empty(), WebSubLinks.discover(noHeaders(), bytes("<rss><channel/></rss>"), FEED_URL));
+        assertEquals(Optional.empty(), WebSubLinks.discover(noHeaders(), bytes("not xml"), FEED_URL));
+    }
+
+    @Test
+    void discover_rejectsHubsThatAreNotHttp() {
+        String atom = "<feed xmlns=\"http://www.w3.org/2005/Atom\"><link rel=\"hub\" href=\"file:///etc/hub\"/></feed>";
+
+        assertEquals(Optional.empty(), WebSubLinks.discover(noHeaders(), bytes(atom), FEED_URL));
+    }
+
+    private static byte[] bytes(String document) {
+        return document.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static HttpHeaders noHeaders() {
+        return HttpHeaders.of(Map.of(), (n, v) -> true);
+    }
+}
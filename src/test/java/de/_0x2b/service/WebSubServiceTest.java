@@ -0,0 +1,305 @@
+package de._0x2b.service;
+
+import com.sun.net.httpserver.HttpServer;
+import de._0x2b.model.Feed;
+import de._0x2b.model.WebSubSubscription;
+import de._0x2b.repository.WebSubRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class WebSubServiceTest {
+
+    private static final String TOPIC = "https://example.com/rss";
+
+    private WebSubService sut;
+    private WebSubRepository repository;
+
+    // stand-in hub: records the subscription requests, answers with hubStatus
+    private HttpServer hub;
+    private URI hubUrl;
+    private final BlockingQueue<Map<String, String>> requests = new LinkedBlockingQueue<>();
+    private volatile int hubStatus = 202;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        hub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        hub.createContext("/hub", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.add(parseForm(body));
+            exchange.sendResponseHeaders(hubStatus, -1);
+            exchange.close();
+        });
+        hub.start();
+        hubUrl = URI.create("http://127.0.0.1:" + hub.getAddress().getPort() + "/hub");
+
+        repository = mock(WebSubRepository.class);
+        when(repository.findAll()).thenReturn(List.of());
+        sut = new WebSubService();
+        sut.httpsService = new HTTPSService("TestAgent/1.0", 3);
+        sut.webSubRepository = repository;
+        sut.callbackUrl = Optional.of("https://feedbox.example.com/");
+    }
+
+    @AfterEach
+    void tearDown() {
+        sut.stop();
+        hub.stop(0);
+    }
+
+    @Test
+    void discover_subscribesAtAdvertisedHub_andHubVerifiesAndPushes() throws Exception {
+        Feed feed = new Feed(5, null, "n", URI.create("https://example.com"), URI.create(TOPIC));
+        String rss = "<rss xmlns:atom=\"http://www.w3.org/2005/Atom\"><channel><atom:link rel=\"hub\" href=\""
+                + hubUrl + "\"/></channel></rss>";
+
+        sut.discover(feed, noHeaders(), rss.getBytes(StandardCharsets.UTF_8));
+
+        // the subscription request reaches the hub
+        var form = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(form, "hub received no subscription request");
+        assertEquals("subscribe", form.get("hub.mode"));
+        assertEquals(TOPIC, form.get("hub.topic"));
+        assertEquals("https://feedbox.example.com/api/websub/5", form.get("hub.callback"));
+        assertEquals(Long.toString(Duration.ofDays(10).toSeconds()), form.get("hub.lease_seconds"));
+        String secret = form.get("hub.secret");
+        assertEquals(64, secret.length());
+
+        var saved = ArgumentCaptor.forClass(WebSubSubscription.class);
+        verify(repository).save(saved.capture());
+        var pending = saved.getValue();
+        assertEquals(WebSubSubscription.PENDING, pending.state());
+        assertEquals(hubUrl, pending.hub());
+        assertEquals(1, pending.attempts());
+        assertNotNull(pending.retryAt());
+        assertFalse(sut.isPushed(5));
+
+        // the hub verifies the subscription through the callback
+        when(repository.findByFeed(5)).thenReturn(Optional.of(pending));
+        assertEquals(Optional.of("challenge-1"), sut.verify(5, "subscribe", TOPIC, "challenge-1", 3600L));
+        verify(repository, times(2)).save(saved.capture());
+        var active = saved.getValue();
+        assertEquals(WebSubSubscription.ACTIVE, active.state());
+        assertTrue(active.leaseExpiresAt().isAfter(Instant.now().plusSeconds(3500)));
+        assertEquals(0, active.attempts());
+        assertNull(active.retryAt());
+        assertTrue(sut.isPushed(5));
+
+        // and signs what it pushes with the secret
+        byte[] content = "<rss/>".getBytes(StandardCharsets.UTF_8);
+        assertTrue(sut.verifySignature(active, "sha256=" + hmac("HmacSHA256", secret, content), content));
+        assertTrue(sut.verifySignature(active, "sha1=" + hmac("HmacSHA1", secret, content), content));
+        assertFalse(sut.verifySignature(active, "sha256=" + hmac("HmacSHA256", "other", content), content));
+    }
+
+    @Test
+    void discover_whenAlreadySubscribedAtHub_doesNotSubscribeAgain() throws Exception {
+        var subscription = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "s", WebSubSubscription.ACTIVE,
+                Instant.now().plus(Duration.ofDays(5)), 0, null);
+        when(repository.findAll()).thenReturn(List.of(subscription));
+        Feed feed = new Feed(5, null, "n", URI.create("https://example.com"), URI.create(TOPIC));
+        var headers = HttpHeaders.of(Map.of("Link", List.of("<" + hubUrl + ">; rel=\"hub\"")), (n, v) -> true);
+
+        sut.discover(feed, headers, "<rss/>".getBytes(StandardCharsets.UTF_8));
+
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void discover_withoutCallbackUrl_doesNothing() {
+        sut.callbackUrl = Optional.empty();
+        Feed feed = new Feed(5, null, "n", URI.create("https://example.com"), URI.create(TOPIC));
+        var headers = HttpHeaders.of(Map.of("Link", List.of("<" + hubUrl + ">; rel=\"hub\"")), (n, v) -> true);
+
+        sut.discover(feed, headers, new byte[0]);
+
+        verifyNoInteractions(repository);
+        assertFalse(sut.isPushed(5));
+    }
+
+    @Test
+    void subscribe_whenHubRejectsRequest_keepsItPendingForRetry() {
+        hubStatus = 400;
+
+        sut.subscribe(5, hubUrl, URI.create(TOPIC));
+
+        var saved = ArgumentCaptor.forClass(WebSubSubscription.class);
+        verify(repository).save(saved.capture());
+        assertEquals(WebSubSubscription.PENDING, saved.getValue().state());
+        assertTrue(saved.getValue().retryAt().isAfter(Instant.now().plus(Duration.ofMinutes(59))));
+        verify(repository, never()).delete(5);
+        assertFalse(sut.isPushed(5));
+    }
+
+    @Test
+    void renewDue_requestsUnverifiedAndDeniedSubscriptionsAgainWithBackoff() throws Exception {
+        var expired = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "secret-5", WebSubSubscription.PENDING,
+                null, 2, Instant.now().minusSeconds(1));
+        var denied = new WebSubSubscription(6, hubUrl, URI.create(TOPIC + "/6"), "secret-6",
+                WebSubSubscription.DENIED, null, 1, Instant.now().minusSeconds(1));
+        var waiting = new WebSubSubscription(7, hubUrl, URI.create(TOPIC + "/7"), "secret-7",
+                WebSubSubscription.PENDING, null, 1, Instant.now().plus(Duration.ofMinutes(30)));
+        when(repository.findAll()).thenReturn(List.of(expired, denied, waiting));
+
+        sut.renewDue();
+
+        var secrets = new HashSet<String>();
+        for (int i = 0; i < 2; i++) {
+            var form = requests.poll(5, TimeUnit.SECONDS);
+            assertNotNull(form);
+            secrets.add(form.get("hub.secret"));
+        }
+        assertEquals(Set.of("secret-5", "secret-6"), secrets);
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+
+        var saved = ArgumentCaptor.forClass(WebSubSubscription.class);
+        verify(repository, times(2)).save(saved.capture());
+        for (var retried : saved.getAllValues()) {
+            assertEquals(WebSubSubscription.PENDING, retried.state());
+            // the third attempt of feed 5 waits four times the timeout
+            Duration wait = retried.feedId() == 5 ? Duration.ofHours(4) : Duration.ofHours(2);
+            assertEquals(retried.feedId() == 5 ? 3 : 2, retried.attempts());
+            assertTrue(retried.retryAt().isAfter(Instant.now().plus(wait).minusSeconds(60)));
+        }
+    }
+
+    @Test
+    void retryDelay_doublesUpToMaxRetryInterval() {
+        assertEquals(Duration.ofHours(1), sut.retryDelay(1));
+        assertEquals(Duration.ofHours(2), sut.retryDelay(2));
+        assertEquals(Duration.ofHours(64), sut.retryDelay(7));
+        assertEquals(Duration.ofDays(7), sut.retryDelay(9));
+        assertEquals(Duration.ofDays(7), sut.retryDelay(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void verify_refusesUnknownTopicsAndUnrequestedSubscriptions() {
+        var pending = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "s", WebSubSubscription.PENDING, null,
+                1, Instant.now().plus(Duration.ofHours(1)));
+        when(repository.findByFeed(5)).thenReturn(Optional.of(pending));
+        when(repository.findByFeed(6)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), sut.verify(5, "subscribe", "https://example.com/other", "c", 60L));
+        assertEquals(Optional.empty(), sut.verify(6, "subscribe", TOPIC, "c", 60L));
+        assertEquals(Optional.empty(), sut.verify(5, "unsubscribe", TOPIC, "c", null));
+        // an unsubscription of a feed nobody here wants anymore is confirmed
+        assertEquals(Optional.of("c"), sut.verify(6, "unsubscribe", TOPIC, "c", null));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void verifyAndDenied_leaveSubscriptionsWithoutOutstandingRequestAlone() {
+        var active = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "s", WebSubSubscription.ACTIVE,
+                Instant.now().plus(Duration.ofDays(5)), 0, null);
+        var denied = active.withState(WebSubSubscription.DENIED, null);
+        when(repository.findByFeed(5)).thenReturn(Optional.of(active));
+        when(repository.findByFeed(6)).thenReturn(Optional.of(denied));
+
+        // forged callbacks: nothing was asked of the hub
+        sut.denied(5, TOPIC, "forged");
+        assertEquals(Optional.empty(), sut.verify(5, "subscribe", TOPIC, "c", 60L));
+        assertEquals(Optional.empty(), sut.verify(6, "subscribe", TOPIC, "c", 60L));
+
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void verify_refusesLeasesThatAreNotPositiveOrTooLong() {
+        var pending = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "s", WebSubSubscription.PENDING, null,
+                1, Instant.now().plus(Duration.ofHours(1)));
+        when(repository.findByFeed(5)).thenReturn(Optional.of(pending));
+
+        assertEquals(Optional.empty(), sut.verify(5, "subscribe", TOPIC, "c", -1L));
+        assertEquals(Optional.empty(), sut.verify(5, "subscribe", TOPIC, "c", 0L));
+        assertEquals(Optional.empty(), sut.verify(5, "subscribe", TOPIC, "c", Long.MAX_VALUE));
+        verify(repository, never()).save(any());
+
+        assertEquals(Optional.of("c"), sut.verify(5, "subscribe", TOPIC, "c", Duration.ofDays(30).toSeconds()));
+    }
+
+    @Test
+    void renewDue_renewsExpiringLeasesWithSameSecret() throws Exception {
+        var expiring = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "secret-5", WebSubSubscription.ACTIVE,
+                Instant.now().plus(Duration.ofHours(2)), 0, null);
+        var running = new WebSubSubscription(6, hubUrl, URI.create(TOPIC + "/6"), "secret-6",
+                WebSubSubscription.ACTIVE, Instant.now().plus(Duration.ofDays(5)), 0, null);
+        when(repository.findAll()).thenReturn(List.of(expiring, running));
+
+        sut.renewDue();
+
+        var form = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(form);
+        assertEquals("secret-5", form.get("hub.secret"));
+        assertEquals("https://feedbox.example.com/api/websub/5", form.get("hub.callback"));
+        assertNull(requests.poll(200, TimeUnit.MILLISECONDS));
+
+        // the renewal is outstanding until the hub verifies it; pushes go on meanwhile
+        var saved = ArgumentCaptor.forClass(WebSubSubscription.class);
+        verify(repository).save(saved.capture());
+        var renewing = saved.getValue();
+        assertEquals(WebSubSubscription.RENEWING, renewing.state());
+        assertTrue(sut.isPushed(5));
+        when(repository.findByFeed(5)).thenReturn(Optional.of(renewing));
+        assertEquals(Optional.of("c"), sut.verify(5, "subscribe", TOPIC, "c", Duration.ofDays(10).toSeconds()));
+    }
+
+    @Test
+    void verifySignature_rejectsMissingMalformedAndUnsupportedSignatures() throws Exception {
+        var subscription = new WebSubSubscription(5, hubUrl, URI.create(TOPIC), "s", WebSubSubscription.ACTIVE,
+                Instant.now().plus(Duration.ofDays(1)), 0, null);
+        byte[] content = "<rss/>".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(sut.verifySignature(subscription, null, content));
+        assertFalse(sut.verifySignature(subscription, "sha256", content));
+        assertFalse(sut.verifySignature(subscription, "sha256=zz", content));
+        assertFalse(sut.verifySignature(subscription, "md5=" + hmac("HmacMD5", "s", content), content));
+        assertTrue(sut.verifySignature(subscription, "SHA512=" + hmac("HmacSHA512", "s", content), content));
+    }
+
+    private static String hmac(String algorithm, String secret, byte[] content) throws Exception {
+        Mac mac = Mac.getInstance(algorithm);
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm));
+        return HexFormat.of().formatHex(mac.doFinal(content));
+    }
+
+    private static Map<String, String> parseForm(String body) {
+        var form = new HashMap<String, String>();
+        for (String field : body.split("&")) {
+            int eq = field.indexOf('=');
+            form.put(URLDecoder.decode(field.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(field.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+
+    private static HttpHeaders noHeaders() {
+        return HttpHeaders.of(Map.of(), (n, v) -> true);
+    }
+}